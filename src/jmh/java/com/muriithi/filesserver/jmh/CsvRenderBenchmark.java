@@ -0,0 +1,38 @@
+package com.muriithi.filesserver.jmh;
+
+import com.muriithi.filesserver.renderviaweb.CsvDocumentRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CsvRenderBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int rows;
+
+    @Param({"5", "20"})
+    int columns;
+
+    private final CsvDocumentRenderer renderer = new CsvDocumentRenderer();
+    private byte[] content;
+
+    @Setup
+    public void generate() {
+        content = DocumentCorpus.csv(rows, columns);
+    }
+
+    @Benchmark
+    public byte[] renderCsv() throws Exception {
+        return renderer.renderCsvDocument(content, "ledger.csv");
+    }
+}
@@ -0,0 +1,124 @@
+package com.muriithi.filesserver.jmh;
+
+import org.apache.poi.hwpf.HWPFDocument;
+import org.apache.poi.hwpf.usermodel.Range;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic documents of a given size and shape for the renderer benchmarks. The same
+ * parameters always produce the same bytes, so runs are comparable.
+ */
+public final class DocumentCorpus {
+
+    private static final long SEED = 42;
+
+    private DocumentCorpus() {
+    }
+
+    /**
+     * CSV with a header row; columns cycle through integers, quoted text containing commas, and dates.
+     */
+    public static byte[] csv(int rows, int columns) {
+        Random random = new Random(SEED);
+        StringBuilder sb = new StringBuilder(rows * columns * 12);
+        for (int c = 0; c < columns; c++) {
+            sb.append(c == 0 ? "" : ",").append("column_").append(c);
+        }
+        sb.append('\n');
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (c > 0) {
+                    sb.append(',');
+                }
+                switch (c % 3) {
+                    case 0 -> sb.append(random.nextInt(1_000_000));
+                    case 1 -> sb.append("\"item ").append(r).append(", ").append(c).append('"');
+                    default -> sb.append("2024-0").append(1 + random.nextInt(9)).append("-1").append(random.nextInt(10));
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * XLSX workbook with {@code sheets} sheets of {@code rows} x {@code columns}, alternating numeric and
+     * text cells.
+     */
+    public static byte[] xlsx(int sheets, int rows, int columns) throws IOException {
+        Random random = new Random(SEED);
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int s = 0; s < sheets; s++) {
+                XSSFSheet sheet = workbook.createSheet("Sheet " + (s + 1));
+                for (int r = 0; r < rows; r++) {
+                    XSSFRow row = sheet.createRow(r);
+                    for (int c = 0; c < columns; c++) {
+                        if (c % 2 == 0) {
+                            row.createCell(c).setCellValue(random.nextDouble() * 10_000);
+                        } else {
+                            row.createCell(c).setCellValue("cell " + r + ":" + c);
+                        }
+                    }
+                }
+            }
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * DOCX with {@code paragraphs} paragraphs of prose, followed by {@code tables} tables of
+     * {@code tableRows} x 5 cells.
+     */
+    public static byte[] docx(int paragraphs, int tables, int tableRows) throws IOException {
+        Random random = new Random(SEED);
+        try (XWPFDocument document = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int p = 0; p < paragraphs; p++) {
+                document.createParagraph().createRun().setText(sentence(random, p));
+            }
+            for (int t = 0; t < tables; t++) {
+                XWPFTable table = document.createTable(tableRows, 5);
+                for (int r = 0; r < tableRows; r++) {
+                    for (int c = 0; c < 5; c++) {
+                        table.getRow(r).getCell(c).setText(r == 0 ? "Header " + c : Integer.toString(random.nextInt(100_000)));
+                    }
+                }
+            }
+            document.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Legacy .doc with {@code paragraphs} paragraphs appended to a seed document. POI cannot author a
+     * binary Word file from nothing, so the seed (any small .doc) is read from {@code seed}.
+     */
+    public static byte[] doc(Path seed, int paragraphs) throws IOException {
+        Random random = new Random(SEED);
+        try (InputStream in = Files.newInputStream(seed); HWPFDocument document = new HWPFDocument(in);
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Range range = document.getRange();
+            for (int p = 0; p < paragraphs; p++) {
+                range.insertAfter(sentence(random, p) + "\r");
+            }
+            document.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static String sentence(Random random, int index) {
+        return "Paragraph " + index + " " + Long.toHexString(random.nextLong()).repeat(8);
+    }
+}
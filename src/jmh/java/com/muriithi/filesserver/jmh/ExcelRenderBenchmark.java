@@ -0,0 +1,42 @@
+package com.muriithi.filesserver.jmh;
+
+import com.muriithi.filesserver.renderviaweb.ExcelDocumentRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExcelRenderBenchmark {
+
+    @Param({"1", "5"})
+    int sheets;
+
+    @Param({"100", "2000"})
+    int rows;
+
+    @Param({"10"})
+    int columns;
+
+    private final ExcelDocumentRenderer renderer = new ExcelDocumentRenderer();
+    private byte[] content;
+
+    @Setup
+    public void generate() throws IOException {
+        content = DocumentCorpus.xlsx(sheets, rows, columns);
+    }
+
+    @Benchmark
+    public byte[] renderXlsx() throws Exception {
+        return renderer.renderExcelDocument(content, "budget.xlsx");
+    }
+}
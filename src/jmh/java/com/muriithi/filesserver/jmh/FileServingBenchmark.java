@@ -0,0 +1,189 @@
+package com.muriithi.filesserver.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares ways of sending a stored file to a client, using the app's layout
+ * ({@code <base>/<type>/<filename>}) and a loopback TCP connection as the client so
+ * {@code transferTo} can take the sendfile path it would take against Tomcat's socket.
+ *
+ * <p>{@code cache=cold} drops the file from the page cache before every invocation with
+ * {@code dd iflag=nocache count=0} (GNU coreutils). Point {@code -Pjmh.io-dir} at the disk the server
+ * uses: the default temp directory may be tmpfs, where cold and warm are the same.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsPrepend = "-Xmx2g")
+public class FileServingBenchmark {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Param({"4096", "65536", "1048576", "16777216", "524288000"})
+    long size;
+
+    @Param({"warm", "cold"})
+    String cache;
+
+    private Path store;
+    private Path file;
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private OutputStream clientStream;
+    private Thread drainer;
+    private final ArrayDeque<ByteBuffer> directPool = new ArrayDeque<>();
+
+    @Setup(Level.Trial)
+    public void createStore() throws IOException {
+        Path root = Path.of(System.getProperty("jmh.io-dir", System.getProperty("java.io.tmpdir")));
+        store = Files.createTempDirectory(Files.createDirectories(root), "files-jmh-");
+        file = Files.createDirectories(store.resolve("pdfs")).resolve("payload-" + size + ".pdf");
+
+        Random random = new Random(42);
+        byte[] chunk = new byte[BUFFER_SIZE];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += chunk.length) {
+                random.nextBytes(chunk);
+                out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+            }
+        }
+
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel peer = server.accept();
+        clientStream = Channels.newOutputStream(client);
+        drainer = Thread.ofPlatform().daemon().name("jmh-drain").start(() -> drain(peer));
+
+        for (int i = 0; i < 4; i++) {
+            directPool.push(ByteBuffer.allocateDirect(BUFFER_SIZE));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void evictIfCold() throws IOException, InterruptedException {
+        if ("cold".equals(cache)) {
+            new ProcessBuilder("dd", "if=" + file, "iflag=nocache", "count=0")
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start()
+                    .waitFor();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteStore() throws IOException, InterruptedException {
+        client.close();
+        drainer.join(5000);
+        server.close();
+        try (Stream<Path> paths = Files.walk(store)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /** What FileServiceImpl.getFileContent and the controllers do today. */
+    @Benchmark
+    public long readAllBytes() throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        clientStream.write(content);
+        return content.length;
+    }
+
+    @Benchmark
+    public long bufferedStreamCopy() throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                clientStream.write(buffer, 0, read);
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long fileChannelTransferTo() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            long position = 0;
+            while (position < length) {
+                position += channel.transferTo(position, length - position, client);
+            }
+            return position;
+        }
+    }
+
+    @Benchmark
+    public long memoryMapped() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            long total = mapped.remaining();
+            while (mapped.hasRemaining()) {
+                client.write(mapped);
+            }
+            return total;
+        }
+    }
+
+    @Benchmark
+    public long pooledDirectBuffer() throws IOException {
+        ByteBuffer buffer = directPool.pop();
+        long total = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer.clear()) != -1) {
+                buffer.flip();
+                total += buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    client.write(buffer);
+                }
+            }
+        } finally {
+            directPool.push(buffer);
+        }
+        return total;
+    }
+
+    private static void drain(SocketChannel peer) {
+        ByteBuffer sink = ByteBuffer.allocateDirect(1024 * 1024);
+        try (peer) {
+            while (peer.read(sink.clear()) != -1) {
+                // discard
+            }
+        } catch (IOException ignored) {
+            // connection closed at teardown
+        }
+    }
+}
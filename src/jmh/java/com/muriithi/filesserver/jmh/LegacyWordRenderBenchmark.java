@@ -0,0 +1,44 @@
+package com.muriithi.filesserver.jmh;
+
+import com.muriithi.filesserver.renderviaweb.WordDocumentRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary .doc rendering. Needs a seed document: {@code ./gradlew jmh -Pjmh.doc-seed=/path/to/any.doc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LegacyWordRenderBenchmark {
+
+    @Param({"50", "1000"})
+    int paragraphs;
+
+    private final WordDocumentRenderer renderer = new WordDocumentRenderer();
+    private byte[] content;
+
+    @Setup
+    public void generate() throws IOException {
+        String seed = System.getProperty("jmh.doc-seed");
+        if (seed == null) {
+            throw new IllegalStateException("Set -Pjmh.doc-seed=<path to a .doc> to run the .doc benchmarks");
+        }
+        content = DocumentCorpus.doc(Path.of(seed), paragraphs);
+    }
+
+    @Benchmark
+    public byte[] renderDoc() throws Exception {
+        return renderer.renderWordDocument(content, ".doc", "minutes.doc");
+    }
+}
@@ -0,0 +1,42 @@
+package com.muriithi.filesserver.jmh;
+
+import com.muriithi.filesserver.renderviaweb.WordDocumentRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WordRenderBenchmark {
+
+    @Param({"50", "1000"})
+    int paragraphs;
+
+    @Param({"0", "10"})
+    int tables;
+
+    @Param({"20"})
+    int tableRows;
+
+    private final WordDocumentRenderer renderer = new WordDocumentRenderer();
+    private byte[] content;
+
+    @Setup
+    public void generate() throws IOException {
+        content = DocumentCorpus.docx(paragraphs, tables, tableRows);
+    }
+
+    @Benchmark
+    public byte[] renderDocx() throws Exception {
+        return renderer.renderWordDocument(content, ".docx", "minutes.docx");
+    }
+}
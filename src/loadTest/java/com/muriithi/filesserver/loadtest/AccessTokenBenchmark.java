@@ -0,0 +1,97 @@
+package com.muriithi.filesserver.loadtest;
+
+import com.muriithi.filesserver.security.AccessTokenSigner;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures issue-and-verify throughput of {@link AccessTokenSigner} from many threads at once, next to
+ * the previous approach of calling {@code Mac.getInstance} for every hash. Run with
+ * {@code ./gradlew loadTest --tests '*AccessTokenBenchmark'}.
+ */
+class AccessTokenBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessTokenBenchmark.class);
+
+    private static final int THREADS = Integer.getInteger("loadtest.concurrency", Runtime.getRuntime().availableProcessors() * 2);
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration-seconds", 10);
+    private static final String SECRET = "benchmark-secret-that-is-32-bytes";
+
+    @Test
+    void issueAndVerifyThroughput() throws Exception {
+        AccessTokenSigner signer = new AccessTokenSigner(SECRET, 5);
+        assertNotNull(signer.verify(signer.issue("report.pdf", "pdfs"), "report.pdf"));
+
+        Map<String, Double> opsPerSecond = new LinkedHashMap<>();
+        opsPerSecond.put("mac-per-call", run(Executors.newFixedThreadPool(THREADS), () -> legacyHash("report.pdf")));
+        opsPerSecond.put("signer-platform", run(Executors.newFixedThreadPool(THREADS),
+                () -> signer.verify(signer.issue("report.pdf", "pdfs"), "report.pdf")));
+        opsPerSecond.put("signer-virtual", run(Executors.newVirtualThreadPerTaskExecutor(),
+                () -> signer.verify(signer.issue("report.pdf", "pdfs"), "report.pdf")));
+
+        opsPerSecond.forEach((name, ops) -> log.info("{}", String.format("%-16s %,12.0f ops/s (%d threads)", name, ops, THREADS)));
+
+        StringBuilder json = new StringBuilder("{\"threads\":" + THREADS);
+        opsPerSecond.forEach((name, ops) -> json.append(",\"").append(name).append("\":").append(Math.round(ops)));
+        Path reportDir = Files.createDirectories(Path.of(System.getProperty("loadtest.report-dir", "build/reports/loadtest")));
+        Files.writeString(reportDir.resolve("access-tokens.json"), json.append('}').toString());
+
+        assertTrue(opsPerSecond.values().stream().allMatch(ops -> ops > 0), "no operations completed");
+    }
+
+    private static double run(ExecutorService executor, Runnable operation) throws Exception {
+        // Short warm-up so the JIT has compiled the hot path before measuring
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (System.nanoTime() < warmupEnd) {
+            operation.run();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+        List<Future<Long>> workers = new ArrayList<>(THREADS);
+        try (executor) {
+            for (int i = 0; i < THREADS; i++) {
+                workers.add(executor.submit(() -> {
+                    long operations = 0;
+                    while (System.nanoTime() < deadline) {
+                        operation.run();
+                        operations++;
+                    }
+                    return operations;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> worker : workers) {
+                total += worker.get();
+            }
+            return total / (double) DURATION_SECONDS;
+        }
+    }
+
+    private static byte[] legacyHash(String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
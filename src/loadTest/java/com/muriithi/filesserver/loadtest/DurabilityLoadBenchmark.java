@@ -0,0 +1,104 @@
+package com.muriithi.filesserver.loadtest;
+
+import com.muriithi.filesserver.FilesServerApplication;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures upload throughput and latency for each {@code file.storage.durability.mode}. Run with
+ * {@code ./gradlew loadTest --tests '*DurabilityLoadBenchmark'}. fsync cost depends entirely on the
+ * device, so point {@code -Ploadtest.storage-dir=...} at the disk the server really uses; the default
+ * temp directory may be tmpfs, where every mode measures the same. Group commit runs twice, issuing a
+ * batch's fsyncs one at a time and then together, and the log ends with each against plain fsync.
+ */
+class DurabilityLoadBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(DurabilityLoadBenchmark.class);
+
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 64);
+    private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup-seconds", 5);
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration-seconds", 20);
+    private static final int UPLOAD_KB = Integer.getInteger("loadtest.upload-kb", 64);
+
+    private record Variant(String name, String mode, int syncThreads) {
+    }
+
+    private static final List<Variant> VARIANTS = List.of(
+            new Variant("none", "none", 1),
+            new Variant("fsync", "fsync", 1),
+            new Variant("group-commit-serial", "group-commit", 1),
+            new Variant("group-commit", "group-commit", 8));
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void throughputByDurabilityMode() throws Exception {
+        String configured = System.getProperty("loadtest.storage-dir");
+        Path storage = configured != null
+                ? Files.createTempDirectory(Files.createDirectories(Path.of(configured)), "durability-")
+                : tempDir;
+        byte[] payload = new byte[UPLOAD_KB * 1024];
+        ThreadLocalRandom.current().nextBytes(payload);
+
+        Map<String, LoadResult> results = new LinkedHashMap<>();
+        for (Variant variant : VARIANTS) {
+            LoadResult result = runMode(storage.resolve(variant.name()), variant, payload);
+            log.info("{}", result.format("durability " + variant.name() + " (" + UPLOAD_KB + " KB uploads)"));
+            results.put(variant.name(), result);
+        }
+
+        LoadResult.Stats fsync = results.get("fsync").overall();
+        StringBuilder json = new StringBuilder("{");
+        results.forEach((name, result) -> json.append(json.length() > 1 ? "," : "")
+                .append('"').append(name).append("\":").append(result.toJson()));
+        for (String name : List.of("group-commit-serial", "group-commit")) {
+            LoadResult.Stats grouped = results.get(name).overall();
+            double throughputRatio = grouped.throughput() / fsync.throughput();
+            double p99Ratio = grouped.p99Millis() / fsync.p99Millis();
+            log.info("{}", String.format(Locale.ROOT, "%s vs fsync: %.2fx throughput, %.2fx p99", name, throughputRatio, p99Ratio));
+            json.append(",\"").append(name).append("-vs-fsync\":{\"throughput\":")
+                    .append(String.format(Locale.ROOT, "%.3f", throughputRatio))
+                    .append(",\"p99\":").append(String.format(Locale.ROOT, "%.3f", p99Ratio)).append('}');
+        }
+        Path reportDir = Files.createDirectories(Path.of(System.getProperty("loadtest.report-dir", "build/reports/loadtest")));
+        Files.writeString(reportDir.resolve("durability.json"), json.append('}').toString());
+
+        assertTrue(results.values().stream().allMatch(r -> r.overall().requests() > 0), "no uploads completed");
+    }
+
+    private LoadResult runMode(Path base, Variant variant, byte[] payload) throws Exception {
+        Files.createDirectories(base);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilesServerApplication.class)
+                .properties(
+                        "server.port=0",
+                        "file.storage.base-path=" + base,
+                        "file.storage.durability.mode=" + variant.mode(),
+                        "file.storage.durability.group-commit-threads=" + variant.syncThreads(),
+                        "logging.level.root=WARN",
+                        "logging.level.com.muriithi.filesserver.loadtest=INFO")
+                .run()) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            String url = "http://localhost:" + port + "/api/upload?type=documents";
+            LoadGenerator generator = new LoadGenerator(List.of(
+                    new LoadGenerator.Scenario("upload", 1, () -> HttpRequests.upload(url, UUID.randomUUID() + ".pdf", payload))));
+            return generator.run(CONCURRENCY, Duration.ofSeconds(WARMUP_SECONDS), Duration.ofSeconds(DURATION_SECONDS));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.muriithi.filesserver.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.muriithi.filesserver.FilesServerApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Repeatable end-to-end load test with a regression gate. Starts the app on a random port against a
+ * generated tree, drives a fixed mix of listing, downloads, renders, token-protected views and uploads,
+ * and compares the result with a baseline.
+ *
+ * <p>{@code ./gradlew loadTestGate} runs it (also wired into {@code check} with {@code -Ploadtest.gate}).
+ * Latencies are only comparable on the machine that produced them, so no baseline is checked in: the job
+ * first runs the base revision with {@code -Ploadtest.update-baseline}, then the change against that file.
+ * The baseline records the JDK and machine it came from, and a run on a different one is reported. A missing
+ * baseline fails the run rather than silently becoming one.
+ */
+class EndToEndLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(EndToEndLoadTest.class);
+
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 64);
+    private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup-seconds", 10);
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration-seconds", 30);
+    private static final double MAX_REGRESSION_PCT = Double.parseDouble(System.getProperty("loadtest.max-regression-pct", "10"));
+    private static final double MAX_TAIL_REGRESSION_PCT = Double.parseDouble(System.getProperty("loadtest.max-tail-regression-pct", "25"));
+    private static final double MAX_ERROR_RATE = 0.01;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @TempDir
+    Path storage;
+
+    @Test
+    void mixedTrafficStaysWithinBaseline() throws Exception {
+        TestFileTree tree = TestFileTree.generate(storage, 12);
+        byte[] uploadPayload = new byte[256 * 1024];
+        new Random(42).nextBytes(uploadPayload);
+
+        LoadResult result;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilesServerApplication.class)
+                .properties(
+                        "server.port=0",
+                        "file.storage.base-path=" + tree.base(),
+                        // The harness is one client IP; per-IP limits would turn the token flow into 429s
+                        "file.rate-limit.enabled=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.muriithi.filesserver.loadtest=INFO")
+                .run()) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            String baseUrl = "http://localhost:" + port;
+            LoadGenerator generator = new LoadGenerator(mix(baseUrl, tree, uploadPayload));
+            result = generator.run(CONCURRENCY, Duration.ofSeconds(WARMUP_SECONDS), Duration.ofSeconds(DURATION_SECONDS));
+        }
+        log.info("{}", result.format("end-to-end mix (" + CONCURRENCY + " clients)"));
+
+        Path reportDir = Files.createDirectories(Path.of(System.getProperty("loadtest.report-dir", "build/reports/loadtest")));
+        Files.writeString(reportDir.resolve("end-to-end.json"), result.toJson());
+
+        LoadResult.Stats overall = result.overall();
+        assertTrue(overall.requests() > 0, "no requests completed");
+        assertTrue(overall.errors() <= overall.requests() * MAX_ERROR_RATE,
+                "error rate too high: " + overall.errors() + " of " + overall.requests());
+
+        Path baseline = Path.of(System.getProperty("loadtest.baseline", "build/loadtest-baseline/end-to-end.json"));
+        if (Boolean.getBoolean("loadtest.update-baseline")) {
+            ObjectNode recorded = (ObjectNode) JSON.readTree(result.toJson());
+            recorded.set("environment", environment());
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.writeString(baseline, JSON.writeValueAsString(recorded));
+            log.info("Baseline written to {}", baseline.toAbsolutePath());
+            return;
+        }
+        if (!Files.exists(baseline)) {
+            fail("No load test baseline at " + baseline.toAbsolutePath()
+                    + "; record one on the base revision with ./gradlew loadTestGate -Ploadtest.update-baseline");
+        }
+
+        JsonNode recordedOn = JSON.readTree(Files.readString(baseline)).path("environment");
+        if (!recordedOn.equals(environment())) {
+            log.warn("Baseline was recorded on {} but this run is on {}; latencies may not be comparable",
+                    recordedOn, environment());
+        }
+        List<String> violations = new RegressionGate(MAX_REGRESSION_PCT, MAX_TAIL_REGRESSION_PCT).check(result, baseline);
+        if (!violations.isEmpty()) {
+            fail("Load test regressed against " + baseline + " (recorded on " + recordedOn + "):\n  "
+                    + String.join("\n  ", violations));
+        }
+    }
+
+    private static ObjectNode environment() {
+        ObjectNode environment = JSON.createObjectNode();
+        environment.put("jdk", System.getProperty("java.vm.vendor") + " " + System.getProperty("java.runtime.version"));
+        environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.version"));
+        environment.put("arch", System.getProperty("os.arch"));
+        environment.put("cpus", Runtime.getRuntime().availableProcessors());
+        environment.put("host", hostName());
+        return environment;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+
+    private static List<LoadGenerator.Scenario> mix(String baseUrl, TestFileTree tree, byte[] uploadPayload) {
+        return List.of(
+                new LoadGenerator.Scenario("list", 2, () -> HttpRequests.get(baseUrl + "/api/files/list?type=pdfs")),
+                new LoadGenerator.Scenario("download", 5, () -> HttpRequests.get(baseUrl, "download", "pdfs", HttpRequests.any(tree.pdfs()))),
+                new LoadGenerator.Scenario("serve-csv", 2, () -> HttpRequests.get(baseUrl, "serve", "text", HttpRequests.any(tree.csvs()))),
+                new LoadGenerator.Scenario("serve-xlsx", 2, () -> HttpRequests.get(baseUrl, "serve", "office", HttpRequests.any(tree.spreadsheets()))),
+                new LoadGenerator.Scenario("serve-docx", 1, () -> HttpRequests.get(baseUrl, "serve", "office", HttpRequests.any(tree.documents()))),
+                new LoadGenerator.Scenario("token-view", 2, client -> tokenView(client, baseUrl, HttpRequests.any(tree.pdfs()))),
+                new LoadGenerator.Scenario("upload", 1, () -> HttpRequests.upload(baseUrl + "/api/upload?type=documents",
+                        "upload-" + UUID.randomUUID() + ".pdf", uploadPayload)));
+    }
+
+    private static int tokenView(HttpClient client, String baseUrl, String filename) throws Exception {
+        HttpResponse<String> issued = client.send(HttpRequests.get(baseUrl, "generate-token", "pdfs", filename),
+                HttpResponse.BodyHandlers.ofString());
+        if (issued.statusCode() >= 400) {
+            return issued.statusCode();
+        }
+        String token = JSON.readTree(issued.body()).path("token").asText();
+        return client.send(HttpRequests.get(baseUrl + "/api/files/public-view?token=" + HttpRequests.encode(token)
+                        + "&filename=" + HttpRequests.encode(filename)),
+                HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,53 @@
+package com.muriithi.filesserver.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Request builders for the app's endpoints, shared by the load scenarios.
+ */
+final class HttpRequests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+    private static final String BOUNDARY = "load-test-boundary";
+
+    private HttpRequests() {
+    }
+
+    static HttpRequest get(String baseUrl, String endpoint, String type, String filename) {
+        return get(baseUrl + "/api/files/" + endpoint + "?type=" + encode(type) + "&filename=" + encode(filename));
+    }
+
+    static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(TIMEOUT).GET().build();
+    }
+
+    static HttpRequest upload(String url, String filename, byte[] payload) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(payload.length + 256);
+        body.writeBytes(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(payload);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    static String any(List<String> names) {
+        return names.get(ThreadLocalRandom.current().nextInt(names.size()));
+    }
+}
@@ -0,0 +1,49 @@
+package com.muriithi.filesserver.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Single-writer latency buffer; workers each own one and they are merged after the run.
+ */
+public class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+
+    public void record(long nanos, boolean success) {
+        if (!success) {
+            errors++;
+        }
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+    }
+
+    public void merge(LatencyRecorder other) {
+        if (count + other.count > latencies.length) {
+            latencies = Arrays.copyOf(latencies, count + other.count);
+        }
+        System.arraycopy(other.latencies, 0, latencies, count, other.count);
+        count += other.count;
+        errors += other.errors;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long errors() {
+        return errors;
+    }
+
+    /**
+     * Returns sorted latencies in nanoseconds.
+     */
+    public long[] sorted() {
+        long[] copy = Arrays.copyOf(latencies, count);
+        Arrays.sort(copy);
+        return copy;
+    }
+}
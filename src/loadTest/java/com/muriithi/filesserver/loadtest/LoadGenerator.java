@@ -0,0 +1,120 @@
+package com.muriithi.filesserver.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Closed-loop load generator: a fixed number of client workers each send one request at a time,
+ * picked from a weighted scenario mix, and record per-request latency.
+ */
+public class LoadGenerator {
+
+    /**
+     * One unit of client work; may send several requests (e.g. fetch a token, then use it). Returns the
+     * final status code.
+     */
+    @FunctionalInterface
+    public interface Exchange {
+        int send(HttpClient client) throws Exception;
+    }
+
+    public record Scenario(String name, int weight, Exchange exchange) {
+
+        public Scenario(String name, int weight, Supplier<HttpRequest> request) {
+            this(name, weight, client -> client.send(request.get(), HttpResponse.BodyHandlers.discarding()).statusCode());
+        }
+    }
+
+    private final HttpClient client;
+    private final List<Scenario> scenarios;
+    private final int totalWeight;
+
+    public LoadGenerator(List<Scenario> scenarios) {
+        this.scenarios = List.copyOf(scenarios);
+        this.totalWeight = scenarios.stream().mapToInt(Scenario::weight).sum();
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public LoadResult run(int concurrency, Duration warmup, Duration measurement) throws InterruptedException {
+        drive(concurrency, warmup);
+        return drive(concurrency, measurement);
+    }
+
+    private LoadResult drive(int concurrency, Duration duration) throws InterruptedException {
+        List<Worker> workers = new ArrayList<>(concurrency);
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        // Client workers are virtual threads so the generator itself is never the thread bottleneck
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                Worker worker = new Worker(deadline);
+                workers.add(worker);
+                executor.submit(worker);
+            }
+            executor.shutdown();
+            executor.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS);
+        }
+
+        Map<String, LatencyRecorder> byScenario = new LinkedHashMap<>();
+        for (Scenario scenario : scenarios) {
+            byScenario.put(scenario.name(), new LatencyRecorder());
+        }
+        for (Worker worker : workers) {
+            worker.recorders.forEach((name, recorder) -> byScenario.get(name).merge(recorder));
+        }
+        return LoadResult.of(duration, byScenario);
+    }
+
+    private Scenario pick() {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Scenario scenario : scenarios) {
+            roll -= scenario.weight();
+            if (roll < 0) {
+                return scenario;
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+
+    private final class Worker implements Runnable {
+
+        private final long deadline;
+        private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+
+        private Worker(long deadline) {
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            while (System.nanoTime() < deadline) {
+                Scenario scenario = pick();
+                LatencyRecorder recorder = recorders.computeIfAbsent(scenario.name(), k -> new LatencyRecorder());
+                long start = System.nanoTime();
+                try {
+                    int status = scenario.exchange().send(client);
+                    recorder.record(System.nanoTime() - start, status < 400);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    recorder.record(System.nanoTime() - start, false);
+                }
+            }
+        }
+    }
+}
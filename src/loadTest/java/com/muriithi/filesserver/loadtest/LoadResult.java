@@ -0,0 +1,75 @@
+package com.muriithi.filesserver.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Throughput and latency percentiles for one measured run, overall and per scenario.
+ */
+public record LoadResult(Stats overall, Map<String, Stats> scenarios) {
+
+    public record Stats(long requests, long errors, double throughput,
+                        double p50Millis, double p99Millis, double p999Millis) {
+
+        static Stats of(LatencyRecorder recorder, Duration duration) {
+            long[] sorted = recorder.sorted();
+            return new Stats(
+                    sorted.length,
+                    recorder.errors(),
+                    sorted.length / (duration.toNanos() / 1e9),
+                    percentile(sorted, 0.50),
+                    percentile(sorted, 0.99),
+                    percentile(sorted, 0.999));
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT,
+                    "{\"requests\":%d,\"errors\":%d,\"throughput\":%.2f,\"p50Ms\":%.3f,\"p99Ms\":%.3f,\"p999Ms\":%.3f}",
+                    requests, errors, throughput, p50Millis, p99Millis, p999Millis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%8d req %6d err %9.1f req/s  p50 %8.2fms  p99 %8.2fms  p999 %8.2fms",
+                    requests, errors, throughput, p50Millis, p99Millis, p999Millis);
+        }
+    }
+
+    static LoadResult of(Duration duration, Map<String, LatencyRecorder> byScenario) {
+        LatencyRecorder all = new LatencyRecorder();
+        Map<String, Stats> scenarios = new LinkedHashMap<>();
+        byScenario.forEach((name, recorder) -> {
+            all.merge(recorder);
+            scenarios.put(name, Stats.of(recorder, duration));
+        });
+        return new LoadResult(Stats.of(all, duration), scenarios);
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"overall\":").append(overall.toJson()).append(",\"scenarios\":{");
+        boolean first = true;
+        for (Map.Entry<String, Stats> entry : scenarios.entrySet()) {
+            if (!first) json.append(',');
+            json.append('"').append(entry.getKey()).append("\":").append(entry.getValue().toJson());
+            first = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    public String format(String label) {
+        StringBuilder sb = new StringBuilder(label).append('\n')
+                .append(String.format(Locale.ROOT, "  %-14s %s%n", "overall", overall));
+        scenarios.forEach((name, stats) -> sb.append(String.format(Locale.ROOT, "  %-14s %s%n", name, stats)));
+        return sb.toString();
+    }
+}
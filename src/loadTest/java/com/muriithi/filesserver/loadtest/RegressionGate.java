@@ -0,0 +1,67 @@
+package com.muriithi.filesserver.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares a run against a baseline written by an earlier run of the same harness in the same job. Throughput
+ * may not drop, and p50/p99 may not rise, by more than {@code maxRegressionPct}; p999 is noisier and
+ * gets its own {@code maxTailRegressionPct}. Per-scenario p99 is checked as well, so one slow endpoint
+ * cannot hide inside a healthy overall number.
+ */
+class RegressionGate {
+
+    private final double maxRegressionPct;
+    private final double maxTailRegressionPct;
+    private final List<String> violations = new ArrayList<>();
+
+    RegressionGate(double maxRegressionPct, double maxTailRegressionPct) {
+        this.maxRegressionPct = maxRegressionPct;
+        this.maxTailRegressionPct = maxTailRegressionPct;
+    }
+
+    List<String> check(LoadResult current, Path baselineFile) throws IOException {
+        JsonNode baseline = new ObjectMapper().readTree(Files.readString(baselineFile));
+
+        LoadResult.Stats overall = current.overall();
+        JsonNode base = baseline.path("overall");
+        lowerIsWorse("overall throughput", base.path("throughput").asDouble(), overall.throughput(), maxRegressionPct);
+        higherIsWorse("overall p50", base.path("p50Ms").asDouble(), overall.p50Millis(), maxRegressionPct);
+        higherIsWorse("overall p99", base.path("p99Ms").asDouble(), overall.p99Millis(), maxRegressionPct);
+        higherIsWorse("overall p999", base.path("p999Ms").asDouble(), overall.p999Millis(), maxTailRegressionPct);
+
+        for (Map.Entry<String, LoadResult.Stats> scenario : current.scenarios().entrySet()) {
+            JsonNode scenarioBase = baseline.path("scenarios").path(scenario.getKey());
+            if (!scenarioBase.isMissingNode()) {
+                higherIsWorse(scenario.getKey() + " p99", scenarioBase.path("p99Ms").asDouble(),
+                        scenario.getValue().p99Millis(), maxRegressionPct);
+            }
+        }
+        return violations;
+    }
+
+    private void lowerIsWorse(String metric, double baseline, double current, double allowedPct) {
+        if (baseline > 0 && current < baseline * (1 - allowedPct / 100)) {
+            violations.add(describe(metric, baseline, current, allowedPct));
+        }
+    }
+
+    private void higherIsWorse(String metric, double baseline, double current, double allowedPct) {
+        if (baseline > 0 && current > baseline * (1 + allowedPct / 100)) {
+            violations.add(describe(metric, baseline, current, allowedPct));
+        }
+    }
+
+    private static String describe(String metric, double baseline, double current, double allowedPct) {
+        return String.format(Locale.ROOT, "%s: %.2f -> %.2f (%+.1f%%, allowed %.0f%%)",
+                metric, baseline, current, (current - baseline) / baseline * 100, allowedPct);
+    }
+}
@@ -0,0 +1,133 @@
+package com.muriithi.filesserver.loadtest;
+
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a deterministic file tree in the layout the app expects ({@code <base>/<type>/<file>}).
+ */
+public class TestFileTree {
+
+    private final Path base;
+    private final List<String> pdfs = new ArrayList<>();
+    private final List<String> csvs = new ArrayList<>();
+    private final List<String> spreadsheets = new ArrayList<>();
+    private final List<String> documents = new ArrayList<>();
+
+    private TestFileTree(Path base) {
+        this.base = base;
+    }
+
+    public static TestFileTree generate(Path base, int filesPerKind) throws IOException {
+        TestFileTree tree = new TestFileTree(base);
+        Random random = new Random(42);
+
+        Path pdfDir = Files.createDirectories(base.resolve("pdfs"));
+        Path textDir = Files.createDirectories(base.resolve("text"));
+        Path officeDir = Files.createDirectories(base.resolve("office"));
+
+        for (int i = 0; i < filesPerKind; i++) {
+            // Download payloads from 64KB to ~4MB so both small and large transfers are in the mix
+            String pdf = "report-" + i + ".pdf";
+            byte[] payload = new byte[64 * 1024 << (i % 7)];
+            random.nextBytes(payload);
+            Files.write(pdfDir.resolve(pdf), payload);
+            tree.pdfs.add(pdf);
+
+            String csv = "ledger-" + i + ".csv";
+            Files.writeString(textDir.resolve(csv), csv(random, 500 + i * 50, 8));
+            tree.csvs.add(csv);
+
+            String xlsx = "budget-" + i + ".xlsx";
+            writeXlsx(officeDir.resolve(xlsx), random, 300 + i * 30, 10);
+            tree.spreadsheets.add(xlsx);
+
+            String docx = "minutes-" + i + ".docx";
+            writeDocx(officeDir.resolve(docx), random, 80 + i * 10);
+            tree.documents.add(docx);
+        }
+        return tree;
+    }
+
+    private static String csv(Random random, int rows, int cols) {
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < cols; c++) {
+            sb.append(c == 0 ? "" : ",").append("column_").append(c);
+        }
+        sb.append('\n');
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (c > 0) sb.append(',');
+                if (c % 3 == 0) {
+                    sb.append(random.nextInt(1_000_000));
+                } else if (c % 3 == 1) {
+                    sb.append("\"item ").append(r).append(", ").append(c).append('"');
+                } else {
+                    sb.append("2024-0").append(1 + random.nextInt(9)).append("-1").append(random.nextInt(10));
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void writeXlsx(Path path, Random random, int rows, int cols) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(path)) {
+            XSSFSheet sheet = workbook.createSheet("Data");
+            for (int r = 0; r < rows; r++) {
+                XSSFRow row = sheet.createRow(r);
+                for (int c = 0; c < cols; c++) {
+                    if (c % 2 == 0) {
+                        row.createCell(c).setCellValue(random.nextDouble() * 10_000);
+                    } else {
+                        row.createCell(c).setCellValue("cell " + r + ":" + c);
+                    }
+                }
+            }
+            workbook.write(out);
+        }
+    }
+
+    private static void writeDocx(Path path, Random random, int paragraphs) throws IOException {
+        try (XWPFDocument document = new XWPFDocument(); OutputStream out = Files.newOutputStream(path)) {
+            for (int p = 0; p < paragraphs; p++) {
+                document.createParagraph().createRun().setText(
+                        "Paragraph " + p + " " + Long.toHexString(random.nextLong()).repeat(8));
+            }
+            XWPFTable table = document.createTable(20, 5);
+            table.getRow(0).getCell(0).setText("Header");
+            document.write(out);
+        }
+    }
+
+    public Path base() {
+        return base;
+    }
+
+    public List<String> pdfs() {
+        return pdfs;
+    }
+
+    public List<String> csvs() {
+        return csvs;
+    }
+
+    public List<String> spreadsheets() {
+        return spreadsheets;
+    }
+
+    public List<String> documents() {
+        return documents;
+    }
+}
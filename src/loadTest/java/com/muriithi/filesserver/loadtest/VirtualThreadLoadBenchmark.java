@@ -0,0 +1,75 @@
+package com.muriithi.filesserver.loadtest;
+
+import com.muriithi.filesserver.FilesServerApplication;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares platform-thread and virtual-thread request handling under mixed download and render
+ * traffic. Run with {@code ./gradlew loadTest}; tune with {@code -Ploadtest.concurrency=...},
+ * {@code -Ploadtest.duration-seconds=...} and {@code -Ploadtest.tomcat-threads=...}.
+ */
+class VirtualThreadLoadBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadLoadBenchmark.class);
+
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 256);
+    private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup-seconds", 10);
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration-seconds", 30);
+    private static final int TOMCAT_THREADS = Integer.getInteger("loadtest.tomcat-threads", 200);
+
+    @TempDir
+    Path storage;
+
+    @Test
+    void platformVersusVirtualThreads() throws Exception {
+        TestFileTree tree = TestFileTree.generate(storage, 12);
+
+        LoadResult platform = runMode(tree, false);
+        log.info("{}", platform.format("platform threads (tomcat max " + TOMCAT_THREADS + ")"));
+
+        LoadResult virtual = runMode(tree, true);
+        log.info("{}", virtual.format("virtual threads"));
+
+        Path reportDir = Files.createDirectories(Path.of(System.getProperty("loadtest.report-dir", "build/reports/loadtest")));
+        Files.writeString(reportDir.resolve("virtual-threads.json"),
+                "{\"platform\":" + platform.toJson() + ",\"virtual\":" + virtual.toJson() + "}");
+
+        assertTrue(platform.overall().requests() > 0 && virtual.overall().requests() > 0, "no requests completed");
+    }
+
+    private LoadResult runMode(TestFileTree tree, boolean virtualThreads) throws InterruptedException {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilesServerApplication.class)
+                .properties(
+                        "server.port=0",
+                        "file.storage.base-path=" + tree.base(),
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "logging.level.root=WARN",
+                        "logging.level.com.muriithi.filesserver.loadtest=INFO")
+                .run()) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            LoadGenerator generator = new LoadGenerator(mixedTraffic("http://localhost:" + port, tree));
+            return generator.run(CONCURRENCY, Duration.ofSeconds(WARMUP_SECONDS), Duration.ofSeconds(DURATION_SECONDS));
+        }
+    }
+
+    static List<LoadGenerator.Scenario> mixedTraffic(String baseUrl, TestFileTree tree) {
+        return List.of(
+                new LoadGenerator.Scenario("download", 5, () -> HttpRequests.get(baseUrl, "download", "pdfs", HttpRequests.any(tree.pdfs()))),
+                new LoadGenerator.Scenario("serve-csv", 2, () -> HttpRequests.get(baseUrl, "serve", "text", HttpRequests.any(tree.csvs()))),
+                new LoadGenerator.Scenario("serve-xlsx", 2, () -> HttpRequests.get(baseUrl, "serve", "office", HttpRequests.any(tree.spreadsheets()))),
+                new LoadGenerator.Scenario("serve-docx", 1, () -> HttpRequests.get(baseUrl, "serve", "office", HttpRequests.any(tree.documents()))));
+    }
+}
@@ -0,0 +1,93 @@
+package com.muriithi.filesserver.catalog;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queries the {@link MetadataCatalog}, e.g. the largest xlsx files from the last week:
+ * {@code GET /api/files/catalog?extension=xlsx&since=P7D&sort=size}.
+ *
+ * <p>{@code since} and {@code until} take an instant ({@code 2025-01-31T12:00:00Z}), a date
+ * ({@code 2025-01-31}, UTC midnight) or a duration back from now ({@code P7D}, {@code PT12H}).
+ */
+@RestController
+@RequestMapping("/api/files/catalog")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", methods = {RequestMethod.GET, RequestMethod.OPTIONS})
+public class CatalogController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final MetadataCatalog metadataCatalog;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> query(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String extension,
+            @RequestParam(required = false) String sha256,
+            @RequestParam(required = false) String renderStatus,
+            @RequestParam(required = false) Long minSize,
+            @RequestParam(required = false) Long maxSize,
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) String until,
+            @RequestParam(defaultValue = "modified") String sort,
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(defaultValue = "100") int limit) {
+
+        Map<String, Object> response = new HashMap<>();
+        if (!metadataCatalog.isEnabled()) {
+            response.put("error", "Metadata catalog is not enabled");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+
+        CatalogQuery query;
+        try {
+            query = new CatalogQuery(type, extension, sha256,
+                    renderStatus != null ? RenderStatus.valueOf(renderStatus.toUpperCase()) : null,
+                    minSize != null ? minSize : 0,
+                    maxSize != null ? maxSize : Long.MAX_VALUE,
+                    since != null ? parseTime(since) : Long.MIN_VALUE,
+                    until != null ? parseTime(until) : Long.MAX_VALUE,
+                    CatalogQuery.Sort.valueOf(sort.toUpperCase()), !"asc".equalsIgnoreCase(order),
+                    Math.clamp(limit, 1, MAX_LIMIT));
+        } catch (DateTimeParseException e) {
+            response.put("error", "Invalid time: " + e.getParsedString());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", "Invalid sort or renderStatus");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        List<FileRecord> files = metadataCatalog.query(query);
+        response.put("files", files);
+        response.put("count", files.size());
+        response.put("catalogSize", metadataCatalog.size());
+        return ResponseEntity.ok(response);
+    }
+
+    private static long parseTime(String value) {
+        if (value.startsWith("P") || value.startsWith("p")) {
+            return Instant.now().minus(Duration.parse(value)).toEpochMilli();
+        }
+        if (value.length() == 10) {
+            return LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        }
+        return Instant.parse(value).toEpochMilli();
+    }
+}
@@ -0,0 +1,280 @@
+package com.muriithi.filesserver.catalog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk half of the {@link MetadataCatalog}: a snapshot of every record plus an append-only log of
+ * changes made since. Both are sequences of {@code [length][crc32][payload]} frames, each payload a
+ * put or a remove, so loading is one sequential read of each file. A frame torn by a crash fails its
+ * checksum and the log is cut back to the last whole one.
+ *
+ * <p>Compaction rotates the log to {@code log.prev}, writes a new snapshot from a copy taken at the
+ * rotation, then deletes {@code log.prev}. If an earlier compaction failed and left {@code log.prev}
+ * behind, the log is appended to it instead. Replaying puts and removes over a snapshot that already
+ * contains them gives the same result, so a crash at any point loads correctly.
+ *
+ * <p>Not thread-safe; the catalog serializes access.
+ */
+final class CatalogLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogLog.class);
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int MAX_FRAME = 1 << 20;
+    private static final int IO_BUFFER = 1 << 16;
+
+    private final Path snapshot;
+    private final Path current;
+    private final Path previous;
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private long entries;
+
+    CatalogLog(Path directory) {
+        this.snapshot = directory.resolve("snapshot");
+        this.current = directory.resolve("log");
+        this.previous = directory.resolve("log.prev");
+    }
+
+    /**
+     * Loads the snapshot and any logs into {@code records} and opens the log for appending.
+     */
+    void open(Map<String, FileRecord> records) throws IOException {
+        Files.createDirectories(current.getParent());
+        replay(snapshot, records);
+        Replayed rotated = replay(previous, records);
+        Replayed appended = replay(current, records);
+        entries = rotated.frames() + appended.frames();
+
+        if (Files.exists(previous) && Files.size(previous) > rotated.validBytes()) {
+            // Torn while a rotation appended to it; the whole log it came from is still in current
+            try (FileChannel prev = FileChannel.open(previous, StandardOpenOption.WRITE)) {
+                prev.truncate(rotated.validBytes());
+            }
+        }
+
+        channel = FileChannel.open(current, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() > appended.validBytes()) {
+            log.warn("Discarding {} bytes of incomplete catalog log", channel.size() - appended.validBytes());
+            channel.truncate(appended.validBytes());
+        }
+        channel.position(channel.size());
+    }
+
+    /**
+     * Changes appended since the last compaction.
+     */
+    long entries() {
+        return entries;
+    }
+
+    void put(FileRecord record) throws IOException {
+        append(encode(record));
+    }
+
+    void remove(String key) throws IOException {
+        byte[] name = key.getBytes(StandardCharsets.UTF_8);
+        append(ByteBuffer.allocate(1 + 4 + name.length).put(REMOVE).putInt(name.length).put(name).array());
+    }
+
+    /**
+     * Starts a new log; the caller then writes a snapshot of the state at this point with
+     * {@link #writeSnapshot}.
+     */
+    void rotate() throws IOException {
+        channel.close();
+        try {
+            if (Files.exists(previous)) {
+                appendToPrevious();
+            } else {
+                Files.move(current, previous, StandardCopyOption.ATOMIC_MOVE);
+            }
+            entries = 0;
+        } finally {
+            channel = FileChannel.open(current, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        }
+    }
+
+    /*
+     * A failed compaction left log.prev behind and the next snapshot has to cover both logs. The log is
+     * copied onto its end and only then emptied, so a crash in between replays some changes twice, in
+     * order, and loses none.
+     */
+    private void appendToPrevious() throws IOException {
+        try (FileChannel in = FileChannel.open(current, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(previous, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long size = in.size();
+            long copied = 0;
+            while (copied < size) {
+                copied += in.transferTo(copied, size - copied, out);
+            }
+        }
+        try (FileChannel emptied = FileChannel.open(current, StandardOpenOption.WRITE)) {
+            emptied.truncate(0);
+        }
+    }
+
+    void writeSnapshot(Collection<FileRecord> records) throws IOException {
+        Path temp = snapshot.resolveSibling("snapshot.tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER);
+            CRC32 snapshotCrc = new CRC32();
+            for (FileRecord record : records) {
+                byte[] payload = encode(record);
+                if (buffer.remaining() < 8 + payload.length) {
+                    drain(out, buffer);
+                }
+                snapshotCrc.reset();
+                snapshotCrc.update(payload);
+                buffer.putInt(payload.length).putInt((int) snapshotCrc.getValue()).put(payload);
+            }
+            drain(out, buffer);
+            out.force(true);
+        }
+        Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(previous);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void append(byte[] payload) throws IOException {
+        crc.reset();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(8 + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+        // Not forced: reconciliation rebuilds anything lost in a crash
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+        entries++;
+    }
+
+    private static void drain(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private record Replayed(long validBytes, long frames) {
+    }
+
+    /*
+     * Applies every whole frame in the file, stopping at the first torn or corrupt one.
+     */
+    private Replayed replay(Path file, Map<String, FileRecord> records) throws IOException {
+        if (!Files.exists(file)) {
+            return new Replayed(0, 0);
+        }
+        long valid = 0;
+        long frames = 0;
+        byte[] payload = new byte[256];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER))) {
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    if (length <= 0 || length > MAX_FRAME) {
+                        break;
+                    }
+                    checksum = in.readInt();
+                    if (payload.length < length) {
+                        payload = new byte[Math.max(length, payload.length * 2)];
+                    }
+                    in.readFully(payload, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(ByteBuffer.wrap(payload, 0, length), records);
+                valid += 8 + length;
+                frames++;
+            }
+        }
+        return new Replayed(valid, frames);
+    }
+
+    private static void apply(ByteBuffer payload, Map<String, FileRecord> records) {
+        byte op = payload.get();
+        if (op == PUT) {
+            FileRecord record = decode(payload);
+            records.put(record.key(), record);
+        } else if (op == REMOVE) {
+            records.remove(getString(payload));
+        }
+    }
+
+    private static byte[] encode(FileRecord record) {
+        byte[] folder = record.folder().getBytes(StandardCharsets.UTF_8);
+        byte[] filename = record.filename().getBytes(StandardCharsets.UTF_8);
+        byte[] sha256 = (record.sha256() != null ? record.sha256() : "").getBytes(StandardCharsets.UTF_8);
+        byte[] mimeType = record.mimeType().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 8 + 1 + 4 * 4
+                + folder.length + filename.length + sha256.length + mimeType.length);
+        buffer.put(PUT);
+        putString(buffer, folder);
+        putString(buffer, filename);
+        buffer.putLong(record.size());
+        buffer.putLong(record.modified());
+        putString(buffer, sha256);
+        putString(buffer, mimeType);
+        buffer.put((byte) record.renderStatus().ordinal());
+        return buffer.array();
+    }
+
+    private static FileRecord decode(ByteBuffer buffer) {
+        String folder = getString(buffer);
+        String filename = getString(buffer);
+        long size = buffer.getLong();
+        long modified = buffer.getLong();
+        String sha256 = getString(buffer);
+        String mimeType = getString(buffer);
+        RenderStatus renderStatus = RenderStatus.values()[buffer.get()];
+        return new FileRecord(folder, filename, size, modified, sha256.isEmpty() ? null : sha256, mimeType, renderStatus);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        buffer.putInt(value.length).put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
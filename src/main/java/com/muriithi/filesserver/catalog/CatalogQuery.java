@@ -0,0 +1,47 @@
+package com.muriithi.filesserver.catalog;
+
+import java.util.Comparator;
+
+/**
+ * Filters and ordering for {@link MetadataCatalog#query}. Null filters match everything; size and
+ * time bounds are inclusive.
+ */
+public record CatalogQuery(String folder, String extension, String sha256, RenderStatus renderStatus,
+                           long minSize, long maxSize, long modifiedFrom, long modifiedTo,
+                           Sort sort, boolean descending, int limit) {
+
+    public enum Sort {
+        NAME, SIZE, MODIFIED
+    }
+
+    public CatalogQuery {
+        extension = extension != null ? extension.toLowerCase() : null;
+        sort = sort != null ? sort : Sort.MODIFIED;
+    }
+
+    boolean hasSizeRange() {
+        return minSize > 0 || maxSize < Long.MAX_VALUE;
+    }
+
+    boolean hasTimeRange() {
+        return modifiedFrom > Long.MIN_VALUE || modifiedTo < Long.MAX_VALUE;
+    }
+
+    boolean matches(FileRecord record) {
+        return (folder == null || folder.equals(record.folder()))
+                && (extension == null || extension.equals(record.extension()))
+                && (sha256 == null || sha256.equalsIgnoreCase(record.sha256()))
+                && (renderStatus == null || renderStatus == record.renderStatus())
+                && record.size() >= minSize && record.size() <= maxSize
+                && record.modified() >= modifiedFrom && record.modified() <= modifiedTo;
+    }
+
+    Comparator<FileRecord> comparator() {
+        Comparator<FileRecord> order = switch (sort) {
+            case NAME -> Comparator.comparing(FileRecord::filename).thenComparing(FileRecord::folder);
+            case SIZE -> MetadataCatalog.BY_SIZE;
+            case MODIFIED -> MetadataCatalog.BY_MODIFIED;
+        };
+        return descending ? order.reversed() : order;
+    }
+}
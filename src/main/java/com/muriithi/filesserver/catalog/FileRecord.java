@@ -0,0 +1,30 @@
+package com.muriithi.filesserver.catalog;
+
+/**
+ * What the catalog knows about one stored file. {@code modified} is the file's mtime in epoch millis;
+ * {@code sha256} is null until the content has been hashed, or when it could not be.
+ */
+public record FileRecord(String folder, String filename, long size, long modified, String sha256,
+                         String mimeType, RenderStatus renderStatus) {
+
+    public String key() {
+        return key(folder, filename);
+    }
+
+    public String extension() {
+        return extensionOf(filename);
+    }
+
+    FileRecord withRenderStatus(RenderStatus status) {
+        return new FileRecord(folder, filename, size, modified, sha256, mimeType, status);
+    }
+
+    static String key(String folder, String filename) {
+        return folder + "/" + filename;
+    }
+
+    static String extensionOf(String filename) {
+        int lastDot = filename.lastIndexOf('.');
+        return lastDot == -1 ? "" : filename.substring(lastDot + 1).toLowerCase();
+    }
+}
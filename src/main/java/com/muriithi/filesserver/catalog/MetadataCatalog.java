@@ -0,0 +1,647 @@
+package com.muriithi.filesserver.catalog;
+
+import com.muriithi.filesserver.config.AppExecutors;
+import com.muriithi.filesserver.renderviaweb.ContentTypeHelper;
+import com.muriithi.filesserver.storage.FileLayout;
+import com.muriithi.filesserver.storage.TieredFileStore;
+import com.muriithi.filesserver.upload.StreamingFileWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Persistent catalog of stored files: name, folder, size, mtime, content hash, MIME type and render
+ * status, queryable without touching the disk.
+ *
+ * <p>Records live in memory with secondary indexes by folder, extension and hash (exact match) and by
+ * size and mtime (ordered). Every change is appended to a {@link CatalogLog} under
+ * {@code <base-path>/.catalog}, which is compacted into a snapshot once it holds
+ * {@code compact-after-entries} changes, so a restart is one sequential read rather than a directory
+ * walk.
+ *
+ * <p>Uploads record themselves as they are published. A background reconciliation walks the layout on
+ * startup and every {@code reconcile-minutes} to pick up files changed outside the server. The walk
+ * only stats; files that are new or whose size or mtime moved are recorded without a hash and hashed
+ * afterwards at no more than {@code hash-mb-per-second}. Files on a network filesystem are left
+ * unhashed unless {@code hash-network-files} is set, so the first run over an NFS or SMB mount does not
+ * pull the whole share across the wire. With a remote storage backend the local disk is only a cache,
+ * so reconciliation is skipped and the catalog reflects uploads through this server.
+ */
+@Component
+public class MetadataCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(MetadataCatalog.class);
+
+    static final Comparator<FileRecord> BY_SIZE = Comparator.comparingLong(FileRecord::size)
+            .thenComparing(FileRecord::folder)
+            .thenComparing(FileRecord::filename);
+    private static final Set<String> NETWORK_FILESYSTEMS = Set.of(
+            "nfs", "nfs4", "cifs", "smb", "smb2", "smbfs", "afs", "9p", "ceph", "glusterfs", "davfs",
+            "fuse.sshfs", "fuse.glusterfs", "fuse.s3fs", "fuse.rclone");
+
+    static final Comparator<FileRecord> BY_MODIFIED = Comparator.comparingLong(FileRecord::modified)
+            .thenComparing(FileRecord::folder)
+            .thenComparing(FileRecord::filename);
+
+    private final FileLayout fileLayout;
+    private final TieredFileStore tieredFileStore;
+    private final StreamingFileWriter streamingFileWriter;
+    private final AppExecutors appExecutors;
+    private final long compactAfterEntries;
+    private final long reconcileMinutes;
+    private final long hashBytesPerSecond;
+    private final boolean hashNetworkFiles;
+    private final CatalogLog catalogLog;
+
+    private volatile boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, FileRecord> records = new HashMap<>();
+    private final Map<String, Set<String>> byFolder = new HashMap<>();
+    private final Map<String, Set<String>> byExtension = new HashMap<>();
+    private final Map<String, Set<String>> byHash = new HashMap<>();
+    private final NavigableSet<FileRecord> bySize = new TreeSet<>(BY_SIZE);
+    private final NavigableSet<FileRecord> byModified = new TreeSet<>(BY_MODIFIED);
+
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+    private final CompletableFuture<Void> reconciled = new CompletableFuture<>();
+
+    public MetadataCatalog(FileLayout fileLayout, TieredFileStore tieredFileStore,
+                           StreamingFileWriter streamingFileWriter, AppExecutors appExecutors,
+                           @Value("${file.catalog.enabled:true}") boolean enabled,
+                           @Value("${file.catalog.compact-after-entries:50000}") long compactAfterEntries,
+                           @Value("${file.catalog.reconcile-minutes:60}") long reconcileMinutes,
+                           @Value("${file.catalog.hash-mb-per-second:50}") long hashMbPerSecond,
+                           @Value("${file.catalog.hash-network-files:false}") boolean hashNetworkFiles,
+                           MeterRegistry registry) {
+        this.fileLayout = fileLayout;
+        this.tieredFileStore = tieredFileStore;
+        this.streamingFileWriter = streamingFileWriter;
+        this.appExecutors = appExecutors;
+        this.enabled = enabled;
+        this.compactAfterEntries = compactAfterEntries;
+        this.reconcileMinutes = reconcileMinutes;
+        this.hashBytesPerSecond = hashMbPerSecond * 1024 * 1024;
+        this.hashNetworkFiles = hashNetworkFiles;
+        this.catalogLog = new CatalogLog(fileLayout.root().resolve(".catalog"));
+
+        Gauge.builder("files.catalog.records", this, MetadataCatalog::size).register(registry);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            reconciled.complete(null);
+            return;
+        }
+        long start = System.nanoTime();
+        Map<String, FileRecord> loaded = new HashMap<>();
+        try {
+            catalogLog.open(loaded);
+        } catch (IOException e) {
+            log.error("Failed to open the metadata catalog; it is disabled until restart", e);
+            enabled = false;
+            reconciled.complete(null);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (FileRecord record : loaded.values()) {
+                index(record);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Loaded {} catalog records in {} ms", loaded.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (tieredFileStore.isTiered()) {
+            reconciled.complete(null);
+        }
+
+        appExecutors.io().execute(this::reconcile);
+        if (reconcileMinutes > 0) {
+            appExecutors.scheduler().scheduleWithFixedDelay(
+                    () -> appExecutors.io().execute(this::reconcile),
+                    reconcileMinutes, reconcileMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Completes once the first reconciliation has walked the disk and dropped records of files that are
+     * gone, before its hashing pass, or straight away when the catalog is disabled or not reconciled.
+     * Until then the records are whatever the last run persisted. A failed walk leaves it pending for
+     * the next one.
+     */
+    public CompletionStage<Void> firstReconciliation() {
+        return reconciled.minimalCompletionStage();
+    }
+
+    /**
+     * Records a file just published by an upload.
+     */
+    public void recordUpload(Path file, long size, String sha256) {
+        if (!enabled) {
+            return;
+        }
+        String folder = fileLayout.folderOf(file);
+        if (folder == null) {
+            return;
+        }
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            put(describe(folder, file.getFileName().toString(), size, modified, sha256));
+        } catch (IOException e) {
+            log.warn("Could not catalog upload {}; the next reconciliation will", file, e);
+        }
+    }
+
+    /**
+     * Records the outcome of rendering the stored file, for every cataloged copy with the same content
+     * and extension. Uses the hash already in the catalog, and only while the file's size and mtime still
+     * match the record; a file not yet hashed picks its status up from a copy once it is.
+     */
+    public void recordRender(Path file, boolean rendered) {
+        if (!enabled || file == null) {
+            return;
+        }
+        String folder = fileLayout.folderOf(file);
+        if (folder == null) {
+            return;
+        }
+        RenderStatus status = rendered ? RenderStatus.RENDERED : RenderStatus.FAILED;
+        appExecutors.io().execute(() -> {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                FileRecord source = records.get(FileRecord.key(folder, file.getFileName().toString()));
+                if (source == null || source.sha256() == null || !matches(source, attributes)) {
+                    return;
+                }
+                for (String key : List.copyOf(byHash.getOrDefault(source.sha256(), Set.of()))) {
+                    FileRecord record = records.get(key);
+                    if (record.extension().equals(source.extension()) && record.renderStatus() != status) {
+                        write(record.withRenderStatus(status));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public FileRecord get(String folder, String filename) {
+        lock.readLock().lock();
+        try {
+            return records.get(FileRecord.key(folder, filename));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A copy of every record.
+     */
+    public List<FileRecord> records() {
+        lock.readLock().lock();
+        try {
+            return List.copyOf(records.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return records.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Starts from the smallest exact-match index the query names. Without one, a query sorted by size
+     * or mtime walks that ordered index within its range and stops at the limit.
+     */
+    public List<FileRecord> query(CatalogQuery query) {
+        lock.readLock().lock();
+        try {
+            Collection<FileRecord> candidates = exactMatches(query);
+            if (candidates == null) {
+                NavigableSet<FileRecord> ordered = switch (query.sort()) {
+                    case SIZE -> sizeRange(query);
+                    case MODIFIED -> modifiedRange(query);
+                    case NAME -> null;
+                };
+                if (ordered != null) {
+                    List<FileRecord> result = new ArrayList<>();
+                    for (FileRecord record : query.descending() ? ordered.descendingSet() : ordered) {
+                        if (result.size() == query.limit()) {
+                            break;
+                        }
+                        if (query.matches(record)) {
+                            result.add(record);
+                        }
+                    }
+                    return result;
+                }
+                candidates = query.hasTimeRange() ? modifiedRange(query)
+                        : query.hasSizeRange() ? sizeRange(query)
+                        : records.values();
+            }
+            return candidates.stream()
+                    .filter(query::matches)
+                    .sorted(query.comparator())
+                    .limit(query.limit())
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Brings the catalog in line with the files on disk.
+     */
+    public void reconcile() {
+        if (!enabled || tieredFileStore.isTiered() || !reconciling.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.nanoTime();
+        long startedAt = System.currentTimeMillis();
+        try {
+            Reconciliation reconciliation = new Reconciliation();
+            if (Files.isDirectory(fileLayout.root())) {
+                Files.walkFileTree(fileLayout.root(), reconciliation);
+            }
+
+            int removed = 0;
+            for (FileRecord record : unseen(reconciliation.seen, startedAt)) {
+                remove(record.key());
+                removed++;
+            }
+            log.info("Catalog reconciled in {} ms: {} added, {} updated, {} removed, {} to hash",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    reconciliation.added, reconciliation.updated, removed, reconciliation.unhashed.size());
+            reconciled.complete(null);
+
+            hash(reconciliation.unhashed);
+        } catch (IOException | RuntimeException e) {
+            log.error("Catalog reconciliation failed", e);
+        } finally {
+            reconciling.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            catalogLog.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Paced to hashBytesPerSecond so a large tree does not saturate the disk serving reads. Each file is
+     * checked against its record before and after hashing, and skipped if it changed; the next
+     * reconciliation picks it up again.
+     */
+    private void hash(List<Path> files) {
+        long start = System.nanoTime();
+        long hashedBytes = 0;
+        int hashed = 0;
+        for (Path file : files) {
+            String folder = fileLayout.folderOf(file);
+            String filename = file.getFileName().toString();
+            try {
+                BasicFileAttributes before = Files.readAttributes(file, BasicFileAttributes.class);
+                FileRecord record = get(folder, filename);
+                if (record == null || record.sha256() != null || !matches(record, before)) {
+                    continue;
+                }
+                String sha256 = streamingFileWriter.sha256(file);
+                BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!matches(record, after)) {
+                    continue;
+                }
+                put(describe(folder, filename, record.size(), record.modified(), sha256));
+                hashedBytes += record.size();
+                hashed++;
+            } catch (NoSuchFileException e) {
+                // Removed since the walk; the next reconciliation drops the record
+            } catch (IOException e) {
+                log.warn("Catalog reconciliation could not hash {}", file, e);
+            }
+            if (hashBytesPerSecond > 0) {
+                long aheadNanos = hashedBytes * 1_000_000_000L / hashBytesPerSecond - (System.nanoTime() - start);
+                if (aheadNanos > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(aheadNanos);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+        if (hashed > 0) {
+            log.info("Catalog hashed {} files ({} MB) in {} ms", hashed, hashedBytes / (1024 * 1024),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private static boolean matches(FileRecord record, BasicFileAttributes attributes) {
+        return record.size() == attributes.size() && record.modified() == attributes.lastModifiedTime().toMillis();
+    }
+
+    private FileRecord describe(String folder, String filename, long size, long modified, String sha256) {
+        return new FileRecord(folder, filename, size, modified, sha256,
+                ContentTypeHelper.getContentType(filename), renderStatusFor(filename, sha256));
+    }
+
+    /*
+     * Renders depend only on content and extension, so a copy of already rendered content inherits
+     * its status.
+     */
+    private RenderStatus renderStatusFor(String filename, String sha256) {
+        String extension = FileRecord.extensionOf(filename);
+        RenderStatus initial = RenderStatus.initial(extension);
+        if (initial == RenderStatus.NOT_RENDERABLE || sha256 == null) {
+            return initial;
+        }
+        lock.readLock().lock();
+        try {
+            for (String key : byHash.getOrDefault(sha256, Set.of())) {
+                FileRecord record = records.get(key);
+                if (record.extension().equals(extension)) {
+                    return record.renderStatus();
+                }
+            }
+            return initial;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(FileRecord record) {
+        lock.writeLock().lock();
+        try {
+            write(record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void write(FileRecord record) {
+        try {
+            catalogLog.put(record);
+        } catch (IOException e) {
+            log.warn("Failed to append {} to the catalog log", record.key(), e);
+        }
+        index(record);
+        maybeCompact();
+    }
+
+    private void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            FileRecord record = records.remove(key);
+            if (record == null) {
+                return;
+            }
+            try {
+                catalogLog.remove(key);
+            } catch (IOException e) {
+                log.warn("Failed to append removal of {} to the catalog log", key, e);
+            }
+            unindex(record);
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(FileRecord record) {
+        FileRecord previous = records.put(record.key(), record);
+        if (previous != null) {
+            unindex(previous);
+        }
+        byFolder.computeIfAbsent(record.folder(), k -> new HashSet<>()).add(record.key());
+        byExtension.computeIfAbsent(record.extension(), k -> new HashSet<>()).add(record.key());
+        if (record.sha256() != null) {
+            byHash.computeIfAbsent(record.sha256(), k -> new HashSet<>()).add(record.key());
+        }
+        bySize.add(record);
+        byModified.add(record);
+    }
+
+    private void unindex(FileRecord record) {
+        removeKey(byFolder, record.folder(), record.key());
+        removeKey(byExtension, record.extension(), record.key());
+        if (record.sha256() != null) {
+            removeKey(byHash, record.sha256(), record.key());
+        }
+        bySize.remove(record);
+        byModified.remove(record);
+    }
+
+    private static void removeKey(Map<String, Set<String>> index, String value, String key) {
+        Set<String> keys = index.get(value);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            index.remove(value);
+        }
+    }
+
+    private Collection<FileRecord> exactMatches(CatalogQuery query) {
+        Set<String> smallest = null;
+        if (query.sha256() != null) {
+            smallest = smaller(smallest, byHash.getOrDefault(query.sha256().toLowerCase(), Set.of()));
+        }
+        if (query.folder() != null) {
+            smallest = smaller(smallest, byFolder.getOrDefault(query.folder(), Set.of()));
+        }
+        if (query.extension() != null) {
+            smallest = smaller(smallest, byExtension.getOrDefault(query.extension(), Set.of()));
+        }
+        return smallest != null ? smallest.stream().map(records::get).toList() : null;
+    }
+
+    private static Set<String> smaller(Set<String> current, Set<String> candidate) {
+        return current == null || candidate.size() < current.size() ? candidate : current;
+    }
+
+    private NavigableSet<FileRecord> sizeRange(CatalogQuery query) {
+        return range(bySize, sizeProbe(query.minSize()),
+                query.maxSize() < Long.MAX_VALUE ? sizeProbe(query.maxSize() + 1) : null);
+    }
+
+    private NavigableSet<FileRecord> modifiedRange(CatalogQuery query) {
+        return range(byModified, modifiedProbe(query.modifiedFrom()),
+                query.modifiedTo() < Long.MAX_VALUE ? modifiedProbe(query.modifiedTo() + 1) : null);
+    }
+
+    private static NavigableSet<FileRecord> range(NavigableSet<FileRecord> index, FileRecord from, FileRecord toExclusive) {
+        return toExclusive != null ? index.subSet(from, true, toExclusive, false) : index.tailSet(from, true);
+    }
+
+    /*
+     * Sorts before every record with the same size or mtime, since the tie-breakers compare names.
+     */
+    private static FileRecord sizeProbe(long size) {
+        return new FileRecord("", "", size, 0, null, "", RenderStatus.NOT_RENDERABLE);
+    }
+
+    private static FileRecord modifiedProbe(long modified) {
+        return new FileRecord("", "", 0, modified, null, "", RenderStatus.NOT_RENDERABLE);
+    }
+
+    private List<FileRecord> unseen(Set<String> seen, long startedAt) {
+        lock.readLock().lock();
+        try {
+            // Files written after the walk started may have been passed over; the next run decides
+            return records.values().stream()
+                    .filter(record -> !seen.contains(record.key()) && record.modified() < startedAt)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void maybeCompact() {
+        if (catalogLog.entries() >= compactAfterEntries && compacting.compareAndSet(false, true)) {
+            appExecutors.io().execute(this::compact);
+        }
+    }
+
+    private void compact() {
+        try {
+            List<FileRecord> copy;
+            lock.writeLock().lock();
+            try {
+                copy = new ArrayList<>(records.values());
+                catalogLog.rotate();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            long start = System.nanoTime();
+            catalogLog.writeSnapshot(copy);
+            log.debug("Catalog snapshot of {} records written in {} ms", copy.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            log.warn("Catalog compaction failed", e);
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    private final class Reconciliation extends SimpleFileVisitor<Path> {
+
+        private final Set<String> seen = new HashSet<>();
+        private final List<Path> unhashed = new ArrayList<>();
+        private final Deque<Boolean> onNetwork = new ArrayDeque<>();
+        private int added;
+        private int updated;
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+            // The catalog itself, dedup blobs and other hidden state
+            if (!dir.equals(fileLayout.root()) && dir.getFileName().toString().startsWith(".")) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+            // Shares are mounted at the base path or a type folder; deeper directories inherit
+            boolean topLevel = dir.equals(fileLayout.root()) || dir.getParent().equals(fileLayout.root());
+            onNetwork.push(topLevel ? isNetworkFilesystem(dir) : onNetwork.peek());
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+            onNetwork.pop();
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+            String folder = fileLayout.folderOf(file);
+            String filename = file.getFileName().toString();
+            if (folder == null || filename.startsWith(".") || !attributes.isRegularFile()) {
+                return FileVisitResult.CONTINUE;
+            }
+            String key = FileRecord.key(folder, filename);
+            seen.add(key);
+
+            FileRecord existing = get(folder, filename);
+            if (existing == null || !matches(existing, attributes)) {
+                put(describe(folder, filename, attributes.size(), attributes.lastModifiedTime().toMillis(), null));
+                if (existing == null) {
+                    added++;
+                } else {
+                    updated++;
+                }
+            } else if (existing.sha256() != null) {
+                return FileVisitResult.CONTINUE;
+            }
+            if (hashNetworkFiles || !onNetwork.peek()) {
+                unhashed.add(file);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        private boolean isNetworkFilesystem(Path dir) {
+            try {
+                return NETWORK_FILESYSTEMS.contains(Files.getFileStore(dir).type().toLowerCase());
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+            if (!(e instanceof NoSuchFileException)) {
+                log.warn("Catalog reconciliation could not read {}", file, e);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.muriithi.filesserver.catalog;
+
+import java.util.Set;
+
+/**
+ * Whether a file has a rendered preview. Persisted by ordinal, so new values go at the end.
+ */
+public enum RenderStatus {
+    NOT_RENDERABLE,
+    PENDING,
+    RENDERED,
+    FAILED;
+
+    private static final Set<String> RENDERABLE = Set.of("doc", "docx", "xls", "xlsx", "ppt", "pptx", "rtf", "csv");
+
+    static RenderStatus initial(String extension) {
+        return RENDERABLE.contains(extension) ? PENDING : NOT_RENDERABLE;
+    }
+}
@@ -0,0 +1,80 @@
+package com.muriithi.filesserver.config;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the application's own background executors.
+ *
+ * <p>Request handling is switched by Spring Boot itself through {@code spring.threads.virtual.enabled}
+ * (Tomcat's protocol handler and {@code applicationTaskExecutor}). The same switch is honoured here so
+ * that blocking work the app hands off (disk I/O, outbound probes, housekeeping) runs on virtual
+ * threads too. The scheduler always keeps a single platform timer thread; scheduled jobs that block
+ * should hand their work to {@link #io()}.
+ *
+ * <p>This is deliberately not exposed as an {@code Executor} bean so Boot's
+ * {@code applicationTaskExecutor} auto-configuration stays in place for MVC async requests.
+ */
+@Component
+public class AppExecutors {
+
+    private static final Logger log = LoggerFactory.getLogger(AppExecutors.class);
+
+    private final boolean virtualThreads;
+    private final ExecutorService io;
+    private final ScheduledExecutorService scheduler;
+
+    public AppExecutors(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                        @Value("${file.executors.io-threads:16}") int ioThreads) {
+        this.virtualThreads = virtualThreads;
+        this.io = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("files-io-", 0).factory())
+                : Executors.newFixedThreadPool(ioThreads, platformFactory("files-io-"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(platformFactory("files-scheduler-"));
+
+        log.info("Application executors started with {} threads", virtualThreads ? "virtual" : "platform");
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public ExecutorService io() {
+        return io;
+    }
+
+    public ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    private static ThreadFactory platformFactory(String prefix) {
+        return Thread.ofPlatform().name(prefix, 0).daemon(true).factory();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shutdown(scheduler);
+        shutdown(io);
+    }
+
+    private static void shutdown(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.muriithi.filesserver.memory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared pool of direct I/O buffers in power-of-two size classes, so long-running transfers neither
+ * allocate per request nor go through the JDK's temporary direct buffers on every channel call.
+ *
+ * <p>Released buffers go back to a lock-free free list per class. The direct memory the pool holds is
+ * capped at {@code file.buffers.max-mb}; past that, acquires fall back to short-lived heap buffers,
+ * which are dropped on release. A borrowed buffer that is never released is not lost to the cap:
+ * once it is garbage collected its bytes come off the allocated total again.
+ *
+ * <p>Releasing a buffer that is already back in the pool is ignored and counted, so a double release
+ * can neither hand one buffer to two borrowers nor take its bytes off the in-use total twice.
+ */
+@Component
+public class BufferPool {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final int bufferSize;
+    private final int minClassSize;
+    private final int[] classSizes;
+    private final ConcurrentLinkedQueue<ByteBuffer>[] free;
+    // Identity of every buffer sitting in a free list; ByteBuffer's own equals compares contents
+    private final Set<Pooled> pooled = ConcurrentHashMap.newKeySet();
+    private final long maxBytes;
+
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong inUseBytes = new AtomicLong();
+    private final Counter poolHits;
+    private final Counter misses;
+    private final Counter overflows;
+    private final Counter doubleReleases;
+
+    @SuppressWarnings("unchecked")
+    public BufferPool(@Value("${file.buffers.size-kb:64}") int bufferSizeKb,
+                      @Value("${file.buffers.min-class-kb:4}") int minClassKb,
+                      @Value("${file.buffers.max-class-kb:1024}") int maxClassKb,
+                      @Value("${file.buffers.max-mb:64}") long maxMb,
+                      MeterRegistry registry) {
+        this.minClassSize = ceilPowerOfTwo(minClassKb * 1024);
+        int maxClassSize = ceilPowerOfTwo(Math.max(maxClassKb * 1024, minClassSize));
+        int classes = Integer.numberOfTrailingZeros(maxClassSize) - Integer.numberOfTrailingZeros(minClassSize) + 1;
+        this.classSizes = new int[classes];
+        this.free = new ConcurrentLinkedQueue[classes];
+        for (int i = 0; i < classes; i++) {
+            classSizes[i] = minClassSize << i;
+            free[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.bufferSize = classSizes[classIndex(bufferSizeKb * 1024)];
+        this.maxBytes = maxMb * 1024 * 1024;
+
+        this.poolHits = registry.counter("files.buffers.acquire", "result", "pool");
+        this.misses = registry.counter("files.buffers.acquire", "result", "miss");
+        this.overflows = registry.counter("files.buffers.acquire", "result", "overflow");
+        this.doubleReleases = registry.counter("files.buffers.double.release");
+        Gauge.builder("files.buffers.allocated", allocatedBytes, AtomicLong::get)
+                .description("Direct memory allocated by the buffer pool")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("files.buffers.in.use", inUseBytes, AtomicLong::get)
+                .description("Pooled buffer bytes currently borrowed")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * A cleared buffer of the default streaming size.
+     */
+    public ByteBuffer acquire() {
+        return acquire(bufferSize);
+    }
+
+    /**
+     * A cleared buffer of at least {@code minCapacity} bytes, capped at the largest size class.
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        int index = classIndex(minCapacity);
+        int size = classSizes[index];
+
+        ByteBuffer buffer = free[index].poll();
+        if (buffer != null) {
+            pooled.remove(new Pooled(buffer));
+            poolHits.increment();
+        } else {
+            if (allocatedBytes.addAndGet(size) > maxBytes) {
+                allocatedBytes.addAndGet(-size);
+                overflows.increment();
+                return ByteBuffer.allocate(size);
+            }
+            misses.increment();
+            buffer = ByteBuffer.allocateDirect(size);
+            // Pooled buffers stay reachable from the free lists, so this only runs for one never released
+            CLEANER.register(buffer, new Reclaim(allocatedBytes, inUseBytes, size));
+        }
+        inUseBytes.addAndGet(size);
+        return buffer.clear();
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        int index = classIndex(buffer.capacity());
+        if (classSizes[index] != buffer.capacity()) {
+            return;
+        }
+        if (!pooled.add(new Pooled(buffer))) {
+            doubleReleases.increment();
+            return;
+        }
+        inUseBytes.addAndGet(-buffer.capacity());
+        free[index].offer(buffer);
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    private int classIndex(int capacity) {
+        if (capacity <= minClassSize) {
+            return 0;
+        }
+        int index = Integer.numberOfTrailingZeros(ceilPowerOfTwo(capacity)) - Integer.numberOfTrailingZeros(minClassSize);
+        return Math.min(index, classSizes.length - 1);
+    }
+
+    private static int ceilPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private record Pooled(ByteBuffer buffer) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Pooled that && that.buffer == buffer;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(buffer);
+        }
+    }
+
+    /**
+     * Must not reference the buffer it is registered for, or the buffer would never become unreachable.
+     */
+    private record Reclaim(AtomicLong allocatedBytes, AtomicLong inUseBytes, int size) implements Runnable {
+        @Override
+        public void run() {
+            allocatedBytes.addAndGet(-size);
+            inUseBytes.addAndGet(-size);
+        }
+    }
+}
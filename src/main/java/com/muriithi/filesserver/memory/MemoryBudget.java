@@ -0,0 +1,110 @@
+package com.muriithi.filesserver.memory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Global budget for file bytes held on the heap by in-flight requests. Handlers that read a whole
+ * file into memory reserve its expected footprint first and release it when the response is done;
+ * when the budget is used up they wait up to {@code wait-timeout-ms} and then fail with
+ * {@link MemoryBudgetExceededException}, which the controllers turn into a 503. A burst therefore
+ * queues or sheds load instead of running the heap out.
+ *
+ * <p>The budget is a fair semaphore over kilobyte permits, so waiters are served in arrival order: a
+ * large reservation at the head of the queue holds back smaller ones behind it instead of being
+ * overtaken by them indefinitely. A single reservation larger than the whole budget is capped at the
+ * budget, so it still runs, just alone.
+ */
+@Component
+public class MemoryBudget {
+
+    private static final Reservation NONE = () -> { };
+
+    @FunctionalInterface
+    public interface Reservation extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final long maxBytes;
+    private final int maxKb;
+    private final long waitNanos;
+    private final int renderMultiplier;
+    private final Semaphore kilobytes;
+
+    private final Counter rejected;
+
+    public MemoryBudget(@Value("${file.memory.in-flight-max-mb:512}") long maxMb,
+                        @Value("${file.memory.wait-timeout-ms:2000}") long waitMillis,
+                        @Value("${file.memory.render-multiplier:3}") int renderMultiplier,
+                        MeterRegistry registry) {
+        this.maxBytes = maxMb * 1024 * 1024;
+        this.maxKb = (int) Math.min(Math.max(maxMb, 0) * 1024, Integer.MAX_VALUE);
+        this.kilobytes = new Semaphore(maxKb, true);
+        this.waitNanos = TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        this.renderMultiplier = renderMultiplier;
+        this.rejected = Counter.builder("files.memory.rejected")
+                .description("Requests refused because the in-flight memory budget stayed exhausted")
+                .register(registry);
+        Gauge.builder("files.memory.reserved", this, MemoryBudget::reservedBytes)
+                .description("File bytes currently reserved by in-flight requests")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("files.memory.budget", this, budget -> budget.maxBytes).baseUnit("bytes").register(registry);
+    }
+
+    /**
+     * Expected heap footprint of handling a file of {@code fileSize} bytes: the content itself, or a
+     * multiple of it when the response is rendered from it.
+     */
+    public long expectedBytes(long fileSize, boolean rendered) {
+        return rendered ? fileSize * renderMultiplier : fileSize;
+    }
+
+    public Reservation reserve(long bytes) {
+        if (maxBytes <= 0 || bytes <= 0) {
+            return NONE;
+        }
+        int kb = (int) Math.min((bytes + 1023) / 1024, maxKb);
+
+        try {
+            if (!kilobytes.tryAcquire(kb, waitNanos, TimeUnit.NANOSECONDS)) {
+                rejected.increment();
+                throw new MemoryBudgetExceededException(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            throw new MemoryBudgetExceededException(bytes);
+        }
+        return new Held(kb);
+    }
+
+    private long reservedBytes() {
+        return (long) (maxKb - kilobytes.availablePermits()) * 1024;
+    }
+
+    private final class Held implements Reservation {
+
+        private final int kb;
+        private boolean closed;
+
+        private Held(int kb) {
+            this.kb = kb;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                kilobytes.release(kb);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.muriithi.filesserver.memory;
+
+public class MemoryBudgetExceededException extends RuntimeException {
+
+    public MemoryBudgetExceededException(long bytes) {
+        super("In-flight memory budget exhausted; could not reserve " + bytes + " bytes");
+    }
+}
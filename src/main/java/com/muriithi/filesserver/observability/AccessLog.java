@@ -0,0 +1,231 @@
+package com.muriithi.filesserver.observability;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured access log. Request threads only claim a slot in a bounded lock-free ring and store the
+ * raw values; a background appender drains the ring, formats one JSON line per entry and hands it to
+ * the {@code files.access} logger. The appender parks while the ring is empty and the next append
+ * wakes it. When the ring is full the entry is dropped and counted rather than making the request wait
+ * on logging.
+ */
+@Component
+public class AccessLog {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLog.class);
+    private static final Logger accessLog = LoggerFactory.getLogger("files.access");
+
+    private static final int MAX_TYPE_LENGTH = 64;
+
+    /**
+     * One request. {@code phaseNanos} is indexed by {@link TracePhase#ordinal()} and is null when the
+     * request was not traced.
+     */
+    public record Entry(String method, String route, String type, String extension, long bytes,
+                        int status, long totalNanos, long[] phaseNanos) {
+    }
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final boolean alwaysLogErrors;
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicBoolean idle = new AtomicBoolean();
+    private final Counter dropped;
+
+    private volatile long head;
+    private volatile boolean running;
+    private Thread appender;
+
+    public AccessLog(@Value("${file.access-log.enabled:true}") boolean enabled,
+                     @Value("${file.access-log.sample-rate:1.0}") double sampleRate,
+                     @Value("${file.access-log.always-log-errors:true}") boolean alwaysLogErrors,
+                     @Value("${file.access-log.buffer-size:8192}") int bufferSize,
+                     MeterRegistry registry) {
+        if (bufferSize < 2) {
+            throw new IllegalArgumentException("file.access-log.buffer-size must be at least 2");
+        }
+        int capacity = Integer.highestOneBit(bufferSize - 1) << 1;
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.alwaysLogErrors = alwaysLogErrors;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.dropped = Counter.builder("files.access.log.dropped")
+                .description("Access log entries dropped because the buffer was full")
+                .register(registry);
+        Gauge.builder("files.access.log.pending", this, AccessLog::pending)
+                .description("Access log entries waiting for the appender")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            // Assigned before running is published, so any append that sees running can wake it
+            appender = Thread.ofPlatform().name("files-access-log").daemon(true).unstarted(this::drainLoop);
+            running = true;
+            appender.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Decides up front whether a request is logged regardless of its outcome, so only sampled requests
+     * pay for a phase trace.
+     */
+    public boolean sample(double random) {
+        return enabled && random < sampleRate;
+    }
+
+    public boolean shouldLog(boolean sampled, int status) {
+        return enabled && (sampled || (alwaysLogErrors && status >= 400));
+    }
+
+    public static String truncate(String value) {
+        return value == null || value.length() <= MAX_TYPE_LENGTH ? value : value.substring(0, MAX_TYPE_LENGTH);
+    }
+
+    /**
+     * Queues an entry for the appender without blocking. Returns false if the entry was dropped.
+     */
+    public boolean append(Entry entry) {
+        if (!running) {
+            return false;
+        }
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head >= slots.length()) {
+                dropped.increment();
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+        // A full store: it must be visible before idle is read, or the appender could park past it
+        slots.set((int) (claimed & mask), entry);
+        if (idle.get() && idle.compareAndSet(true, false)) {
+            LockSupport.unpark(appender);
+        }
+        return true;
+    }
+
+    long pending() {
+        return tail.get() - head;
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drain() > 0) {
+                continue;
+            }
+            idle.set(true);
+            // An append that lands after the drain either is seen here or sees idle and unparks us
+            if (running && !published()) {
+                LockSupport.park(this);
+            }
+            idle.set(false);
+        }
+        drain();
+    }
+
+    private boolean published() {
+        long next = head;
+        return next < tail.get() && slots.get((int) (next & mask)) != null;
+    }
+
+    /*
+     * Single consumer. A claimed slot may not be published yet; stop there and pick it up next round
+     * so entries stay in claim order.
+     */
+    private int drain() {
+        int drained = 0;
+        long next = head;
+        while (next < tail.get()) {
+            int index = (int) (next & mask);
+            Entry entry = slots.get(index);
+            if (entry == null) {
+                break;
+            }
+            slots.lazySet(index, null);
+            head = ++next;
+            drained++;
+            try {
+                accessLog.info(toJson(entry));
+            } catch (RuntimeException e) {
+                log.warn("Failed to write access log entry", e);
+            }
+        }
+        return drained;
+    }
+
+    static String toJson(Entry entry) {
+        StringBuilder json = new StringBuilder(256)
+                .append("{\"method\":\"").append(entry.method())
+                .append("\",\"route\":\"");
+        escape(json, entry.route());
+        json.append("\",\"type\":");
+        if (entry.type() == null) {
+            json.append("null");
+        } else {
+            escape(json.append('"'), entry.type()).append('"');
+        }
+        json.append(",\"extension\":\"").append(entry.extension())
+                .append("\",\"bytes\":").append(entry.bytes())
+                .append(",\"status\":").append(entry.status())
+                .append(",\"totalMs\":").append(RequestTrace.millis(entry.totalNanos()));
+        if (entry.phaseNanos() != null) {
+            json.append(",\"phasesMs\":{");
+            boolean first = true;
+            for (TracePhase phase : TracePhase.values()) {
+                long nanos = entry.phaseNanos()[phase.ordinal()];
+                if (nanos > 0) {
+                    json.append(first ? "" : ",").append('"').append(phase.metricName()).append("\":").append(RequestTrace.millis(nanos));
+                    first = false;
+                }
+            }
+            json.append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    private static StringBuilder escape(StringBuilder json, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (appender != null) {
+            running = false;
+            LockSupport.unpark(appender);
+            appender.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.muriithi.filesserver.observability;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application meters for rendering, serving, uploads and tokens. Endpoint latency comes from Spring's
+ * own {@code http.server.requests}. Every tag here is drawn from a fixed set (file extension buckets,
+ * URI templates, outcomes), never from filenames or client input, so series counts stay bounded.
+ */
+@Component
+@RequiredArgsConstructor
+public class FileMetrics {
+
+    private static final Set<String> FORMATS = Set.of(
+            "pdf", "doc", "docx", "xls", "xlsx", "ppt", "pptx", "rtf", "csv", "txt",
+            "msg", "eml", "jpg", "jpeg", "png", "gif", "mp4");
+
+    private final MeterRegistry registry;
+
+    public static String formatOf(String fileName) {
+        if (fileName == null) {
+            return "other";
+        }
+        int dot = fileName.lastIndexOf('.');
+        String ext = dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return FORMATS.contains(ext) ? ext : "other";
+    }
+
+    public void recordRender(String fileName, long nanos, long outputBytes, String outcome) {
+        String format = formatOf(fileName);
+        Timer.builder("files.render")
+                .description("Time to render a document for the browser")
+                .tags("format", format, "outcome", outcome)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("files.render.output")
+                .baseUnit("bytes")
+                .tags("format", format, "outcome", outcome)
+                .register(registry)
+                .record(outputBytes);
+    }
+
+    public void recordServed(String uri, String format, long bytes) {
+        DistributionSummary.builder("files.served")
+                .description("Response bytes sent for file endpoints")
+                .baseUnit("bytes")
+                .tags("uri", uri, "format", format)
+                .register(registry)
+                .record(bytes);
+    }
+
+    public void recordUpload(String path, long bytes, long nanos) {
+        DistributionSummary.builder("files.upload")
+                .description("Bytes received per upload write")
+                .baseUnit("bytes")
+                .tag("path", path)
+                .register(registry)
+                .record(bytes);
+        Timer.builder("files.upload.duration")
+                .tag("path", path)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void tokenIssued() {
+        registry.counter("files.tokens.issued").increment();
+    }
+
+    public void tokenVerified(boolean valid) {
+        registry.counter("files.tokens.verified", "result", valid ? "valid" : "invalid").increment();
+    }
+
+    public void rateLimited(String route) {
+        registry.counter("files.ratelimit.rejected", "route", route).increment();
+    }
+}
@@ -0,0 +1,27 @@
+package com.muriithi.filesserver.observability;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.muriithi.files.FileRead")
+@Label("File Read")
+@Description("A stored file read fully into memory")
+@Category({"Files Server", "Storage"})
+@StackTrace(false)
+public class FileReadEvent extends Event {
+
+    @Label("Type")
+    public String type;
+
+    @Label("Filename")
+    public String filename;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,90 @@
+package com.muriithi.filesserver.observability;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One document render. Renderers report rows and cells through {@link #countRows(long)} and
+ * {@link #countCells(long)}; the counts are only collected while the event is enabled in the
+ * running recording, so the renderers pay a thread-local read otherwise.
+ */
+@Name("com.muriithi.files.Render")
+@Label("Document Render")
+@Description("Conversion of a stored document to HTML or PDF for the browser")
+@Category({"Files Server", "Rendering"})
+@StackTrace(false)
+public class RenderEvent extends Event {
+
+    private static final ThreadLocal<RenderEvent> ACTIVE = new ThreadLocal<>();
+
+    @Label("Format")
+    public String format;
+
+    @Label("Filename")
+    public String filename;
+
+    @Label("Input Bytes")
+    @DataAmount
+    public long inputBytes;
+
+    @Label("Output Bytes")
+    @DataAmount
+    public long outputBytes;
+
+    @Label("Rows")
+    @Description("Rows, or paragraphs for word documents")
+    public long rows;
+
+    @Label("Cells")
+    @Description("Spreadsheet or table cells")
+    public long cells;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+
+    /**
+     * Starts timing and makes the event the target of {@link #countRows} on this thread.
+     */
+    public void startOnThread() {
+        begin();
+        if (isEnabled()) {
+            ACTIVE.set(this);
+        }
+    }
+
+    /**
+     * Commits the event if it passed the recording's threshold and detaches it from the thread.
+     */
+    public void finish(long outputBytes, boolean succeeded) {
+        ACTIVE.remove();
+        end();
+        if (shouldCommit()) {
+            this.outputBytes = outputBytes;
+            this.succeeded = succeeded;
+            commit();
+        }
+    }
+
+    public static boolean isCounting() {
+        return ACTIVE.get() != null;
+    }
+
+    public static void countRows(long count) {
+        RenderEvent event = ACTIVE.get();
+        if (event != null) {
+            event.rows += count;
+        }
+    }
+
+    public static void countCells(long count) {
+        RenderEvent event = ACTIVE.get();
+        if (event != null) {
+            event.cells += count;
+        }
+    }
+}
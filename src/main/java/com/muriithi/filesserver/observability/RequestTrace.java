@@ -0,0 +1,92 @@
+package com.muriithi.filesserver.observability;
+
+import java.util.Locale;
+
+/**
+ * Per-request phase timer. Phases nest and are exclusive: opening {@code parse} inside {@code render}
+ * pauses {@code render}, so the phase times add up to the traced time rather than double counting.
+ *
+ * <p>When tracing is off, or the request was not selected, no trace is bound to the thread and
+ * {@link #phase(TracePhase)} returns a shared no-op after a single thread-local read.
+ */
+public final class RequestTrace {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+    private static final Phase NOOP = () -> { };
+
+    @FunctionalInterface
+    public interface Phase extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final long startNanos = System.nanoTime();
+    private final long[] phaseNanos = new long[TracePhase.values().length];
+    private final TracePhase[] stack = new TracePhase[8];
+    private int depth;
+    private long openedAt;
+
+    public static Phase phase(TracePhase phase) {
+        RequestTrace trace = CURRENT.get();
+        return trace == null ? NOOP : trace.open(phase);
+    }
+
+    static RequestTrace begin() {
+        RequestTrace trace = new RequestTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    private Phase open(TracePhase phase) {
+        if (depth == stack.length) {
+            return NOOP;
+        }
+        long now = System.nanoTime();
+        if (depth > 0) {
+            phaseNanos[stack[depth - 1].ordinal()] += now - openedAt;
+        }
+        stack[depth++] = phase;
+        openedAt = now;
+        return this::close;
+    }
+
+    private void close() {
+        long now = System.nanoTime();
+        phaseNanos[stack[--depth].ordinal()] += now - openedAt;
+        openedAt = now;
+    }
+
+    synchronized void add(TracePhase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * {@code Server-Timing} value for the phases recorded so far, plus {@code total}.
+     */
+    synchronized String serverTiming() {
+        StringBuilder header = new StringBuilder();
+        for (TracePhase phase : TracePhase.values()) {
+            long nanos = phaseNanos[phase.ordinal()];
+            if (nanos > 0) {
+                header.append(phase.metricName()).append(";dur=").append(millis(nanos)).append(", ");
+            }
+        }
+        return header.append("total;dur=").append(millis(elapsedNanos())).toString();
+    }
+
+    synchronized long[] phaseNanos() {
+        return phaseNanos.clone();
+    }
+
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,69 @@
+package com.muriithi.filesserver.observability;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records bytes served by the file endpoints once the response is complete, including responses
+ * finished later by the async streamer. Uses the declared Content-Length, which every file body sets.
+ */
+@Component
+@RequiredArgsConstructor
+public class ServedBytesFilter extends OncePerRequestFilter {
+
+    private final FileMetrics fileMetrics;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/api/files/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        chain.doFilter(request, response);
+
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    record(request, response);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else {
+            record(request, response);
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response) {
+        String length = response.getHeader("Content-Length");
+        if (length == null || response.getStatus() >= 400) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        fileMetrics.recordServed(pattern != null ? pattern.toString() : "UNKNOWN",
+                FileMetrics.formatOf(request.getParameter("filename")), Long.parseLong(length));
+    }
+}
@@ -0,0 +1,19 @@
+package com.muriithi.filesserver.observability;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.muriithi.files.TokenValidation")
+@Label("Token Validation")
+@Description("Verification of a public-view access token")
+@Category({"Files Server", "Security"})
+@StackTrace(false)
+public class TokenValidationEvent extends Event {
+
+    @Label("Valid")
+    public boolean valid;
+}
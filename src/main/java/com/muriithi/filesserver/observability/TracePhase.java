@@ -0,0 +1,23 @@
+package com.muriithi.filesserver.observability;
+
+/**
+ * Request phases reported in {@code Server-Timing} and sampled traces. Compression is done by Tomcat
+ * while the body is written, so it is accounted under {@link #WRITE}.
+ */
+public enum TracePhase {
+    READ("read"),
+    DETECT("detect"),
+    PARSE("parse"),
+    RENDER("render"),
+    WRITE("write");
+
+    private final String metricName;
+
+    TracePhase(String metricName) {
+        this.metricName = metricName;
+    }
+
+    public String metricName() {
+        return metricName;
+    }
+}
@@ -0,0 +1,180 @@
+package com.muriithi.filesserver.observability;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Times {@code /api/**} requests and feeds the {@link AccessLog}. With {@code file.tracing.server-timing}
+ * the serve/render phases are sent as a {@code Server-Timing} header, added the moment the handler opens
+ * the body (so everything except the write itself is included). Requests picked by
+ * {@code file.access-log.sample-rate} are traced too, and their access log entry carries the phases,
+ * including the write; errors are logged without phases when not sampled.
+ */
+@Component
+@RequiredArgsConstructor
+public class TracingFilter extends OncePerRequestFilter {
+
+    private final AccessLog accessLog;
+
+    @Value("${file.tracing.server-timing:false}")
+    private boolean serverTiming;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return (!serverTiming && !accessLog.isEnabled())
+                || !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean sampled = accessLog.sample(ThreadLocalRandom.current().nextDouble());
+        boolean timing = serverTiming && request.getRequestURI().startsWith(request.getContextPath() + "/api/files/");
+
+        RequestTrace trace = sampled || timing ? RequestTrace.begin() : null;
+        try {
+            chain.doFilter(request, timing ? new TimingResponse(response, trace) : response);
+        } finally {
+            if (trace != null) {
+                RequestTrace.unbind();
+            }
+        }
+        long handlerDone = System.nanoTime();
+
+        if (!accessLog.isEnabled()) {
+            return;
+        }
+        RequestTrace sampledTrace = sampled ? trace : null;
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+
+                // The container follows onTimeout/onError with onComplete; log the first outcome only
+                private final AtomicBoolean recorded = new AtomicBoolean();
+
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    finish(response.getStatus());
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                    finish(failedStatus(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE));
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                    finish(failedStatus(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR));
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                    event.getAsyncContext().addListener(this);
+                }
+
+                private void finish(int status) {
+                    if (!recorded.compareAndSet(false, true)) {
+                        return;
+                    }
+                    // The async streamer writes the body after the handler returns; count that as the write phase
+                    if (sampledTrace != null) {
+                        sampledTrace.add(TracePhase.WRITE, System.nanoTime() - handlerDone);
+                    }
+                    record(request, response, sampled, start, sampledTrace, status);
+                }
+            });
+        } else {
+            record(request, response, sampled, start, sampledTrace, response.getStatus());
+        }
+    }
+
+    private static int failedStatus(HttpServletResponse response, int fallback) {
+        return response.getStatus() >= 400 ? response.getStatus() : fallback;
+    }
+
+    /**
+     * {@code status} is the response status, except for async requests that timed out or failed after
+     * the body was committed: those are logged as 503/500 so a broken transfer does not read as a 200.
+     */
+    private void record(HttpServletRequest request, HttpServletResponse response, boolean sampled,
+                        long start, RequestTrace trace, int status) {
+        if (!accessLog.shouldLog(sampled, status)) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String length = response.getHeader("Content-Length");
+        accessLog.append(new AccessLog.Entry(
+                request.getMethod(),
+                pattern != null ? pattern.toString() : "UNKNOWN",
+                AccessLog.truncate(request.getParameter("type")),
+                FileMetrics.formatOf(request.getParameter("filename")),
+                length != null ? Long.parseLong(length) : -1,
+                status,
+                System.nanoTime() - start,
+                trace != null ? trace.phaseNanos() : null));
+    }
+
+    private static final class TimingResponse extends HttpServletResponseWrapper {
+
+        private final RequestTrace trace;
+        private boolean headerAdded;
+
+        private TimingResponse(HttpServletResponse response, RequestTrace trace) {
+            super(response);
+            this.trace = trace;
+        }
+
+        private void addTimingHeader() {
+            if (!headerAdded && !isCommitted()) {
+                headerAdded = true;
+                setHeader("Server-Timing", trace.serverTiming());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addTimingHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addTimingHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addTimingHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addTimingHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addTimingHeader();
+            super.flushBuffer();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.muriithi.filesserver.observability;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.muriithi.files.UploadIngest")
+@Label("Upload Ingest")
+@Description("An uploaded file streamed to disk, hashed and committed")
+@Category({"Files Server", "Uploads"})
+@StackTrace(false)
+public class UploadIngestEvent extends Event {
+
+    @Label("Type")
+    public String type;
+
+    @Label("Filename")
+    public String filename;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -1,8 +1,12 @@
 package com.muriithi.filesserver.renderviaweb;
 
+import com.muriithi.filesserver.observability.RenderEvent;
+import com.muriithi.filesserver.observability.RequestTrace;
+import com.muriithi.filesserver.observability.TracePhase;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.util.*;
 import java.util.regex.Pattern;
@@ -211,10 +215,27 @@ public class CsvDocumentRenderer {
         return convertCsvToHtml(content, fileName);
     }
 
+    /**
+     * Cell values one row per line, for search indexing.
+     */
+    public String extractText(byte[] content) {
+        StringBuilder text = new StringBuilder();
+        for (String[] row : parseCsv(new String(content, StandardCharsets.UTF_8))) {
+            text.append(String.join(" ", row)).append('\n');
+        }
+        return text.toString();
+    }
+
     private byte[] convertCsvToHtml(byte[] csvContent, String fileName) throws Exception {
-        log.warn(":::::::::::  Converting CSV to HTML...");
-        String csvText = new String(csvContent, "UTF-8");
-        List<String[]> rows = parseCsv(csvText);
+        log.debug(":::::::::::  Converting CSV to HTML...");
+        List<String[]> rows;
+        try (RequestTrace.Phase ignored = RequestTrace.phase(TracePhase.PARSE)) {
+            rows = parseCsv(new String(csvContent, "UTF-8"));
+        }
+        if (RenderEvent.isCounting()) {
+            RenderEvent.countRows(rows.size());
+            RenderEvent.countCells(rows.stream().mapToLong(row -> row.length).sum());
+        }
 
         StringBuilder html = new StringBuilder();
         html.append("<!DOCTYPE html><html><head><meta charset='UTF-8'>")
@@ -439,7 +460,7 @@ public class CsvDocumentRenderer {
 
             if (isEmptyRow(row)) {
 
-                log.warn("===========   No data found in this file");
+                log.debug("===========   No data found in this file");
                 continue;
             }
 
@@ -1,5 +1,8 @@
 package com.muriithi.filesserver.renderviaweb;
 
+import com.muriithi.filesserver.observability.RenderEvent;
+import com.muriithi.filesserver.observability.RequestTrace;
+import com.muriithi.filesserver.observability.TracePhase;
 import org.apache.poi.ss.usermodel.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -231,10 +234,44 @@ public class ExcelDocumentRenderer {
         return convertExcelToHtml(content, fileName);
     }
 
+    /**
+     * Sheet names and every non-blank cell value as plain text, for search indexing.
+     */
+    public String extractText(byte[] content) throws Exception {
+        try (InputStream is = new ByteArrayInputStream(content);
+             Workbook workbook = WorkbookFactory.create(is)) {
+            StringBuilder text = new StringBuilder();
+            for (Sheet sheet : workbook) {
+                text.append(sheet.getSheetName()).append('\n');
+                for (Row row : sheet) {
+                    for (Cell cell : row) {
+                        String value = formatCellValue(cell);
+                        if (!value.isEmpty()) {
+                            text.append(value).append(' ');
+                        }
+                    }
+                    text.append('\n');
+                }
+            }
+            return text.toString();
+        }
+    }
+
     private byte[] convertExcelToHtml(byte[] excelContent, String fileName) throws Exception {
         InputStream is = new ByteArrayInputStream(excelContent);
         try {
-            Workbook workbook = WorkbookFactory.create(is);
+            Workbook workbook;
+            try (RequestTrace.Phase ignored = RequestTrace.phase(TracePhase.PARSE)) {
+                workbook = WorkbookFactory.create(is);
+            }
+            if (RenderEvent.isCounting()) {
+                for (Sheet sheet : workbook) {
+                    RenderEvent.countRows(sheet.getPhysicalNumberOfRows());
+                    for (Row row : sheet) {
+                        RenderEvent.countCells(row.getPhysicalNumberOfCells());
+                    }
+                }
+            }
             try {
                 StringBuilder html = new StringBuilder();
                 html.append("<!DOCTYPE html><html><head><meta charset='UTF-8'>")
@@ -0,0 +1,120 @@
+package com.muriithi.filesserver.renderviaweb;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Byte-budgeted LRU cache of rendered documents keyed by the stored file's path, valid while its size
+ * and mtime are unchanged. Renders embed the file name in more than one place, so an entry is only
+ * ever served for the file it was rendered from; a lookup is one stat rather than a hash of the body.
+ */
+@Component
+public class RenderCache {
+
+    public record Rendered(byte[] content, String contentType) {
+    }
+
+    @FunctionalInterface
+    public interface Renderer {
+        Rendered render() throws Exception;
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long currentBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public RenderCache(@Value("${file.render.cache.max-mb:64}") long maxMb, MeterRegistry registry) {
+        this.maxBytes = maxMb * 1024 * 1024;
+        this.hits = registry.counter("files.render.cache", "result", "hit");
+        this.misses = registry.counter("files.render.cache", "result", "miss");
+        Gauge.builder("files.render.cache.size", this, RenderCache::sizeBytes).baseUnit("bytes").register(registry);
+    }
+
+    private synchronized long sizeBytes() {
+        return currentBytes;
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Renders {@code content}, read from {@code source}, or returns the cached render of that file.
+     * Without a source, or when the file no longer has the size of the content that was read, the
+     * render is neither looked up nor kept.
+     */
+    public Rendered getOrRender(Path source, byte[] content, Renderer renderer) throws Exception {
+        if (!isEnabled() || source == null) {
+            return renderer.render();
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return renderer.render();
+        }
+        if (attributes.size() != content.length) {
+            // Replaced since it was read; a render of the old content must not be kept as the new one's
+            return renderer.render();
+        }
+        long modified = attributes.lastModifiedTime().toMillis();
+
+        Rendered cached = lookup(source, content.length, modified);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        Rendered rendered = renderer.render();
+        store(source, new Entry(rendered, content.length, modified));
+        return rendered;
+    }
+
+    private synchronized Rendered lookup(Path source, long size, long modified) {
+        Entry entry = entries.get(source);
+        return entry != null && entry.size() == size && entry.modified() == modified ? entry.rendered() : null;
+    }
+
+    private void store(Path source, Entry entry) {
+        if (entry.bytes() > maxBytes / 4) {
+            return;
+        }
+
+        synchronized (this) {
+            Entry previous = entries.put(source, entry);
+            if (previous != null) {
+                currentBytes -= previous.bytes();
+            }
+            currentBytes += entry.bytes();
+
+            Iterator<Map.Entry<Path, Entry>> eldest = entries.entrySet().iterator();
+            while (currentBytes > maxBytes && eldest.hasNext()) {
+                currentBytes -= eldest.next().getValue().bytes();
+                eldest.remove();
+            }
+        }
+    }
+
+    private record Entry(Rendered rendered, long size, long modified) {
+
+        long bytes() {
+            return rendered.content().length;
+        }
+    }
+}
@@ -4,8 +4,13 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.apache.coyote.BadRequestException;
 
 import java.io.IOException;
+import java.nio.file.Path;
 
 public interface RenderWebDocumentService {
 
-    void renderThumbNailLocally(byte[] fileContent, String fileName, String fileContentType, HttpServletResponse response) throws BadRequestException, IOException;
+    void renderThumbNailLocally(byte[] fileContent, Path source, String fileName, String fileContentType, HttpServletResponse response) throws BadRequestException, IOException;
+
+    boolean isRenderable(String fileName);
+
+    void writeRegularFileHeaders(String fileName, String fileContentType, long contentLength, HttpServletResponse response) throws IOException;
 }
@@ -2,6 +2,11 @@ package com.muriithi.filesserver.renderviaweb;
 
 import com.auxilii.msgparser.Message;
 import com.auxilii.msgparser.MsgParser;
+import com.muriithi.filesserver.catalog.MetadataCatalog;
+import com.muriithi.filesserver.observability.FileMetrics;
+import com.muriithi.filesserver.observability.RenderEvent;
+import com.muriithi.filesserver.observability.RequestTrace;
+import com.muriithi.filesserver.observability.TracePhase;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
@@ -19,6 +24,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URLEncoder;
+import java.nio.file.Path;
 import java.util.Properties;
 
 
@@ -29,20 +35,32 @@ public class RenderWebDocumentServiceImpl implements RenderWebDocumentService {
     @Autowired
     private CsvDocumentRenderer csvDocumentRenderer;
 
+    @Autowired
+    private RenderCache renderCache;
+
+    @Autowired
+    private FileMetrics fileMetrics;
+
+    @Autowired
+    private MetadataCatalog metadataCatalog;
+
 
     @Override
-    public void renderThumbNailLocally(byte[] fileContent, String fileName, String fileContentType, HttpServletResponse response) throws BadRequestException, IOException {
+    public void renderThumbNailLocally(byte[] fileContent, Path source, String fileName, String fileContentType, HttpServletResponse response) throws BadRequestException, IOException {
 
         /***local testing
          UtilityMethodsService.FileTestData fileTestData = utilityMethodsService.getLocalTestData();
-         renderThumbnail(response, fileTestData.fileName, fileTestData.fileContent, fileTestData.fileContentType);
+         renderThumbnail(response, null, fileTestData.fileName, fileTestData.fileContent, fileTestData.fileContentType);
          */
-        log.info(":::::::::::  rendering thumbnail from sybrin case fileName  ==>  {} \n," +
-                "###### contentType ===> {}, fileSize ===> {}, response {}", fileName, fileContentType, getFileSize(fileContent), response.toString());
-        renderThumbnail(response, fileName, fileContent, fileContentType);
+        if (fileContent == null) {
+            log.error("====== Invalid document file content, null content parsed");
+            throw new IOException("File not found or empty: ");
+        }
+        log.debug("rendering thumbnail fileName: {}, contentType: {}, fileSize: {}", fileName, fileContentType, fileContent.length);
+        renderThumbnail(response, source, fileName, fileContent, fileContentType);
     }
 
-    private void renderThumbnail(HttpServletResponse response, String fileName,
+    private void renderThumbnail(HttpServletResponse response, Path source, String fileName,
                                  byte[] fileContent, String fileContentType) throws IOException {
 
         if (fileContent == null || fileContent.length == 0) {
@@ -50,67 +68,74 @@ public class RenderWebDocumentServiceImpl implements RenderWebDocumentService {
             return;
         }
 
+        boolean office;
+        boolean csv;
+        boolean message;
+        try (RequestTrace.Phase ignored = RequestTrace.phase(TracePhase.DETECT)) {
+            String lower = fileName.toLowerCase();
+            office = isOfficeFile(fileName);
+            csv = lower.endsWith(".csv");
+            message = lower.endsWith(".msg") || lower.endsWith(".eml");
+        }
+
         try {
-            if (isOfficeFile(fileName)) {
+            if (office) {
 
-                log.info("===== rendering an office file ({}) ===", fileName);
+                log.debug("===== rendering an office file ({}) ===", fileName);
 
                 try {
 
-                    OfficeDocumentRenderer renderer = new OfficeDocumentRenderer();
-                    byte[] renderedContent;
-                    String contentType;
+                    RenderCache.Rendered rendered;
                     try {
 
-                        renderedContent = renderer.renderDocument(fileContent, fileName, "html");
-                        contentType = "text/html; charset=UTF-8";
-                    } catch (Exception htmlException) {
-
-                        try {
+                        rendered = renderCache.getOrRender(source, fileContent, () -> timed(source, fileName, fileContent, () -> renderOfficeDocument(fileContent, fileName)));
+                    } catch (Exception renderException) {
 
-                            renderedContent = renderer.renderDocument(fileContent, fileName, "pdf");
-                            contentType = "application/pdf";
-                        } catch (Exception pdfException) {
-                            renderedContent = fileContent;
-                            contentType = ContentTypeHelper.getContentType(fileName);
-                        }
+                        rendered = new RenderCache.Rendered(fileContent, ContentTypeHelper.getContentType(fileName));
                     }
-                    response.setContentType(contentType);
-                    response.setContentLength(renderedContent.length);
+                    response.setContentType(rendered.contentType());
+                    response.setContentLength(rendered.content().length);
 
-                    try (OutputStream out = response.getOutputStream()) {
+                    try (OutputStream out = response.getOutputStream();
+                         RequestTrace.Phase ignored = RequestTrace.phase(TracePhase.WRITE)) {
 
-                        out.write(renderedContent);
+                        out.write(rendered.content());
                     }
                 } catch (Exception e) {
 
                     e.printStackTrace();
                     response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error rendering document: " + e.getMessage());
                 }
+                return;
             }
 
-            if (fileName.toLowerCase().endsWith(".csv")) {
+            if (csv) {
 
-                log.info("===== rendering a csv file ({}) ===", fileName);
+                log.debug("===== rendering a csv file ({}) ===", fileName);
 
                 try {
 
-                    byte[] htmlContent = csvDocumentRenderer.renderCsvDocument(fileContent, fileName);
+                    byte[] htmlContent = renderCache.getOrRender(source, fileContent, () -> timed(source, fileName, fileContent, () -> new RenderCache.Rendered(
+                            csvDocumentRenderer.renderCsvDocument(fileContent, fileName), "text/html"))).content();
 
                     response.setContentType("text/html");
                     response.setCharacterEncoding("UTF-8");
                     response.setContentLength(htmlContent.length);
-                    response.getOutputStream().write(htmlContent);
-                    response.getOutputStream().flush();
+                    try (RequestTrace.Phase ignored = RequestTrace.phase(TracePhase.WRITE)) {
+                        response.getOutputStream().write(htmlContent);
+                        response.getOutputStream().flush();
+                    }
 
                 } catch (Exception e) {
                     log.error("Error rendering CSV document {}. Falling back to download.", fileName, e);
                     serveFallbackDownload(fileContent, fileName, fileContentType, response);
                 }
+                return;
             }
 
-            if (fileName.toLowerCase().endsWith(".msg") || fileName.toLowerCase().endsWith(".eml")) {
+            if (message) {
                 serveMsgFile(fileContent, fileName, response);
+                return;
             }
 
             serveRegularFile(fileContent, fileName, fileContentType, response);
@@ -122,6 +147,39 @@ public class RenderWebDocumentServiceImpl implements RenderWebDocumentService {
     }
 
 
+    private RenderCache.Rendered timed(Path source, String fileName, byte[] fileContent, RenderCache.Renderer renderer) throws Exception {
+        RenderEvent event = new RenderEvent();
+        event.format = FileMetrics.formatOf(fileName);
+        event.filename = fileName;
+        event.inputBytes = fileContent.length;
+        event.startOnThread();
+
+        long start = System.nanoTime();
+        try (RequestTrace.Phase ignored = RequestTrace.phase(TracePhase.RENDER)) {
+            RenderCache.Rendered rendered = renderer.render();
+            fileMetrics.recordRender(fileName, System.nanoTime() - start, rendered.content().length, "success");
+            event.finish(rendered.content().length, true);
+            metadataCatalog.recordRender(source, true);
+            return rendered;
+        } catch (Exception e) {
+            fileMetrics.recordRender(fileName, System.nanoTime() - start, 0, "error");
+            event.finish(0, false);
+            metadataCatalog.recordRender(source, false);
+            throw e;
+        }
+    }
+
+    private RenderCache.Rendered renderOfficeDocument(byte[] fileContent, String fileName) throws Exception {
+        OfficeDocumentRenderer renderer = new OfficeDocumentRenderer();
+        try {
+
+            return new RenderCache.Rendered(renderer.renderDocument(fileContent, fileName, "html"), "text/html; charset=UTF-8");
+        } catch (Exception htmlException) {
+
+            return new RenderCache.Rendered(renderer.renderDocument(fileContent, fileName, "pdf"), "application/pdf");
+        }
+    }
+
     private void serveFallbackDownload(byte[] fileContent, String fileName, String fileContentType, HttpServletResponse response)
             throws IOException {
 
@@ -140,13 +198,13 @@ public class RenderWebDocumentServiceImpl implements RenderWebDocumentService {
             out.write(fileContent);
         }
 
-        log.info("Office file served as fallback download: {}", fileName);
+        log.debug("Office file served as fallback download: {}", fileName);
     }
 
 
     private void serveMsgFile(byte[] fileContent, String fileName, HttpServletResponse response) throws IOException {
 
-        log.info("===== rendering a message file ({}) ===", fileName);
+        log.debug("===== rendering a message file ({}) ===", fileName);
 
         if (fileContent == null || fileContent.length == 0) {
             response.sendError(HttpStatus.NOT_FOUND.value(), "Empty MSG file");
@@ -197,7 +255,7 @@ public class RenderWebDocumentServiceImpl implements RenderWebDocumentService {
 
     private void serveRegularFile(byte[] fileContent, String fileName, String fileContentType, HttpServletResponse response) throws IOException {
 
-        log.info("===== rendering regular file ({}) ===", fileName);
+        log.debug("===== rendering regular file ({}) ===", fileName);
 
         try {
 
@@ -206,21 +264,10 @@ public class RenderWebDocumentServiceImpl implements RenderWebDocumentService {
                 return;
             }
 
-            if (fileName.toLowerCase().endsWith(".jpeg") || fileName.toLowerCase().endsWith(".jpg") || fileName.toLowerCase().endsWith(".png")) {
-                //currently, sybrin is converting images to pdf
-                fileContentType = ContentTypeHelper.getContentType("fileName.pdf");
-            }
-
-            // Set universal headers
-            response.setContentType(fileContentType);
-            response.setContentLength(fileContent.length);
-            response.setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
-            response.setHeader("Pragma", "no-cache");
-            response.setHeader("Expires", "0");
-            response.setHeader("Content-Disposition",
-                    "inline; fileName=\"" + URLEncoder.encode(fileName, "UTF-8").replace("+", "%20") + "\"");
+            writeRegularFileHeaders(fileName, fileContentType, fileContent.length, response);
 
-            try (OutputStream out = response.getOutputStream()) {
+            try (OutputStream out = response.getOutputStream();
+                 RequestTrace.Phase ignored = RequestTrace.phase(TracePhase.WRITE)) {
                 out.write(fileContent);
             }
         } catch (Exception e) {
@@ -228,6 +275,33 @@ public class RenderWebDocumentServiceImpl implements RenderWebDocumentService {
         }
     }
 
+    @Override
+    public boolean isRenderable(String fileName) {
+        if (fileName == null) {
+            return false;
+        }
+        String lower = fileName.toLowerCase();
+        return isOfficeFile(fileName) || lower.endsWith(".csv") || lower.endsWith(".msg") || lower.endsWith(".eml");
+    }
+
+    @Override
+    public void writeRegularFileHeaders(String fileName, String fileContentType, long contentLength,
+                                        HttpServletResponse response) throws IOException {
+        if (fileName.toLowerCase().endsWith(".jpeg") || fileName.toLowerCase().endsWith(".jpg") || fileName.toLowerCase().endsWith(".png")) {
+            //currently, sybrin is converting images to pdf
+            fileContentType = ContentTypeHelper.getContentType("fileName.pdf");
+        }
+
+        // Set universal headers
+        response.setContentType(fileContentType);
+        response.setContentLengthLong(contentLength);
+        response.setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
+        response.setHeader("Pragma", "no-cache");
+        response.setHeader("Expires", "0");
+        response.setHeader("Content-Disposition",
+                "inline; fileName=\"" + URLEncoder.encode(fileName, "UTF-8").replace("+", "%20") + "\"");
+    }
+
     private boolean isOfficeFile(String fileName) {
 
         if (fileName == null || !fileName.contains(".")) {
@@ -241,12 +315,4 @@ public class RenderWebDocumentServiceImpl implements RenderWebDocumentService {
                 ext.equals(".rtf");
     }
 
-    private long getFileSize(byte[] fileContent) throws IOException {
-        if (fileContent == null) {
-            log.error("====== Invalid document file content, null content parsed");
-            throw new IOException("File not found or empty: ");
-        }
-        return fileContent.length;
-    }
-
 }
@@ -1,7 +1,12 @@
 package com.muriithi.filesserver.renderviaweb;
 
+import com.muriithi.filesserver.observability.RenderEvent;
+import com.muriithi.filesserver.observability.RequestTrace;
+import com.muriithi.filesserver.observability.TracePhase;
 import org.apache.poi.hwpf.HWPFDocument;
 import org.apache.poi.hwpf.converter.WordToHtmlConverter;
+import org.apache.poi.hwpf.extractor.WordExtractor;
+import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
 import org.apache.poi.xwpf.usermodel.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -138,13 +143,38 @@ public class WordDocumentRenderer {
         return ".docx".equals(extension) ? convertDocxToHtml(content, fileName) : convertDocToHtml(content, fileName);
     }
 
+    /**
+     * The document's text without formatting, for search indexing.
+     */
+    public String extractText(byte[] content, String extension) throws Exception {
+        if (".docx".equals(extension)) {
+            try (XWPFWordExtractor extractor = new XWPFWordExtractor(new XWPFDocument(new ByteArrayInputStream(content)))) {
+                return extractor.getText();
+            }
+        }
+        try (WordExtractor extractor = new WordExtractor(new HWPFDocument(new ByteArrayInputStream(content)))) {
+            return extractor.getText();
+        }
+    }
+
     private byte[] convertDocxToHtml(byte[] docxContent, String fileName) throws Exception {
 
         InputStream is = new ByteArrayInputStream(docxContent);
 
         try {
 
-            XWPFDocument document = new XWPFDocument(is);
+            XWPFDocument document;
+            try (RequestTrace.Phase ignored = RequestTrace.phase(TracePhase.PARSE)) {
+                document = new XWPFDocument(is);
+            }
+            if (RenderEvent.isCounting()) {
+                RenderEvent.countRows(document.getParagraphs().size());
+                for (XWPFTable table : document.getTables()) {
+                    for (XWPFTableRow row : table.getRows()) {
+                        RenderEvent.countCells(row.getTableCells().size());
+                    }
+                }
+            }
 
             try {
 
@@ -260,7 +290,13 @@ public class WordDocumentRenderer {
     private byte[] convertDocToHtml(byte[] docContent, String fileName) throws Exception {
         InputStream is = new ByteArrayInputStream(docContent);
         try {
-            HWPFDocument doc = new HWPFDocument(is);
+            HWPFDocument doc;
+            try (RequestTrace.Phase ignored = RequestTrace.phase(TracePhase.PARSE)) {
+                doc = new HWPFDocument(is);
+            }
+            if (RenderEvent.isCounting()) {
+                RenderEvent.countRows(doc.getRange().numParagraphs());
+            }
             try {
                 Document htmlDocument = DocumentBuilderFactory.newInstance()
                         .newDocumentBuilder()
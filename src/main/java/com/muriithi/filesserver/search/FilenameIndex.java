@@ -0,0 +1,351 @@
+package com.muriithi.filesserver.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Names of the files in one folder, indexed for the file picker's type-ahead.
+ *
+ * <p>Prefixes are answered from two sorted arrays that together act as a flattened trie: every name
+ * ordered by its lowercase form, and every word start inside a name ({@code Q3_report.pdf} also sorts
+ * under {@code report.pdf} and {@code pdf}) packed as id and offset in a {@code long}. A lookup is a
+ * binary search to the first entry at or after the prefix and a scan that stops after {@code limit}
+ * entries, so it costs the same however many names share the prefix. Substrings of three or more
+ * characters go through trigram posting lists: the rarest trigram's list is walked newest first and
+ * each candidate is checked against the others and then the name itself.
+ *
+ * <p>Removed names are only marked dead, keeping their place in the sorted arrays, and skipped until
+ * they outnumber the live ones, when the whole index is rebuilt. Thread-safe: lookups share a read
+ * lock, changes take the write lock.
+ */
+final class FilenameIndex {
+
+    enum MatchKind { EXACT, PREFIX, WORD, SUBSTRING }
+
+    record Match(String filename, MatchKind kind) {
+    }
+
+    private static final int GRAM = 3;
+    private static final int COMPACT_MIN_REMOVED = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<String> names = new ArrayList<>();
+    private final List<String> folded = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Map<String, IntList> grams = new HashMap<>();
+    private int[] byName = new int[16];
+    private int byNameCount;
+    private long[] wordStarts = new long[16];
+    private int wordStartCount;
+    private int removed;
+
+    static FilenameIndex of(Collection<String> filenames) {
+        FilenameIndex index = new FilenameIndex();
+        index.build(filenames);
+        return index;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void add(String filename) {
+        lock.writeLock().lock();
+        try {
+            if (ids.containsKey(filename)) {
+                return;
+            }
+            int id = append(filename);
+            int position = searchName(folded.get(id));
+            byName = insert(byName, byNameCount++, position, id);
+            for (int offset : wordOffsets(filename, folded.get(id))) {
+                long entry = entry(id, offset);
+                int at = searchWord(folded.get(id), offset);
+                wordStarts = insert(wordStarts, wordStartCount++, at, entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String filename) {
+        lock.writeLock().lock();
+        try {
+            Integer id = ids.remove(filename);
+            if (id == null) {
+                return;
+            }
+            names.set(id, null);
+            removed++;
+            if (removed >= COMPACT_MIN_REMOVED && removed > ids.size()) {
+                build(names.stream().filter(Objects::nonNull).toList());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} names matching the query: an exact match, then names starting with it, then
+     * names with a word starting with it, then (for three characters or more) names containing it.
+     */
+    List<Match> find(String query, int limit) {
+        String key = query.toLowerCase(Locale.ROOT);
+        List<Match> matches = new ArrayList<>(limit);
+        if (key.isEmpty() || limit <= 0) {
+            return matches;
+        }
+        Set<Integer> seen = new HashSet<>();
+
+        lock.readLock().lock();
+        try {
+            for (int i = searchName(key); i < byNameCount && matches.size() < limit; i++) {
+                int id = byName[i];
+                String name = folded.get(id);
+                if (!name.startsWith(key)) {
+                    break;
+                }
+                if (names.get(id) == null) {
+                    continue;
+                }
+                seen.add(id);
+                matches.add(new Match(names.get(id), name.length() == key.length() ? MatchKind.EXACT : MatchKind.PREFIX));
+            }
+
+            for (int i = searchWord(key, 0); i < wordStartCount && matches.size() < limit; i++) {
+                int id = id(wordStarts[i]);
+                if (!folded.get(id).regionMatches(offset(wordStarts[i]), key, 0, key.length())) {
+                    break;
+                }
+                if (names.get(id) != null && seen.add(id)) {
+                    matches.add(new Match(names.get(id), MatchKind.WORD));
+                }
+            }
+
+            if (key.length() >= GRAM && matches.size() < limit) {
+                findSubstrings(key, limit, seen, matches);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matches;
+    }
+
+    private void findSubstrings(String key, int limit, Set<Integer> seen, List<Match> matches) {
+        Set<String> queryGrams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            queryGrams.add(key.substring(i, i + GRAM));
+        }
+        IntList[] lists = new IntList[queryGrams.size()];
+        int n = 0;
+        for (String gram : queryGrams) {
+            IntList list = grams.get(gram);
+            if (list == null) {
+                return;
+            }
+            lists[n++] = list;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        candidates:
+        for (int i = lists[0].size - 1; i >= 0 && matches.size() < limit; i--) {
+            int id = lists[0].values[i];
+            for (int other = 1; other < lists.length; other++) {
+                if (!lists[other].contains(id)) {
+                    continue candidates;
+                }
+            }
+            if (names.get(id) != null && folded.get(id).contains(key) && seen.add(id)) {
+                matches.add(new Match(names.get(id), MatchKind.SUBSTRING));
+            }
+        }
+    }
+
+    private void build(Collection<String> filenames) {
+        names.clear();
+        folded.clear();
+        ids.clear();
+        grams.clear();
+        removed = 0;
+
+        List<Long> starts = new ArrayList<>();
+        for (String filename : filenames) {
+            if (ids.containsKey(filename)) {
+                continue;
+            }
+            int id = append(filename);
+            for (int offset : wordOffsets(filename, folded.get(id))) {
+                starts.add(entry(id, offset));
+            }
+        }
+
+        Integer[] sortedNames = new Integer[names.size()];
+        for (int id = 0; id < sortedNames.length; id++) {
+            sortedNames[id] = id;
+        }
+        Arrays.sort(sortedNames, (a, b) -> folded.get(a).compareTo(folded.get(b)));
+        byName = new int[Math.max(16, sortedNames.length)];
+        byNameCount = sortedNames.length;
+        for (int i = 0; i < sortedNames.length; i++) {
+            byName[i] = sortedNames[i];
+        }
+
+        starts.sort((a, b) -> compareSuffix(folded.get(id(a)), offset(a), folded.get(id(b)), offset(b)));
+        wordStarts = new long[Math.max(16, starts.size())];
+        wordStartCount = starts.size();
+        for (int i = 0; i < starts.size(); i++) {
+            wordStarts[i] = starts.get(i);
+        }
+    }
+
+    /**
+     * Assigns the next id and indexes the name's trigrams; ids only grow, so posting lists stay sorted.
+     */
+    private int append(String filename) {
+        int id = names.size();
+        String lower = filename.toLowerCase(Locale.ROOT);
+        names.add(filename);
+        folded.add(lower);
+        ids.put(filename, id);
+        for (int i = 0; i + GRAM <= lower.length(); i++) {
+            IntList list = grams.computeIfAbsent(lower.substring(i, i + GRAM), gram -> new IntList());
+            if (list.size == 0 || list.values[list.size - 1] != id) {
+                list.add(id);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * First index in {@link #byName} whose name sorts at or after {@code key}.
+     */
+    private int searchName(String key) {
+        int low = 0;
+        int high = byNameCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (folded.get(byName[middle]).compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First index in {@link #wordStarts} whose suffix sorts at or after {@code key} from {@code keyOffset}.
+     */
+    private int searchWord(String key, int keyOffset) {
+        int low = 0;
+        int high = wordStartCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long entry = wordStarts[middle];
+            if (compareSuffix(folded.get(id(entry)), offset(entry), key, keyOffset) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int compareSuffix(String a, int aOffset, String b, int bOffset) {
+        int aLength = a.length() - aOffset;
+        int bLength = b.length() - bOffset;
+        for (int i = 0, n = Math.min(aLength, bLength); i < n; i++) {
+            char x = a.charAt(aOffset + i);
+            char y = b.charAt(bOffset + i);
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    /**
+     * Offsets after the first character where a word starts: after a separator, at a lower-to-upper
+     * case change, and where letters and digits meet.
+     */
+    private static List<Integer> wordOffsets(String name, String lower) {
+        List<Integer> offsets = new ArrayList<>();
+        boolean sameLength = name.length() == lower.length();
+        for (int i = 1; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            char before = lower.charAt(i - 1);
+            if (!Character.isLetterOrDigit(c)) {
+                continue;
+            }
+            if (!Character.isLetterOrDigit(before)
+                    || Character.isDigit(c) != Character.isDigit(before)
+                    || (sameLength && Character.isUpperCase(name.charAt(i)) && Character.isLowerCase(name.charAt(i - 1)))) {
+                offsets.add(i);
+            }
+        }
+        return offsets;
+    }
+
+    private static long entry(int id, int offset) {
+        return (long) id << 32 | offset;
+    }
+
+    private static int id(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    private static int offset(long entry) {
+        return (int) entry;
+    }
+
+    private static int[] insert(int[] array, int count, int at, int value) {
+        if (count == array.length) {
+            array = Arrays.copyOf(array, count * 2);
+        }
+        System.arraycopy(array, at, array, at + 1, count - at);
+        array[at] = value;
+        return array;
+    }
+
+    private static long[] insert(long[] array, int count, int at, long value) {
+        if (count == array.length) {
+            array = Arrays.copyOf(array, count * 2);
+        }
+        System.arraycopy(array, at, array, at + 1, count - at);
+        array[at] = value;
+        return array;
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+    }
+}
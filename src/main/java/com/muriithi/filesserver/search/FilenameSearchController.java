@@ -0,0 +1,51 @@
+package com.muriithi.filesserver.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Filename type-ahead for the file picker: {@code GET /api/files/find?q=report&type=pdfs&limit=20}.
+ * Exact and prefix matches come first, then names with a word starting with the query, then names
+ * containing it.
+ */
+@RestController
+@RequestMapping("/api/files/find")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", methods = {RequestMethod.GET, RequestMethod.OPTIONS})
+public class FilenameSearchController {
+
+    private static final int MAX_LIMIT = 100;
+    private static final int MAX_QUERY_LENGTH = 255;
+
+    private final FilenameSearchService filenameSearchService;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> find(
+            @RequestParam String q,
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "20") int limit) {
+
+        if (!filenameSearchService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Filename search is not enabled"));
+        }
+        if (q.isBlank() || q.length() > MAX_QUERY_LENGTH) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Query must be 1 to " + MAX_QUERY_LENGTH + " characters"));
+        }
+
+        try {
+            return ResponseEntity.ok(filenameSearchService.find(q, type, Math.clamp(limit, 1, MAX_LIMIT)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.muriithi.filesserver.search;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+public interface FilenameSearchService {
+
+    boolean isEnabled();
+
+    /**
+     * Top matches for a filename query, in one type's folder or across all of them.
+     */
+    Map<String, Object> find(String query, String type, int limit);
+
+    /**
+     * Adds a newly published file to its folder's index.
+     */
+    void add(Path file);
+}
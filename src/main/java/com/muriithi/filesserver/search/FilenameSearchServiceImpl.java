@@ -0,0 +1,284 @@
+package com.muriithi.filesserver.search;
+
+import com.muriithi.filesserver.config.AppExecutors;
+import com.muriithi.filesserver.storage.FileLayout;
+import com.muriithi.filesserver.storage.TieredFileStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side filename lookup for the file picker, so it no longer downloads every listing from
+ * {@code /types} to filter on the client.
+ *
+ * <p>Each type folder gets a {@link FilenameIndex} built from its listing on startup and rebuilt every
+ * {@code refresh-minutes}. Uploads add their file as soon as it is published. With the flat local
+ * layout and {@code watch} on, the folders are also watched so files copied in or deleted by hand show
+ * up straight away; sharded and remote storage rely on the refresh for changes made outside the server.
+ *
+ * <p>A rebuild lists the folder without blocking uploads or the watcher. Changes made to a folder while
+ * it is being rebuilt are applied to the live index and also journaled, then replayed onto the new
+ * index before it is swapped in, so none are lost to a listing taken before they happened.
+ */
+@Service
+public class FilenameSearchServiceImpl implements FilenameSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(FilenameSearchServiceImpl.class);
+
+    private static final Comparator<FilenameIndex.Match> RANKING = Comparator
+            .comparing(FilenameIndex.Match::kind)
+            .thenComparing(FilenameIndex.Match::filename, String.CASE_INSENSITIVE_ORDER);
+
+    private final Map<String, String> typeToFolder = Map.of(
+            "documents", "documents",
+            "images", "images",
+            "videos", "videos",
+            "office", "office",
+            "pdfs", "pdfs",
+            "text", "text"
+    );
+
+    private final FileLayout fileLayout;
+    private final TieredFileStore tieredFileStore;
+    private final AppExecutors appExecutors;
+    private final boolean enabled;
+    private final long refreshMinutes;
+    private final boolean watch;
+    private final Timer findTimer;
+
+    private final Map<String, FilenameIndex> indexes = new ConcurrentHashMap<>();
+    // Guarded by itself, along with every change to an index in indexes
+    private final Map<String, List<Change>> rebuilding = new HashMap<>();
+    private WatchService watchService;
+
+    public FilenameSearchServiceImpl(FileLayout fileLayout, TieredFileStore tieredFileStore, AppExecutors appExecutors,
+                                     @Value("${file.find.enabled:true}") boolean enabled,
+                                     @Value("${file.find.refresh-minutes:10}") long refreshMinutes,
+                                     @Value("${file.find.watch:true}") boolean watch,
+                                     MeterRegistry registry) {
+        this.fileLayout = fileLayout;
+        this.tieredFileStore = tieredFileStore;
+        this.appExecutors = appExecutors;
+        this.enabled = enabled;
+        this.refreshMinutes = refreshMinutes;
+        this.watch = watch;
+
+        this.findTimer = registry.timer("files.find.query");
+        Gauge.builder("files.find.names", indexes,
+                        map -> map.values().stream().mapToInt(FilenameIndex::size).sum())
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        appExecutors.io().execute(() -> {
+            refresh();
+            startWatching();
+        });
+        if (refreshMinutes > 0) {
+            appExecutors.scheduler().scheduleWithFixedDelay(
+                    () -> appExecutors.io().execute(this::refresh),
+                    refreshMinutes, refreshMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Map<String, Object> find(String query, String type, int limit) {
+        if (type != null && !typeToFolder.containsKey(type)) {
+            throw new IllegalArgumentException("Invalid file type: " + type);
+        }
+        long start = System.nanoTime();
+        String trimmed = query.trim();
+        List<String> folders = type != null ? List.of(typeToFolder.get(type)) : List.copyOf(typeToFolder.values());
+
+        List<Map.Entry<String, FilenameIndex.Match>> matches = new ArrayList<>();
+        for (String folder : folders) {
+            FilenameIndex index = indexes.get(folder);
+            if (index != null) {
+                for (FilenameIndex.Match match : index.find(trimmed, limit)) {
+                    matches.add(Map.entry(folder, match));
+                }
+            }
+        }
+        if (folders.size() > 1) {
+            matches.sort(Map.Entry.comparingByValue(RANKING));
+        }
+        long tookNanos = System.nanoTime() - start;
+        findTimer.record(tookNanos, TimeUnit.NANOSECONDS);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (Map.Entry<String, FilenameIndex.Match> match : matches.subList(0, Math.min(limit, matches.size()))) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("type", match.getKey());
+            entry.put("filename", match.getValue().filename());
+            entry.put("match", match.getValue().kind().name().toLowerCase());
+            results.add(entry);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("query", query);
+        response.put("results", results);
+        response.put("count", results.size());
+        response.put("tookMs", TimeUnit.NANOSECONDS.toMicros(tookNanos) / 1000.0);
+        return response;
+    }
+
+    @Override
+    public void add(Path file) {
+        if (!enabled) {
+            return;
+        }
+        String folder = fileLayout.folderOf(file);
+        if (folder != null) {
+            apply(folder, new Change(file.getFileName().toString(), true));
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (indexes) {
+            if (watchService != null) {
+                watchService.close();
+            }
+        }
+    }
+
+    private void refresh() {
+        for (String folder : typeToFolder.values()) {
+            refresh(folder);
+        }
+    }
+
+    /*
+     * Synchronized so two rebuilds of a folder (the schedule and a watch overflow) never share a journal.
+     */
+    private synchronized void refresh(String folder) {
+        synchronized (rebuilding) {
+            rebuilding.put(folder, new ArrayList<>());
+        }
+        FilenameIndex rebuilt;
+        try {
+            rebuilt = !tieredFileStore.isTiered() && !Files.isDirectory(fileLayout.folder(folder))
+                    ? FilenameIndex.of(List.of())
+                    : FilenameIndex.of(tieredFileStore.list(folder));
+        } catch (IOException | RuntimeException e) {
+            synchronized (rebuilding) {
+                rebuilding.remove(folder);
+            }
+            // Keep serving the previous index; the next refresh tries again
+            log.warn("Could not list {} for the filename index", folder, e);
+            return;
+        }
+        synchronized (rebuilding) {
+            for (Change change : rebuilding.remove(folder)) {
+                change.applyTo(rebuilt);
+            }
+            indexes.put(folder, rebuilt);
+        }
+    }
+
+    private void apply(String folder, Change change) {
+        synchronized (rebuilding) {
+            List<Change> journal = rebuilding.get(folder);
+            if (journal != null) {
+                journal.add(change);
+            }
+            FilenameIndex index = indexes.get(folder);
+            if (index != null) {
+                change.applyTo(index);
+            }
+        }
+    }
+
+    private void startWatching() {
+        if (!watch || fileLayout.isSharded() || tieredFileStore.isTiered()) {
+            return;
+        }
+        synchronized (indexes) {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+                for (String folder : typeToFolder.values()) {
+                    Path directory = fileLayout.folder(folder);
+                    Files.createDirectories(directory);
+                    directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE);
+                }
+                Thread.ofPlatform().name("files-name-index-watch").daemon(true).start(this::watchLoop);
+            } catch (IOException e) {
+                // Uploads and the periodic refresh still keep the index current
+                log.warn("Could not watch the storage folders for the filename index", e);
+            }
+        }
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = (Path) key.watchable();
+                String folder = directory.getFileName().toString();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || !indexes.containsKey(folder)) {
+                        appExecutors.io().execute(() -> refresh(folder));
+                        break;
+                    }
+                    Path file = directory.resolve((Path) event.context());
+                    String filename = file.getFileName().toString();
+                    if (filename.startsWith(".")) {
+                        continue;
+                    }
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                        apply(folder, new Change(filename, false));
+                    } else if (Files.isRegularFile(file)) {
+                        apply(folder, new Change(filename, true));
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+
+    private record Change(String filename, boolean added) {
+
+        void applyTo(FilenameIndex index) {
+            if (added) {
+                index.add(filename);
+            } else {
+                index.remove(filename);
+            }
+        }
+    }
+}
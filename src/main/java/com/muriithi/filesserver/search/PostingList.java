@@ -0,0 +1,104 @@
+package com.muriithi.filesserver.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Documents containing one term, in ascending id order with the term's frequency in each. Stored as
+ * variable-length deltas, so a posting in a busy list costs two or three bytes instead of eight.
+ * Ids only ever grow, which is what lets new documents be appended without re-encoding.
+ */
+final class PostingList {
+
+    @FunctionalInterface
+    interface Visitor {
+        void visit(int doc, int frequency);
+    }
+
+    private byte[] bytes;
+    private int length;
+    private int count;
+    private int lastDoc = -1;
+
+    PostingList() {
+        this.bytes = new byte[8];
+    }
+
+    private PostingList(byte[] bytes, int count, int lastDoc) {
+        this.bytes = bytes;
+        this.length = bytes.length;
+        this.count = count;
+        this.lastDoc = lastDoc;
+    }
+
+    void add(int doc, int frequency) {
+        if (doc <= lastDoc) {
+            throw new IllegalArgumentException("Postings must be added in ascending order");
+        }
+        writeVarint(doc - lastDoc);
+        writeVarint(frequency);
+        lastDoc = doc;
+        count++;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int sizeBytes() {
+        return length;
+    }
+
+    void forEach(Visitor visitor) {
+        int doc = -1;
+        int position = 0;
+        while (position < length) {
+            int delta = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                delta |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            int frequency = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                frequency |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            doc += delta;
+            visitor.visit(doc, frequency);
+        }
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(count);
+        out.writeInt(lastDoc);
+        out.writeInt(length);
+        out.write(bytes, 0, length);
+    }
+
+    static PostingList read(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        int lastDoc = in.readInt();
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new PostingList(bytes, count, lastDoc);
+    }
+
+    private void writeVarint(int value) {
+        if (bytes.length - length < 5) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 5));
+        }
+        while ((value & ~0x7F) != 0) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+}
@@ -0,0 +1,63 @@
+package com.muriithi.filesserver.search;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Content search: {@code GET /api/files/search?q=quarterly+revenue&type=office&page=0&size=20}.
+ * Every term must match unless {@code mode=any}.
+ */
+@RestController
+@RequestMapping("/api/files/search")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", methods = {RequestMethod.GET, RequestMethod.OPTIONS})
+public class SearchController {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchController.class);
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_RESULTS = 10_000;
+
+    private final SearchService searchService;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> search(
+            @RequestParam String q,
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "all") String mode,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        if (!searchService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Search is not enabled"));
+        }
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Empty query"));
+        }
+
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        if (page < 0 || (long) (page + 1) * pageSize > MAX_RESULTS) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Page out of range"));
+        }
+
+        try {
+            return ResponseEntity.ok(searchService.search(q, type, !"any".equalsIgnoreCase(mode), page, pageSize));
+        } catch (Exception e) {
+            log.error("Search failed for query: {}", q, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Search failed"));
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.muriithi.filesserver.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * In-memory inverted index: term to {@link PostingList}, plus the indexed documents by id.
+ *
+ * <p>Documents get ascending ids as they are added, so postings are only ever appended. Replacing or
+ * removing a document marks its old id deleted rather than rewriting every list it appears in;
+ * {@link #merge} renumbers the live documents and drops the dead postings once enough accumulate.
+ *
+ * <p>Results are ranked with BM25. Not thread-safe; {@link SearchServiceImpl} guards it with a
+ * read-write lock.
+ */
+final class SearchIndex {
+
+    private static final int VERSION = 1;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    record Document(String folder, String filename, long size, long modified, int length) {
+
+        String key() {
+            return folder + "/" + filename;
+        }
+    }
+
+    record Hit(Document document, float score) {
+    }
+
+    record Result(int total, List<Hit> hits) {
+    }
+
+    private final List<Document> documents = new ArrayList<>();
+    private final BitSet deleted = new BitSet();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Map<String, PostingList> terms = new HashMap<>();
+    private long liveLength;
+    private long postingBytes;
+
+    int liveCount() {
+        return ids.size();
+    }
+
+    int deletedCount() {
+        return documents.size() - ids.size();
+    }
+
+    int termCount() {
+        return terms.size();
+    }
+
+    long postingBytes() {
+        return postingBytes;
+    }
+
+    Set<String> keys() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+
+    boolean isCurrent(String key, long size, long modified) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            return false;
+        }
+        Document document = documents.get(id);
+        return document.size() == size && document.modified() == modified;
+    }
+
+    void add(Document document, Map<String, Integer> frequencies) {
+        remove(document.key());
+        int id = documents.size();
+        documents.add(document);
+        ids.put(document.key(), id);
+        liveLength += document.length();
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            PostingList postings = terms.computeIfAbsent(entry.getKey(), term -> new PostingList());
+            int before = postings.sizeBytes();
+            postings.add(id, entry.getValue());
+            postingBytes += postings.sizeBytes() - before;
+        }
+    }
+
+    void remove(String key) {
+        Integer id = ids.remove(key);
+        if (id != null) {
+            deleted.set(id);
+            liveLength -= documents.get(id).length();
+        }
+    }
+
+    /**
+     * Ranks live documents containing the query terms (all of them, or any with {@code matchAll}
+     * false), optionally only in one folder, and returns the page starting at {@code offset}.
+     */
+    Result search(List<String> queryTerms, boolean matchAll, String folder, int offset, int limit) {
+        if (queryTerms.isEmpty() || ids.isEmpty()) {
+            return new Result(0, List.of());
+        }
+        int liveCount = ids.size();
+        float averageLength = Math.max(1f, (float) liveLength / liveCount);
+        float[] scores = new float[documents.size()];
+        byte[] matched = new byte[documents.size()];
+
+        for (String term : queryTerms) {
+            PostingList postings = terms.get(term);
+            if (postings == null) {
+                if (matchAll) {
+                    return new Result(0, List.of());
+                }
+                continue;
+            }
+            float idf = (float) Math.log(1 + (liveCount - postings.count() + 0.5) / (postings.count() + 0.5));
+            postings.forEach((doc, frequency) -> {
+                float norm = K1 * (1 - B + B * documents.get(doc).length() / averageLength);
+                scores[doc] += idf * frequency * (K1 + 1) / (frequency + norm);
+                matched[doc]++;
+            });
+        }
+
+        int required = matchAll ? queryTerms.size() : 1;
+        int needed = offset + limit;
+        PriorityQueue<Integer> top = new PriorityQueue<>(needed + 1,
+                (a, b) -> scores[a] != scores[b] ? Float.compare(scores[a], scores[b]) : Integer.compare(a, b));
+        int total = 0;
+        for (int doc = 0; doc < scores.length; doc++) {
+            if (matched[doc] < required || deleted.get(doc)
+                    || (folder != null && !folder.equals(documents.get(doc).folder()))) {
+                continue;
+            }
+            total++;
+            top.offer(doc);
+            if (top.size() > needed) {
+                top.poll();
+            }
+        }
+
+        Hit[] ranked = new Hit[top.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            int doc = top.poll();
+            ranked[i] = new Hit(documents.get(doc), scores[doc]);
+        }
+        List<Hit> page = offset < ranked.length ? Arrays.asList(ranked).subList(offset, ranked.length) : List.of();
+        return new Result(total, page);
+    }
+
+    /**
+     * Renumbers live documents densely and rebuilds the posting lists without the deleted ones.
+     */
+    void merge() {
+        if (deleted.isEmpty()) {
+            return;
+        }
+        int[] remap = new int[documents.size()];
+        List<Document> live = new ArrayList<>(ids.size());
+        for (int id = 0; id < documents.size(); id++) {
+            if (deleted.get(id)) {
+                remap[id] = -1;
+            } else {
+                remap[id] = live.size();
+                live.add(documents.get(id));
+            }
+        }
+
+        Map<String, PostingList> merged = new HashMap<>(terms.size());
+        long bytes = 0;
+        for (Map.Entry<String, PostingList> entry : terms.entrySet()) {
+            PostingList rebuilt = new PostingList();
+            entry.getValue().forEach((doc, frequency) -> {
+                if (remap[doc] >= 0) {
+                    rebuilt.add(remap[doc], frequency);
+                }
+            });
+            if (rebuilt.count() > 0) {
+                merged.put(entry.getKey(), rebuilt);
+                bytes += rebuilt.sizeBytes();
+            }
+        }
+
+        documents.clear();
+        documents.addAll(live);
+        deleted.clear();
+        ids.clear();
+        for (int id = 0; id < documents.size(); id++) {
+            ids.put(documents.get(id).key(), id);
+        }
+        terms.clear();
+        terms.putAll(merged);
+        postingBytes = bytes;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(VERSION);
+        out.writeInt(documents.size());
+        for (int id = 0; id < documents.size(); id++) {
+            Document document = documents.get(id);
+            out.writeBoolean(deleted.get(id));
+            out.writeUTF(document.folder());
+            out.writeUTF(document.filename());
+            out.writeLong(document.size());
+            out.writeLong(document.modified());
+            out.writeInt(document.length());
+        }
+        out.writeInt(terms.size());
+        for (Map.Entry<String, PostingList> entry : terms.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().write(out);
+        }
+    }
+
+    static SearchIndex read(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported search index version " + version);
+        }
+        SearchIndex index = new SearchIndex();
+        int documentCount = in.readInt();
+        for (int id = 0; id < documentCount; id++) {
+            boolean removed = in.readBoolean();
+            Document document = new Document(in.readUTF(), in.readUTF(), in.readLong(), in.readLong(), in.readInt());
+            index.documents.add(document);
+            if (removed) {
+                index.deleted.set(id);
+            } else {
+                index.ids.put(document.key(), id);
+                index.liveLength += document.length();
+            }
+        }
+        int termCount = in.readInt();
+        for (int i = 0; i < termCount; i++) {
+            String term = in.readUTF();
+            PostingList postings = PostingList.read(in);
+            index.terms.put(term, postings);
+            index.postingBytes += postings.sizeBytes();
+        }
+        return index;
+    }
+}
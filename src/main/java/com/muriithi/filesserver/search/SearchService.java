@@ -0,0 +1,16 @@
+package com.muriithi.filesserver.search;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+public interface SearchService {
+
+    boolean isEnabled();
+
+    Map<String, Object> search(String query, String type, boolean matchAll, int page, int size);
+
+    /**
+     * Queues a newly published file for indexing in the background.
+     */
+    void submit(Path file);
+}
@@ -0,0 +1,369 @@
+package com.muriithi.filesserver.search;
+
+import com.muriithi.filesserver.catalog.FileRecord;
+import com.muriithi.filesserver.catalog.MetadataCatalog;
+import com.muriithi.filesserver.config.AppExecutors;
+import com.muriithi.filesserver.storage.FileLayout;
+import com.muriithi.filesserver.storage.TieredFileStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Full-text search over stored documents.
+ *
+ * <p>Text comes from {@link TextExtractor} and goes into a {@link SearchIndex}. Uploads queue their
+ * file as they are published, and a single background worker extracts and indexes one file at a
+ * time, so indexing never competes with requests for more than one parser's worth of memory. A
+ * reconciliation against the {@link MetadataCatalog}, once the catalog's own first reconciliation has
+ * finished and every {@code reconcile-minutes} after, queues files whose size or mtime changed and
+ * drops files that are gone.
+ *
+ * <p>The index is saved to {@code <base-path>/.search/index} every {@code snapshot-minutes} when it
+ * has changed, and on shutdown, so a restart does not re-parse every document.
+ */
+@Service
+public class SearchServiceImpl implements SearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchServiceImpl.class);
+
+    private static final int MAX_QUERY_TERMS = 32;
+    private static final double MERGE_DELETED_RATIO = 0.25;
+    private static final int MERGE_MIN_DELETED = 1000;
+
+    private final FileLayout fileLayout;
+    private final TieredFileStore tieredFileStore;
+    private final MetadataCatalog metadataCatalog;
+    private final TextExtractor textExtractor;
+    private final AppExecutors appExecutors;
+    private final boolean enabled;
+    private final long maxFileBytes;
+    private final int maxTokensPerDocument;
+    private final long snapshotMinutes;
+    private final long reconcileMinutes;
+    private final Path indexFile;
+    private final Timer queryTimer;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private SearchIndex index = new SearchIndex();
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    public SearchServiceImpl(FileLayout fileLayout, TieredFileStore tieredFileStore,
+                             MetadataCatalog metadataCatalog, TextExtractor textExtractor, AppExecutors appExecutors,
+                             @Value("${file.search.enabled:true}") boolean enabled,
+                             @Value("${file.search.max-file-mb:32}") long maxFileMb,
+                             @Value("${file.search.max-tokens-per-document:500000}") int maxTokensPerDocument,
+                             @Value("${file.search.snapshot-minutes:5}") long snapshotMinutes,
+                             @Value("${file.search.reconcile-minutes:60}") long reconcileMinutes,
+                             MeterRegistry registry) {
+        this.fileLayout = fileLayout;
+        this.tieredFileStore = tieredFileStore;
+        this.metadataCatalog = metadataCatalog;
+        this.textExtractor = textExtractor;
+        this.appExecutors = appExecutors;
+        this.enabled = enabled;
+        this.maxFileBytes = maxFileMb * 1024 * 1024;
+        this.maxTokensPerDocument = maxTokensPerDocument;
+        this.snapshotMinutes = snapshotMinutes;
+        this.reconcileMinutes = reconcileMinutes;
+        this.indexFile = fileLayout.root().resolve(".search").resolve("index");
+
+        this.queryTimer = registry.timer("files.search.query");
+        Gauge.builder("files.search.documents", this, service -> service.read(SearchIndex::liveCount)).register(registry);
+        Gauge.builder("files.search.terms", this, service -> service.read(SearchIndex::termCount)).register(registry);
+        Gauge.builder("files.search.postings.size", this, service -> service.read(SearchIndex::postingBytes))
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("files.search.pending", pending, Set::size).register(registry);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        if (Files.exists(indexFile)) {
+            long start = System.nanoTime();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), 1 << 16))) {
+                index = SearchIndex.read(in);
+                log.info("Loaded search index of {} documents in {} ms", index.liveCount(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (IOException e) {
+                log.warn("Could not load the search index; rebuilding it", e);
+                index = new SearchIndex();
+            }
+        }
+
+        // Before the catalog has caught up with the disk it can be empty or stale, and comparing
+        // against it would drop documents that still exist
+        metadataCatalog.firstReconciliation().thenRunAsync(() -> {
+            if (reconcileMinutes > 0) {
+                appExecutors.scheduler().scheduleWithFixedDelay(
+                        () -> appExecutors.io().execute(this::reconcile),
+                        reconcileMinutes, reconcileMinutes, TimeUnit.MINUTES);
+            }
+            reconcile();
+        }, appExecutors.io());
+        if (snapshotMinutes > 0) {
+            appExecutors.scheduler().scheduleWithFixedDelay(
+                    () -> appExecutors.io().execute(this::saveIfChanged),
+                    snapshotMinutes, snapshotMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Map<String, Object> search(String query, String type, boolean matchAll, int page, int size) {
+        long start = System.nanoTime();
+        Set<String> unique = new LinkedHashSet<>();
+        Tokenizer.tokenize(query, MAX_QUERY_TERMS, unique::add);
+        List<String> terms = new ArrayList<>(unique);
+
+        SearchIndex.Result result;
+        lock.readLock().lock();
+        try {
+            result = index.search(terms, matchAll, type, page * size, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long tookNanos = System.nanoTime() - start;
+        queryTimer.record(tookNanos, TimeUnit.NANOSECONDS);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (SearchIndex.Hit hit : result.hits()) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("type", hit.document().folder());
+            entry.put("filename", hit.document().filename());
+            entry.put("size", hit.document().size());
+            entry.put("modified", hit.document().modified());
+            entry.put("score", hit.score());
+            results.add(entry);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("query", query);
+        response.put("terms", terms);
+        response.put("page", page);
+        response.put("size", size);
+        response.put("total", result.total());
+        response.put("results", results);
+        response.put("tookMs", TimeUnit.NANOSECONDS.toMicros(tookNanos) / 1000.0);
+        response.put("pendingDocuments", pending.size());
+        return response;
+    }
+
+    @Override
+    public void submit(Path file) {
+        if (!enabled) {
+            return;
+        }
+        String folder = fileLayout.folderOf(file);
+        if (folder != null) {
+            enqueue(folder, file.getFileName().toString());
+        }
+    }
+
+    @PreDestroy
+    public void save() {
+        if (enabled && dirty.get()) {
+            saveIfChanged();
+        }
+    }
+
+    private void enqueue(String folder, String filename) {
+        if (!textExtractor.supports(filename)) {
+            return;
+        }
+        String key = folder + "/" + filename;
+        if (pending.add(key)) {
+            queue.offer(key);
+            startDraining();
+        }
+    }
+
+    private void startDraining() {
+        if (draining.compareAndSet(false, true)) {
+            appExecutors.io().execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            String key;
+            while ((key = queue.poll()) != null) {
+                // Cleared first so a change landing while this file is indexed queues it again
+                pending.remove(key);
+                int slash = key.indexOf('/');
+                indexDocument(key.substring(0, slash), key.substring(slash + 1));
+            }
+        } finally {
+            draining.set(false);
+        }
+        if (!queue.isEmpty()) {
+            startDraining();
+        }
+    }
+
+    private void indexDocument(String folder, String filename) {
+        String key = folder + "/" + filename;
+        try {
+            Path file = tieredFileStore.fetch(folder, filename);
+            if (!Files.isRegularFile(file)) {
+                update(index -> index.remove(key));
+                return;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            long modified = attributes.lastModifiedTime().toMillis();
+
+            Map<String, Integer> frequencies = new HashMap<>();
+            int length = 0;
+            if (attributes.size() <= maxFileBytes) {
+                String text = extract(filename, Files.readAllBytes(file));
+                length = Tokenizer.tokenize(text, maxTokensPerDocument, token -> frequencies.merge(token, 1, Integer::sum));
+            } else {
+                log.debug("Not indexing the content of {}: {} bytes is over the limit", key, attributes.size());
+            }
+
+            // Unreadable and oversized files are still recorded, so reconciliation does not retry them
+            SearchIndex.Document document = new SearchIndex.Document(folder, filename, attributes.size(), modified, length);
+            update(index -> index.add(document, frequencies));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to index {}", key, e);
+        }
+    }
+
+    private String extract(String filename, byte[] content) {
+        try {
+            return textExtractor.extract(filename, content);
+        } catch (Exception e) {
+            log.debug("Could not extract text from {}", filename, e);
+            return "";
+        }
+    }
+
+    private void reconcile() {
+        if (!metadataCatalog.isEnabled()) {
+            // Nothing to compare against; uploads are still indexed as they land
+            return;
+        }
+        Set<String> cataloged = new HashSet<>();
+        List<String[]> stale = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (FileRecord record : metadataCatalog.records()) {
+                if (!textExtractor.supports(record.filename())) {
+                    continue;
+                }
+                cataloged.add(record.key());
+                if (!index.isCurrent(record.key(), record.size(), record.modified())) {
+                    stale.add(new String[]{record.folder(), record.filename()});
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        update(index -> {
+            for (String key : List.copyOf(index.keys())) {
+                if (!cataloged.contains(key) && !pending.contains(key)) {
+                    index.remove(key);
+                }
+            }
+        });
+        for (String[] file : stale) {
+            enqueue(file[0], file[1]);
+        }
+        if (!stale.isEmpty()) {
+            log.info("Search reconciliation queued {} documents", stale.size());
+        }
+    }
+
+    private void update(Consumer<SearchIndex> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+            if (index.deletedCount() >= MERGE_MIN_DELETED
+                    && index.deletedCount() > MERGE_DELETED_RATIO * (index.liveCount() + index.deletedCount())) {
+                index.merge();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        dirty.set(true);
+    }
+
+    private void saveIfChanged() {
+        if (!dirty.compareAndSet(true, false)) {
+            return;
+        }
+        Path temp = indexFile.resolveSibling("index.tmp");
+        lock.readLock().lock();
+        try {
+            Files.createDirectories(indexFile.getParent());
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+                index.write(out);
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("Failed to save the search index", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private double read(ToDoubleFunction<SearchIndex> metric) {
+        lock.readLock().lock();
+        try {
+            return metric.applyAsDouble(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
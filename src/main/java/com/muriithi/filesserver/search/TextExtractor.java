@@ -0,0 +1,141 @@
+package com.muriithi.filesserver.search;
+
+import com.auxilii.msgparser.Message;
+import com.auxilii.msgparser.MsgParser;
+import com.muriithi.filesserver.renderviaweb.CsvDocumentRenderer;
+import com.muriithi.filesserver.renderviaweb.ExcelDocumentRenderer;
+import com.muriithi.filesserver.renderviaweb.WordDocumentRenderer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.mail.Multipart;
+import javax.mail.Part;
+import javax.mail.Session;
+import javax.mail.internet.ContentType;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import javax.mail.internet.MimeMultipart;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Plain text of a stored file for the search index, through the same parsers the renderers use.
+ */
+@Component
+@RequiredArgsConstructor
+public class TextExtractor {
+
+    private static final Set<String> PLAIN_TEXT = Set.of("txt", "md", "log", "json", "xml");
+    private static final Set<String> HTML = Set.of("html", "htm");
+    private static final Set<String> SUPPORTED = Set.of("txt", "md", "log", "json", "xml", "html", "htm",
+            "csv", "doc", "docx", "xls", "xlsx", "msg", "eml");
+
+    private static final Pattern SCRIPTS = Pattern.compile("(?is)<(script|style)[^>]*>.*?</\\1>");
+    private static final Pattern TAGS = Pattern.compile("<[^>]+>");
+    private static final int MAX_MIME_DEPTH = 8;
+
+    private final CsvDocumentRenderer csvDocumentRenderer;
+
+    private final WordDocumentRenderer wordDocumentRenderer = new WordDocumentRenderer();
+    private final ExcelDocumentRenderer excelDocumentRenderer = new ExcelDocumentRenderer();
+
+    public boolean supports(String filename) {
+        return SUPPORTED.contains(extension(filename));
+    }
+
+    public String extract(String filename, byte[] content) throws Exception {
+        String extension = extension(filename);
+        if (PLAIN_TEXT.contains(extension)) {
+            return new String(content, StandardCharsets.UTF_8);
+        }
+        if (HTML.contains(extension)) {
+            return stripHtml(new String(content, StandardCharsets.UTF_8));
+        }
+        return switch (extension) {
+            case "csv" -> csvDocumentRenderer.extractText(content);
+            case "doc", "docx" -> wordDocumentRenderer.extractText(content, "." + extension);
+            case "xls", "xlsx" -> excelDocumentRenderer.extractText(content);
+            case "msg" -> extractMsg(content);
+            case "eml" -> extractEml(content);
+            default -> "";
+        };
+    }
+
+    private static String extractMsg(byte[] content) throws Exception {
+        Message msg = new MsgParser().parseMsg(new ByteArrayInputStream(content));
+        StringBuilder text = new StringBuilder();
+        for (String value : new String[]{msg.getSubject(), msg.getFromName(), msg.getFromEmail(),
+                msg.getToEmail(), msg.getBodyText()}) {
+            if (value != null) {
+                text.append(value).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    private static String extractEml(byte[] content) throws Exception {
+        MimeMessage message = new MimeMessage(Session.getDefaultInstance(new Properties()), new ByteArrayInputStream(content));
+        StringBuilder text = new StringBuilder();
+        if (message.getSubject() != null) {
+            text.append(message.getSubject()).append('\n');
+        }
+        if (message.getFrom() != null) {
+            text.append(InternetAddress.toString(message.getFrom())).append('\n');
+        }
+        String to = message.getHeader("To", ", ");
+        if (to != null) {
+            text.append(to).append('\n');
+        }
+        appendBody(text, message, 0);
+        return text.toString();
+    }
+
+    /*
+     * Text parts only, read through the transfer decoding; attachments are skipped.
+     */
+    private static void appendBody(StringBuilder text, Part part, int depth) throws Exception {
+        if (depth > MAX_MIME_DEPTH || Part.ATTACHMENT.equalsIgnoreCase(part.getDisposition())) {
+            return;
+        }
+        if (part.isMimeType("text/plain") || part.isMimeType("text/html")) {
+            String body;
+            try (InputStream in = part.getInputStream()) {
+                body = new String(in.readAllBytes(), charset(part));
+            }
+            text.append(part.isMimeType("text/html") ? stripHtml(body) : body).append('\n');
+        } else if (part.isMimeType("multipart/*")) {
+            // Parsed from the raw source so no multipart content handler needs to be registered
+            Multipart multipart = new MimeMultipart(part.getDataHandler().getDataSource());
+            for (int i = 0; i < multipart.getCount(); i++) {
+                appendBody(text, multipart.getBodyPart(i), depth + 1);
+            }
+        }
+    }
+
+    private static Charset charset(Part part) {
+        try {
+            String charset = new ContentType(part.getContentType()).getParameter("charset");
+            return charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8;
+        } catch (Exception e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    private static String stripHtml(String html) {
+        return TAGS.matcher(SCRIPTS.matcher(html).replaceAll(" ")).replaceAll(" ")
+                .replace("&nbsp;", " ")
+                .replace("&amp;", "&")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">");
+    }
+
+    static String extension(String filename) {
+        int lastDot = filename.lastIndexOf('.');
+        return lastDot == -1 ? "" : filename.substring(lastDot + 1).toLowerCase();
+    }
+}
@@ -0,0 +1,39 @@
+package com.muriithi.filesserver.search;
+
+import java.util.function.Consumer;
+
+/**
+ * Splits text into lower-cased runs of letters and digits. Tokens shorter than two or longer than
+ * 40 characters are dropped; they are noise or encoded data rather than words anyone searches for.
+ */
+final class Tokenizer {
+
+    static final int MIN_LENGTH = 2;
+    static final int MAX_LENGTH = 40;
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Emits tokens in order until {@code limit} have been emitted; returns how many were.
+     */
+    static int tokenize(CharSequence text, int limit, Consumer<String> sink) {
+        StringBuilder token = new StringBuilder(MAX_LENGTH);
+        int emitted = 0;
+        int length = text.length();
+        for (int i = 0; i <= length && emitted < limit; ) {
+            int codePoint = i < length ? Character.codePointAt(text, i) : ' ';
+            i += i < length ? Character.charCount(codePoint) : 1;
+            if (Character.isLetterOrDigit(codePoint)) {
+                token.appendCodePoint(Character.toLowerCase(codePoint));
+                continue;
+            }
+            if (token.length() >= MIN_LENGTH && token.length() <= MAX_LENGTH) {
+                sink.accept(token.toString());
+                emitted++;
+            }
+            token.setLength(0);
+        }
+        return emitted;
+    }
+}
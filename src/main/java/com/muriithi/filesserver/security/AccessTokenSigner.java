@@ -0,0 +1,153 @@
+package com.muriithi.filesserver.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Issues and verifies self-contained access tokens for {@code /public-view}.
+ *
+ * <p>A token is {@code base64url(payload) + "." + base64url(HMAC-SHA256(payload))} where the payload
+ * carries the expiry, file type and filename. Verification needs only {@code token.secret}, so any
+ * node sharing the secret accepts tokens issued by any other and nothing is kept in memory.
+ *
+ * <p>The secret must be at least {@value #MIN_SECRET_BYTES} bytes. Without one, a random key is drawn
+ * for this process: tokens then work only on this node and stop verifying after a restart.
+ */
+@Component
+public class AccessTokenSigner {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessTokenSigner.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    static final int MIN_SECRET_BYTES = 32;
+
+    public record AccessToken(String filename, String type, Instant expiry) {
+    }
+
+    private final Mac prototype;
+    private final Duration expiry;
+
+    // Mac.getInstance does a provider lookup on every call; platform threads keep an initialised Mac
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    public AccessTokenSigner(@Value("${token.secret:}") String secret,
+                             @Value("${file.token.expiry.minutes:5}") int expiryMinutes) {
+        byte[] key;
+        if (secret == null || secret.isBlank()) {
+            log.warn("token.secret is not set; using a random key, so public-view tokens are not accepted by "
+                    + "other nodes or after a restart");
+            key = new byte[MIN_SECRET_BYTES];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+            if (key.length < MIN_SECRET_BYTES) {
+                throw new IllegalArgumentException("token.secret must be at least " + MIN_SECRET_BYTES
+                        + " bytes, got " + key.length);
+            }
+        }
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            this.prototype.init(new SecretKeySpec(key, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 unavailable", e);
+        }
+        this.expiry = Duration.ofMinutes(expiryMinutes);
+    }
+
+    public String issue(String filename, String type) {
+        return issue(filename, type, expiry);
+    }
+
+    public String issue(String filename, String type, Duration validFor) {
+        byte[] typeBytes = type.getBytes(StandardCharsets.UTF_8);
+        byte[] filenameBytes = filename.getBytes(StandardCharsets.UTF_8);
+        if (typeBytes.length > 255) {
+            throw new IllegalArgumentException("Type too long for token");
+        }
+
+        byte[] payload = ByteBuffer.allocate(1 + Long.BYTES + 1 + typeBytes.length + filenameBytes.length)
+                .put(VERSION)
+                .putLong(Instant.now().plus(validFor).getEpochSecond())
+                .put((byte) typeBytes.length)
+                .put(typeBytes)
+                .put(filenameBytes)
+                .array();
+
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    /**
+     * Returns the token's claims, or null when the token is malformed, forged, expired or was issued
+     * for a different filename.
+     */
+    public AccessToken verify(String token, String filename) {
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return null;
+        }
+
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            if (buffer.get() != VERSION) {
+                return null;
+            }
+            Instant expiresAt = Instant.ofEpochSecond(buffer.getLong());
+            byte[] typeBytes = new byte[buffer.get() & 0xff];
+            buffer.get(typeBytes);
+            byte[] filenameBytes = new byte[buffer.remaining()];
+            buffer.get(filenameBytes);
+
+            String tokenFilename = new String(filenameBytes, StandardCharsets.UTF_8);
+            if (Instant.now().isAfter(expiresAt) || !tokenFilename.equals(filename)) {
+                return null;
+            }
+            return new AccessToken(tokenFilename, new String(typeBytes, StandardCharsets.UTF_8), expiresAt);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        // Virtual threads are per request, so a thread-local would never be reused; clone instead
+        Mac mac = Thread.currentThread().isVirtual() ? newMac() : macs.get();
+        return mac.doFinal(payload);
+    }
+
+    private Mac newMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HMAC provider does not support cloning", e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.muriithi.filesserver.security;
+
+import com.muriithi.filesserver.observability.FileMetrics;
+import com.muriithi.filesserver.serve.UtilityMethodsService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the {@code file.rate-limit.routes} token buckets per client IP before requests reach the
+ * controllers. Each route has its own fixed-size bucket table.
+ */
+@Component
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private record LimitedRoute(String name, PathPattern pattern, TokenBucketRateLimiter limiter) {
+    }
+
+    private final UtilityMethodsService utilityMethodsService;
+    private final FileMetrics fileMetrics;
+    private final List<LimitedRoute> routes = new ArrayList<>();
+
+    public RateLimitFilter(RateLimitProperties properties, UtilityMethodsService utilityMethodsService,
+                           FileMetrics fileMetrics, MeterRegistry registry) {
+        this.utilityMethodsService = utilityMethodsService;
+        this.fileMetrics = fileMetrics;
+        if (!properties.enabled()) {
+            return;
+        }
+        properties.routes().forEach((name, route) -> {
+            Duration interval = Duration.ofNanos(TimeUnit.MINUTES.toNanos(1) / route.refillPerMinute());
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(route.capacity(), interval, properties.slots());
+            routes.add(new LimitedRoute(name, PathPatternParser.defaultInstance.parse(route.pattern()), limiter));
+            Gauge.builder("files.ratelimit.active.buckets", limiter, TokenBucketRateLimiter::activeBuckets)
+                    .description("Buckets currently below capacity, roughly the clients seen within one refill window")
+                    .tag("route", name)
+                    .register(registry);
+            log.info("Rate limit {}: {} burst {}, {}/min per client", name, route.pattern(),
+                    route.capacity(), route.refillPerMinute());
+        });
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return routes.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (LimitedRoute route : routes) {
+            if (!route.pattern().matches(path)) {
+                continue;
+            }
+
+            String clientIp = utilityMethodsService.getClientIp(request);
+            long waitNanos = route.limiter().tryAcquire(clientIp);
+            if (waitNanos > 0) {
+                log.warn("Rate limit {} exceeded for IP: {}", route.name(), clientIp);
+                fileMetrics.rateLimited(route.name());
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader("Retry-After", String.valueOf(TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1));
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.getWriter().write("{\"error\":\"Too many requests. Try again later.\"}");
+                return;
+            }
+            break;
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,44 @@
+package com.muriithi.filesserver.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-route token-bucket limits under {@code file.rate-limit}. Routes are matched in declaration
+ * order against the request path; the first match applies and unmatched paths are not limited.
+ */
+@ConfigurationProperties("file.rate-limit")
+public record RateLimitProperties(boolean enabled, Integer slots, Map<String, Route> routes) {
+
+    public RateLimitProperties {
+        slots = slots == null ? 65536 : slots;
+        routes = routes == null ? Map.of() : new LinkedHashMap<>(routes);
+        if (slots < 1) {
+            throw new IllegalArgumentException("file.rate-limit.slots must be at least 1, got " + slots);
+        }
+        routes.forEach((name, route) -> route.validate("file.rate-limit.routes." + name));
+    }
+
+    /**
+     * @param pattern         path pattern, e.g. {@code /api/files/generate-token} or {@code /api/upload/**}
+     * @param capacity        burst size
+     * @param refillPerMinute sustained requests per minute per client
+     */
+    public record Route(String pattern, int capacity, int refillPerMinute) {
+
+        private void validate(String prefix) {
+            if (pattern == null || pattern.isBlank()) {
+                throw new IllegalArgumentException(prefix + ".pattern must be set");
+            }
+            if (capacity < 1) {
+                throw new IllegalArgumentException(prefix + ".capacity must be at least 1, got " + capacity);
+            }
+            if (refillPerMinute < 1) {
+                throw new IllegalArgumentException(
+                        prefix + ".refill-per-minute must be at least 1, got " + refillPerMinute);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.muriithi.filesserver.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket over a fixed-size hashed table, so memory stays constant however many
+ * clients are seen.
+ *
+ * <p>Each slot holds one {@code long}: the bucket's theoretical arrival time (the GCRA form of a
+ * token bucket). A request is admitted while that time is at most {@code capacity - 1} refill
+ * intervals ahead of now, and admitting it pushes the time forward by one interval. Updates are a
+ * single CAS, and idle slots need no eviction because an old arrival time simply means a full bucket.
+ * Keys that hash to the same slot share a bucket, which can only make the limit stricter for them.
+ * Slots come from SipHash-2-4 over the key bytes under a random per-instance key, so a client that
+ * does not know the key cannot pick addresses that land in someone else's bucket.
+ */
+public class TokenBucketRateLimiter {
+
+    private static final SecureRandom KEYS = new SecureRandom();
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long k0 = KEYS.nextLong();
+    private final long k1 = KEYS.nextLong();
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final LongSupplier clock;
+    private final long origin;
+
+    public TokenBucketRateLimiter(int capacity, Duration refillInterval, int slotCount) {
+        this(capacity, refillInterval, slotCount, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(int capacity, Duration refillInterval, int slotCount, LongSupplier clock) {
+        if (capacity < 1 || refillInterval.isNegative() || refillInterval.isZero() || slotCount < 1) {
+            throw new IllegalArgumentException("capacity, refill interval and slots must be positive");
+        }
+        int size = slotCount == 1 ? 1 : Integer.highestOneBit(slotCount - 1) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.intervalNanos = refillInterval.toNanos();
+        this.burstNanos = intervalNanos * (capacity - 1);
+        this.clock = clock;
+        this.origin = clock.getAsLong();
+    }
+
+    /**
+     * Takes one token for {@code key}. Returns 0 when admitted, otherwise the nanoseconds until a token
+     * becomes available.
+     */
+    public long tryAcquire(String key) {
+        int slot = (int) sipHash24(k0, k1, key.getBytes(StandardCharsets.UTF_8)) & mask;
+        // Never negative, so an untouched slot (0) always reads as a full bucket
+        long now = clock.getAsLong() - origin;
+
+        while (true) {
+            long arrival = slots.get(slot);
+            long start = Math.max(arrival, now);
+            long wait = start - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (slots.compareAndSet(slot, arrival, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Counts slots whose bucket is not currently full. Scans the whole table, so meant for gauges.
+     */
+    public int activeBuckets() {
+        long now = clock.getAsLong() - origin;
+        int active = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) > now) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    /**
+     * SipHash-2-4 of {@code data} under the 128-bit key {@code (k0, k1)}.
+     */
+    static long sipHash24(long k0, long k1, byte[] data) {
+        long[] v = {
+                k0 ^ 0x736f6d6570736575L,
+                k1 ^ 0x646f72616e646f6dL,
+                k0 ^ 0x6c7967656e657261L,
+                k1 ^ 0x7465646279746573L
+        };
+
+        int blocks = data.length & ~7;
+        for (int i = 0; i < blocks; i += 8) {
+            long m = 0;
+            for (int b = 7; b >= 0; b--) {
+                m = m << 8 | (data[i + b] & 0xffL);
+            }
+            compress(v, m);
+        }
+
+        long last = (long) data.length << 56;
+        for (int b = data.length - 1; b >= blocks; b--) {
+            last |= (data[b] & 0xffL) << (8 * (b - blocks));
+        }
+        compress(v, last);
+
+        v[2] ^= 0xff;
+        for (int r = 0; r < 4; r++) {
+            sipRound(v);
+        }
+        return v[0] ^ v[1] ^ v[2] ^ v[3];
+    }
+
+    private static void compress(long[] v, long m) {
+        v[3] ^= m;
+        sipRound(v);
+        sipRound(v);
+        v[0] ^= m;
+    }
+
+    private static void sipRound(long[] v) {
+        v[0] += v[1];
+        v[1] = Long.rotateLeft(v[1], 13) ^ v[0];
+        v[0] = Long.rotateLeft(v[0], 32);
+        v[2] += v[3];
+        v[3] = Long.rotateLeft(v[3], 16) ^ v[2];
+        v[0] += v[3];
+        v[3] = Long.rotateLeft(v[3], 21) ^ v[0];
+        v[2] += v[1];
+        v[1] = Long.rotateLeft(v[1], 17) ^ v[2];
+        v[2] = Long.rotateLeft(v[2], 32);
+    }
+}
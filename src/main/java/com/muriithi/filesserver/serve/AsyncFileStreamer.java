@@ -0,0 +1,231 @@
+package com.muriithi.filesserver.serve;
+
+import com.muriithi.filesserver.config.AppExecutors;
+import com.muriithi.filesserver.memory.BufferPool;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams a file body with Servlet non-blocking I/O. The request thread returns as soon as the
+ * transfer is set up; reads are issued on an {@link AsynchronousFileChannel} and each chunk is
+ * written from {@link WriteListener#onWritePossible()}, so a slow client holds a pooled buffer
+ * rather than a thread. Callers set status and headers before handing over.
+ */
+@Component
+@RequiredArgsConstructor
+public class AsyncFileStreamer {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncFileStreamer.class);
+
+    private final BufferPool bufferPool;
+    private final AppExecutors appExecutors;
+
+    @Value("${file.serving.async.enabled:false}")
+    private boolean enabled;
+
+    @Value("${file.serving.async.timeout-minutes:30}")
+    private long timeoutMinutes;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void stream(Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        AsynchronousFileChannel channel = AsynchronousFileChannel.open(
+                file, Set.of(StandardOpenOption.READ), appExecutors.io());
+        try {
+            AsyncContext asyncContext = request.startAsync(request, response);
+            asyncContext.setTimeout(TimeUnit.MINUTES.toMillis(timeoutMinutes));
+
+            ServletOutputStream out = response.getOutputStream();
+            Transfer transfer = new Transfer(channel, asyncContext, out, file);
+            asyncContext.addListener(transfer);
+            out.setWriteListener(transfer);
+        } catch (RuntimeException | IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private final class Transfer implements WriteListener, AsyncListener, CompletionHandler<Integer, Void> {
+
+        private final AsynchronousFileChannel channel;
+        private final AsyncContext asyncContext;
+        private final ServletOutputStream out;
+        private final Path file;
+        private final ByteBuffer buffer;
+        private final AtomicBoolean completing = new AtomicBoolean();
+        private final AtomicBoolean bufferReturned = new AtomicBoolean();
+
+        private long position;
+        private byte[] scratch;
+        private boolean eof;
+        private boolean readPending;
+        private boolean closed;
+
+        private Transfer(AsynchronousFileChannel channel, AsyncContext asyncContext,
+                         ServletOutputStream out, Path file) {
+            this.channel = channel;
+            this.asyncContext = asyncContext;
+            this.out = out;
+            this.file = file;
+            this.buffer = bufferPool.acquire().flip();
+        }
+
+        @Override
+        public void onWritePossible() throws IOException {
+            pump();
+        }
+
+        /*
+         * Normally entered by one party at a time: either the container (after isReady() returned
+         * false) or the read completion (after pump() issued the read and returned). The lock is for
+         * release(), which the container can call from onComplete/onError while a write from the
+         * pooled buffer is still in progress.
+         */
+        private synchronized void pump() throws IOException {
+            while (!closed && out.isReady()) {
+                if (buffer.hasRemaining()) {
+                    writeBuffer();
+                } else if (eof) {
+                    finish();
+                    return;
+                } else {
+                    buffer.clear();
+                    readPending = true;
+                    channel.read(buffer, position, null, this);
+                    return;
+                }
+            }
+        }
+
+        /*
+         * Servlet 6.0 has no ByteBuffer write, so a direct pooled buffer is copied through a per-transfer
+         * array; the read side still avoids the JDK's temporary direct buffers.
+         */
+        private void writeBuffer() throws IOException {
+            if (buffer.hasArray()) {
+                out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else {
+                if (scratch == null) {
+                    scratch = new byte[buffer.capacity()];
+                }
+                int length = buffer.remaining();
+                buffer.get(scratch, 0, length);
+                out.write(scratch, 0, length);
+            }
+            buffer.position(buffer.limit());
+        }
+
+        @Override
+        public synchronized void completed(Integer read, Void attachment) {
+            readPending = false;
+            if (closed) {
+                returnBuffer();
+                return;
+            }
+            if (read < 0) {
+                eof = true;
+            } else {
+                position += read;
+            }
+            buffer.flip();
+            try {
+                pump();
+            } catch (IOException | RuntimeException e) {
+                abort(e);
+            }
+        }
+
+        @Override
+        public synchronized void failed(Throwable failure, Void attachment) {
+            readPending = false;
+            if (!closed) {
+                log.error("Async read failed for file: {}", file.getFileName(), failure);
+                finish();
+            }
+            returnBuffer();
+        }
+
+        @Override
+        public void onError(Throwable failure) {
+            abort(failure);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            log.warn("Async transfer timed out for file: {}", file.getFileName());
+            finish();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void abort(Throwable failure) {
+            log.debug("Async transfer aborted for file: {}", file.getFileName(), failure);
+            finish();
+        }
+
+        private void finish() {
+            if (completing.compareAndSet(false, true)) {
+                asyncContext.complete();
+            }
+        }
+
+        /*
+         * The buffer goes back to the pool here only when no read is in flight; otherwise the read
+         * completion returns it. Holding the lock means no write from it is in progress either.
+         */
+        private synchronized void release() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Error closing channel for file: {}", file.getFileName(), e);
+            }
+            if (!readPending) {
+                returnBuffer();
+            }
+        }
+
+        private void returnBuffer() {
+            if (bufferReturned.compareAndSet(false, true)) {
+                bufferPool.release(buffer);
+            }
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.muriithi.filesserver.serve;
 
+import com.muriithi.filesserver.memory.MemoryBudget;
+import com.muriithi.filesserver.memory.MemoryBudgetExceededException;
+import com.muriithi.filesserver.observability.RequestTrace;
+import com.muriithi.filesserver.observability.TracePhase;
 import com.muriithi.filesserver.renderviaweb.ContentTypeHelper;
 import com.muriithi.filesserver.renderviaweb.RenderWebDocumentService;
 import jakarta.servlet.http.HttpServletRequest;
@@ -14,10 +18,10 @@ import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 @RestController
@@ -29,6 +33,9 @@ public class FileController {
     private final FileService fileService;
     private final RenderWebDocumentService renderWebDocumentService;
     private final UtilityMethodsService utilityMethodsService;
+    private final AsyncFileStreamer asyncFileStreamer;
+    private final PublicAccessChecker publicAccessChecker;
+    private final MemoryBudget memoryBudget;
 
     private static final Logger log = LoggerFactory.getLogger(FileController.class);
     private static final long MAX_FILE_SIZE = 100 * 1024 * 1024; // 100MB
@@ -42,6 +49,12 @@ public class FileController {
         return ResponseEntity.ok().build();
     }
 
+    /** Does no work; {@link PublicAccessChecker} probes it to learn whether the public URL reaches us. */
+    @GetMapping("/ping")
+    public ResponseEntity<Void> ping() {
+        return ResponseEntity.ok().build();
+    }
+
     @GetMapping("/types")
     public ResponseEntity<Map<String, Object>> getAvailableTypes() {
         try {
@@ -83,17 +96,44 @@ public class FileController {
             return;
         }
 
-        log.info("Serving file: {} from type: {} for client IP: {}", filename, type, request.getRemoteAddr());
+        log.debug("Serving file: {} from type: {} for client IP: {}", filename, type, request.getRemoteAddr());
         utilityMethodsService.setCorsHeaders(response);
 
         try {
-            byte[] content = fileService.getFileContent(type, filename);
-            if (content == null) {
-                log.error("File not found: {} in type: {}", filename, type);
-                response.sendError(HttpStatus.NOT_FOUND.value(), "File not found");
+            if (asyncFileStreamer.isEnabled() && !renderWebDocumentService.isRenderable(filename)) {
+                Path file;
+                long size;
+                try (RequestTrace.Phase ignored = RequestTrace.phase(TracePhase.READ)) {
+                    file = fileService.resolveFile(type, filename);
+                    size = Files.size(file);
+                }
+                if (size == 0) {
+                    // Same answer the blocking renderer gives for an empty document
+                    response.sendError(HttpStatus.NOT_FOUND.value(), "Empty document");
+                    return;
+                }
+                renderWebDocumentService.writeRegularFileHeaders(filename, ContentTypeHelper.getContentType(filename),
+                        size, response);
+                asyncFileStreamer.stream(file, request, response);
+                return;
             }
-            renderWebDocumentService.renderThumbNailLocally(content, filename, ContentTypeHelper.getContentType(filename), response);
 
+            try (MemoryBudget.Reservation reservation = reserve(type, filename, renderWebDocumentService.isRenderable(filename))) {
+                Path file;
+                byte[] content;
+                try (RequestTrace.Phase ignored = RequestTrace.phase(TracePhase.READ)) {
+                    file = fileService.resolveFile(type, filename);
+                    content = fileService.readFile(type, file);
+                }
+                if (content == null) {
+                    log.error("File not found: {} in type: {}", filename, type);
+                    response.sendError(HttpStatus.NOT_FOUND.value(), "File not found");
+                    return;
+                }
+                renderWebDocumentService.renderThumbNailLocally(content, file, filename, ContentTypeHelper.getContentType(filename), response);
+            }
+        } catch (MemoryBudgetExceededException e) {
+            sendBusy(response);
         } catch (Exception e) {
             log.error("Error serving file: {} for client IP: {}", filename, request.getRemoteAddr(), e);
             response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Error serving file");
@@ -114,18 +154,13 @@ public class FileController {
             return;
         }
 
-        log.info("Serving file: {} from type: {} for client IP: {}", filename, type, request.getRemoteAddr());
+        log.debug("Serving file: {} from type: {} for client IP: {}", filename, type, request.getRemoteAddr());
         utilityMethodsService.setCorsHeaders(response);
 
         try {
-            byte[] content = fileService.getFileContent(type, filename);
-            if (content == null) {
-                log.error("File not found: {} in type: {}", filename, type);
-                response.sendError(HttpStatus.NOT_FOUND.value(), "File not found");
-                return;
-            }
+            Path file = fileService.resolveFile(type, filename);
 
-            long fileSize = content.length;
+            long fileSize = Files.size(file);
             if (fileSize > MAX_FILE_SIZE) {
                 log.warn("File too large: {} ({} bytes)", filename, fileSize);
                 response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), "File too large");
@@ -138,12 +173,23 @@ public class FileController {
             }
 
             if ((filename.toLowerCase().endsWith(".msg") || filename.toLowerCase().endsWith(".eml"))) {
-                fileService.serveMsgFile(type, filename, response);
+                try (MemoryBudget.Reservation reservation = memoryBudget.reserve(memoryBudget.expectedBytes(fileSize, true))) {
+                    fileService.serveMsgFile(type, filename, response);
+                }
                 return;
             }
 
-            fileService.serveRegularFile(type, filename, response);
+            if (asyncFileStreamer.isEnabled()) {
+                streamAsync(file, filename, "inline", true, request, response);
+                return;
+            }
+
+            try (MemoryBudget.Reservation reservation = memoryBudget.reserve(fileSize)) {
+                fileService.serveRegularFile(type, filename, response);
+            }
 
+        } catch (MemoryBudgetExceededException e) {
+            sendBusy(response);
         } catch (Exception e) {
             log.error("Error serving file: {} for client IP: {}", filename, request.getRemoteAddr(), e);
             response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Error serving file");
@@ -164,30 +210,38 @@ public class FileController {
             return;
         }
 
-        log.info("Download requested for file: {} from type: {} for client IP: {}", filename, type, request.getRemoteAddr());
+        log.debug("Download requested for file: {} from type: {} for client IP: {}", filename, type, request.getRemoteAddr());
         utilityMethodsService.setCorsHeaders(response);
 
         try {
-            byte[] content = fileService.getFileContent(type, filename);
-            if (content == null) {
-                log.error("File not found: {} in type: {}", filename, type);
-                response.sendError(HttpStatus.NOT_FOUND.value(), "File not found");
+            if (asyncFileStreamer.isEnabled()) {
+                streamAsync(fileService.resolveFile(type, filename), filename, "attachment", false, request, response);
                 return;
             }
 
-            String contentType = fileService.getContentType(filename);
+            try (MemoryBudget.Reservation reservation = reserve(type, filename, false)) {
+                byte[] content = fileService.getFileContent(type, filename);
+                if (content == null) {
+                    log.error("File not found: {} in type: {}", filename, type);
+                    response.sendError(HttpStatus.NOT_FOUND.value(), "File not found");
+                    return;
+                }
 
-            response.setContentType(contentType);
-            response.setContentLength(content.length);
-            response.setHeader("Content-Disposition",
-                    "attachment; filename=\"" + URLEncoder.encode(filename, StandardCharsets.UTF_8) + "\"");
+                String contentType = fileService.getContentType(filename);
 
-            try (OutputStream out = response.getOutputStream()) {
-                out.write(content);
-            }
+                response.setContentType(contentType);
+                response.setContentLength(content.length);
+                response.setHeader("Content-Disposition",
+                        "attachment; filename=\"" + URLEncoder.encode(filename, StandardCharsets.UTF_8) + "\"");
 
-            log.info("File downloaded successfully: {}", filename);
+                try (OutputStream out = response.getOutputStream()) {
+                    out.write(content);
+                }
 
+                log.debug("File downloaded successfully: {}", filename);
+            }
+        } catch (MemoryBudgetExceededException e) {
+            sendBusy(response);
         } catch (Exception e) {
             log.error("Error downloading file: {} for client IP: {}", filename, request.getRemoteAddr(), e);
             response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Error downloading file");
@@ -231,23 +285,7 @@ public class FileController {
         }
 
         try {
-            String fileUrl = utilityMethodsService.getPublicFileUrl(type, filename, request);
-            URL testUrl = new URL(fileUrl);
-
-            HttpURLConnection connection = (HttpURLConnection) testUrl.openConnection();
-            connection.setRequestMethod("HEAD");
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
-
-            int responseCode = connection.getResponseCode();
-            boolean isPublic = responseCode == 200;
-
-            return ResponseEntity.ok(Map.of(
-                    "filename", filename,
-                    "isPublic", isPublic,
-                    "publicUrl", fileUrl,
-                    "message", isPublic ? "File is publicly accessible" : "File is not publicly accessible"
-            ));
+            return ResponseEntity.ok(publicAccessChecker.check(type, filename, request));
         } catch (Exception e) {
             log.error("Error checking public access for file: {} for client IP: {}", filename, request.getRemoteAddr(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -283,23 +321,32 @@ public class FileController {
         utilityMethodsService.setCorsHeaders(response);
 
         try {
-            byte[] content = fileService.getFileContent(tokenInfo.type, filename);
-            if (content == null) {
-                log.error("File not found: {} in type: {}", filename, tokenInfo.type);
-                response.sendError(HttpStatus.NOT_FOUND.value(), "File not found");
+            if (asyncFileStreamer.isEnabled()) {
+                streamAsync(fileService.resolveFile(tokenInfo.type, filename), filename, "inline", false, request, response);
                 return;
             }
 
-            String contentType = fileService.getContentType(filename);
+            try (MemoryBudget.Reservation reservation = reserve(tokenInfo.type, filename, false)) {
+                byte[] content = fileService.getFileContent(tokenInfo.type, filename);
+                if (content == null) {
+                    log.error("File not found: {} in type: {}", filename, tokenInfo.type);
+                    response.sendError(HttpStatus.NOT_FOUND.value(), "File not found");
+                    return;
+                }
 
-            response.setContentType(contentType);
-            response.setContentLength(content.length);
-            response.setHeader("Content-Disposition",
-                    "inline; filename=\"" + URLEncoder.encode(filename, StandardCharsets.UTF_8) + "\"");
+                String contentType = fileService.getContentType(filename);
 
-            try (OutputStream out = response.getOutputStream()) {
-                out.write(content);
+                response.setContentType(contentType);
+                response.setContentLength(content.length);
+                response.setHeader("Content-Disposition",
+                        "inline; filename=\"" + URLEncoder.encode(filename, StandardCharsets.UTF_8) + "\"");
+
+                try (OutputStream out = response.getOutputStream()) {
+                    out.write(content);
+                }
             }
+        } catch (MemoryBudgetExceededException e) {
+            sendBusy(response);
         } catch (Exception e) {
             log.error("Error serving public file: {} for client IP: {}", filename, request.getRemoteAddr(), e);
             response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Error serving file");
@@ -321,14 +368,8 @@ public class FileController {
             return ResponseEntity.notFound().build();
         }
 
-        String clientIp = utilityMethodsService.getClientIp(request);
-        if (utilityMethodsService.isRateLimited(clientIp)) {
-            log.warn("Rate limit exceeded for IP: {}", clientIp);
-            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
-                    .body(Map.of("error", "Too many requests. Try again later."));
-        }
-
         try {
+            fileService.prefetch(type, filename);
             String token = utilityMethodsService.generateToken(filename, type);
             return ResponseEntity.ok(Map.of(
                     "token", token,
@@ -336,10 +377,36 @@ public class FileController {
                     "publicUrl", utilityMethodsService.getPublicFileUrlWithToken(filename, token, request)
             ));
         } catch (Exception e) {
-            log.error("Error generating token for file: {} for client IP: {}", filename, clientIp, e);
+            log.error("Error generating token for file: {} for client IP: {}", filename, utilityMethodsService.getClientIp(request), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Failed to generate token"));
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Sets the download headers and hands the body to the non-blocking streamer.
+     */
+    private void streamAsync(Path file, String filename, String disposition, boolean noCache,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(fileService.getContentType(filename));
+        response.setContentLengthLong(Files.size(file));
+        if (noCache) {
+            response.setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
+            response.setHeader("Pragma", "no-cache");
+            response.setHeader("Expires", "0");
+        }
+        response.setHeader("Content-Disposition",
+                disposition + "; filename=\"" + URLEncoder.encode(filename, StandardCharsets.UTF_8) + "\"");
+        asyncFileStreamer.stream(file, request, response);
+    }
+
+    private MemoryBudget.Reservation reserve(String type, String filename, boolean rendered) throws IOException {
+        long size = Files.size(fileService.resolveFile(type, filename));
+        return memoryBudget.reserve(memoryBudget.expectedBytes(size, rendered));
+    }
+
+    private void sendBusy(HttpServletResponse response) throws IOException {
+        response.setHeader("Retry-After", "1");
+        response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Server busy, please retry");
+    }
+}
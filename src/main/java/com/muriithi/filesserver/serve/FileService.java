@@ -4,6 +4,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
@@ -15,8 +16,14 @@ public interface FileService {
 
     byte[] getFileContent(String type, String filename) throws IOException;
 
+    byte[] readFile(String type, Path file) throws IOException;
+
+    Path resolveFile(String type, String filename) throws IOException;
+
     boolean fileExists(String type, String filename);
 
+    void prefetch(String type, String filename);
+
     String getContentType(String filename);
 
     boolean isOfficeFile(String filename);
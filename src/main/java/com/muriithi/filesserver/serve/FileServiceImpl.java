@@ -2,6 +2,9 @@ package com.muriithi.filesserver.serve;
 
 import com.auxilii.msgparser.Message;
 import com.auxilii.msgparser.MsgParser;
+import com.muriithi.filesserver.observability.FileReadEvent;
+import com.muriithi.filesserver.storage.FileLayout;
+import com.muriithi.filesserver.storage.TieredFileStore;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -23,9 +26,7 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -33,6 +34,9 @@ public class FileServiceImpl implements FileService {
 
     private static final Logger log = LoggerFactory.getLogger(FileServiceImpl.class);
     private final UtilityMethodsService utilityMethodsService;
+    private final HotFileCache hotFileCache;
+    private final FileLayout fileLayout;
+    private final TieredFileStore tieredFileStore;
 
     @Value("${file.storage.base-path:./files}")
     private String basePath;
@@ -75,19 +79,15 @@ public class FileServiceImpl implements FileService {
         }
 
         try {
-            Path folderPath = Paths.get(basePath, typeToFolder.get(type));
+            Path folderPath = fileLayout.folder(typeToFolder.get(type));
 
-            if (!Files.exists(folderPath)) {
+            if (!tieredFileStore.isTiered() && !Files.exists(folderPath)) {
                 Files.createDirectories(folderPath);
                 log.info("Created directory: {}", folderPath);
                 return new ArrayList<>();
             }
 
-            return Files.list(folderPath)
-                    .filter(Files::isRegularFile)
-                    .map(path -> path.getFileName().toString())
-                    .sorted()
-                    .collect(Collectors.toList());
+            return tieredFileStore.list(typeToFolder.get(type));
 
         } catch (IOException e) {
             log.error("Error reading folder for type: {}", type, e);
@@ -97,17 +97,37 @@ public class FileServiceImpl implements FileService {
 
     @Override
     public byte[] getFileContent(String type, String filename) throws IOException {
+        return readFile(type, resolveFile(type, filename));
+    }
+
+    @Override
+    public byte[] readFile(String type, Path file) throws IOException {
+        FileReadEvent event = new FileReadEvent();
+        event.begin();
+        byte[] content = hotFileCache.read(file);
+        event.end();
+        if (event.shouldCommit()) {
+            event.type = type;
+            event.filename = file.getFileName().toString();
+            event.bytes = content.length;
+            event.commit();
+        }
+        return content;
+    }
+
+    @Override
+    public Path resolveFile(String type, String filename) throws IOException {
         if (!typeToFolder.containsKey(type)) {
             throw new IllegalArgumentException("Invalid file type: " + type);
         }
 
-        Path filePath = Paths.get(basePath, typeToFolder.get(type), filename);
+        Path filePath = tieredFileStore.fetch(typeToFolder.get(type), filename);
 
         if (!Files.exists(filePath) || !Files.isRegularFile(filePath)) {
             throw new IOException("File not found: " + filename);
         }
 
-        return Files.readAllBytes(filePath);
+        return filePath;
     }
 
     @Override
@@ -116,8 +136,19 @@ public class FileServiceImpl implements FileService {
             return false;
         }
 
-        Path filePath = Paths.get(basePath, typeToFolder.get(type), filename);
-        return Files.exists(filePath) && Files.isRegularFile(filePath);
+        try {
+            return tieredFileStore.exists(typeToFolder.get(type), filename);
+        } catch (IOException e) {
+            log.warn("Could not check whether {} exists in type: {}", filename, type, e);
+            return false;
+        }
+    }
+
+    @Override
+    public void prefetch(String type, String filename) {
+        if (typeToFolder.containsKey(type)) {
+            tieredFileStore.prefetch(typeToFolder.get(type), filename);
+        }
     }
 
     @Override
@@ -242,6 +273,8 @@ public class FileServiceImpl implements FileService {
                 return;
             }
 
+            // The viewer fetches the file through the public URL right after this page loads
+            prefetch(type, filename);
             String token = utilityMethodsService.generateToken(filename, type);
             String publicUrl = utilityMethodsService.getPublicFileUrlWithToken(filename, token, request);
 
@@ -257,7 +290,7 @@ public class FileServiceImpl implements FileService {
                                     HttpServletResponse response) throws IOException {
         String htmlContent = PdfHtmlGenerator.createPdfViewerHtml(filename, type, request, utilityMethodsService.getPublicFileUrl(type, filename, request));
         serveHtmlContent(htmlContent, filename, response);
-        log.info("PDF served with PDF.js viewer: {}", filename);
+        log.debug("PDF served with PDF.js viewer: {}", filename);
     }
 
     private void serveOfficeFileWithViewerOptions(String type, String filename, HttpServletRequest request,
@@ -280,8 +313,6 @@ public class FileServiceImpl implements FileService {
         response.setHeader("Pragma", "no-cache");
         response.setHeader("Expires", "0");
 
-        log.info("HTML content:::::::::::: {}\n ==============={}", htmlContent, response.getOutputStream());
-
         try (java.io.PrintWriter writer = response.getWriter()) {
             writer.write(htmlContent);
         }
@@ -308,7 +339,7 @@ public class FileServiceImpl implements FileService {
             out.write(content);
         }
 
-        log.info("Office file served as fallback download: {}", filename);
+        log.debug("Office file served as fallback download: {}", filename);
     }
 
     @Override
@@ -386,14 +417,10 @@ public class FileServiceImpl implements FileService {
             out.write(content);
         }
 
-        log.info("Regular file served: {}", filename);
+        log.debug("Regular file served: {}", filename);
     }
 
     private long getFileSize(String type, String filename) throws IOException {
-        byte[] content = getFileContent(type, filename);
-        if (content == null) {
-            throw new IOException("File not found: " + filename);
-        }
-        return content.length;
+        return Files.size(resolveFile(type, filename));
     }
 }
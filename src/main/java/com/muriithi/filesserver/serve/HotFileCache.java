@@ -0,0 +1,377 @@
+package com.muriithi.filesserver.serve;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Byte-budgeted cache of small stored files, so the handful of PDFs and images that get most of the
+ * traffic are not read from disk on every request.
+ *
+ * <p>Admission is TinyLFU-style: every lookup bumps the file's count in a small frequency sketch, and
+ * a file that would need evictions only gets in if it has been requested more often than each LRU
+ * victim it displaces. A one-off download therefore cannot push out the hot set; files above
+ * {@code max-file-kb} are never cached at all.
+ *
+ * <p>Entries are validated against the file's mtime, size and file key on every hit, which catches
+ * replacement by rename as well as in-place writes. With {@code watch} on, directory events also drop
+ * entries as soon as their file changes, so stale content does not hold the budget until the next hit.
+ *
+ * <p>With {@code off-heap} the cached bytes live in direct buffers instead of the old generation;
+ * a hit then copies into a short-lived array because callers take {@code byte[]}. On heap, hits share
+ * the cached array, which callers must treat as read-only.
+ */
+@Component
+public class HotFileCache {
+
+    private static final Logger log = LoggerFactory.getLogger(HotFileCache.class);
+
+    private final long maxBytes;
+    private final long maxFileBytes;
+    private final boolean offHeap;
+    private final boolean watch;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long currentBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter rejected;
+    private final Counter evictions;
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    private final Set<Path> watchedDirectories = ConcurrentHashMap.newKeySet();
+    private WatchService watchService;
+
+    public HotFileCache(@Value("${file.serving.hot-cache.max-mb:64}") long maxMb,
+                        @Value("${file.serving.hot-cache.max-file-kb:1024}") long maxFileKb,
+                        @Value("${file.serving.hot-cache.off-heap:false}") boolean offHeap,
+                        @Value("${file.serving.hot-cache.watch:true}") boolean watch,
+                        MeterRegistry registry) {
+        this.maxBytes = maxMb * 1024 * 1024;
+        this.maxFileBytes = Math.min(maxFileKb * 1024, maxBytes / 4);
+        this.offHeap = offHeap;
+        this.watch = watch;
+        // Sized for the number of average (quarter of the size limit) files that fit in the budget
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, maxBytes / Math.max(1, maxFileBytes / 4)));
+
+        this.hits = registry.counter("files.hot.cache", "result", "hit");
+        this.misses = registry.counter("files.hot.cache", "result", "miss");
+        this.rejected = Counter.builder("files.hot.cache.rejected")
+                .description("Files not admitted because the entries they would evict were requested more often")
+                .register(registry);
+        this.evictions = registry.counter("files.hot.cache.evictions");
+        FunctionCounter.builder("files.hot.cache.saved", bytesSaved, AtomicLong::get)
+                .description("Disk reads avoided by serving from the hot-file cache")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("files.hot.cache.size", this, HotFileCache::sizeBytes).baseUnit("bytes").register(registry);
+        Gauge.builder("files.hot.cache.entries", this, HotFileCache::entryCount).register(registry);
+        Gauge.builder("files.hot.cache.hit.ratio", this, HotFileCache::hitRatio).register(registry);
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Returns the file's content from the cache if it is current, otherwise reads it and offers it
+     * for admission.
+     */
+    public byte[] read(Path file) throws IOException {
+        if (!isEnabled()) {
+            return Files.readAllBytes(file);
+        }
+
+        Path key = file.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+
+        Entry cached;
+        synchronized (this) {
+            sketch.increment(key);
+            cached = entries.get(key);
+            if (cached != null && !cached.matches(attributes)) {
+                remove(key);
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            hits.increment();
+            bytesSaved.addAndGet(cached.size());
+            return cached.content();
+        }
+
+        misses.increment();
+        byte[] content = Files.readAllBytes(key);
+        if (content.length <= maxFileBytes && content.length == attributes.size()
+                && unchanged(key, attributes) && makeRoom(key, content.length, false)) {
+            admit(key, attributes, content);
+        }
+        return content;
+    }
+
+    public synchronized void invalidate(Path file) {
+        remove(file.toAbsolutePath().normalize());
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    private void admit(Path key, BasicFileAttributes attributes, byte[] content) {
+        ByteBuffer direct = null;
+        if (offHeap) {
+            direct = ByteBuffer.allocateDirect(content.length).put(content).flip();
+        }
+        Entry entry = new Entry(offHeap ? null : content, direct, content.length,
+                attributes.lastModifiedTime(), attributes.fileKey());
+
+        synchronized (this) {
+            if (entries.containsKey(key) || !makeRoom(key, entry.size(), true)) {
+                return;
+            }
+            entries.put(key, entry);
+            currentBytes += entry.size();
+        }
+        watch(key.getParent());
+    }
+
+    /*
+     * Finds the LRU victims needed to fit `size` more bytes. The candidate is admitted only if it is
+     * more frequent than every victim; with `evict` the victims are then removed.
+     */
+    private synchronized boolean makeRoom(Path key, long size, boolean evict) {
+        long needed = currentBytes + size - maxBytes;
+        if (needed <= 0) {
+            return true;
+        }
+
+        int candidateFrequency = sketch.frequency(key);
+        List<Path> victims = new ArrayList<>();
+        long freed = 0;
+        Iterator<Map.Entry<Path, Entry>> eldest = entries.entrySet().iterator();
+        while (freed < needed && eldest.hasNext()) {
+            Map.Entry<Path, Entry> victim = eldest.next();
+            if (sketch.frequency(victim.getKey()) >= candidateFrequency) {
+                rejected.increment();
+                return false;
+            }
+            victims.add(victim.getKey());
+            freed += victim.getValue().size();
+        }
+        if (freed < needed) {
+            return false;
+        }
+
+        if (evict) {
+            for (Path victim : victims) {
+                remove(victim);
+                evictions.increment();
+            }
+        }
+        return true;
+    }
+
+    private void remove(Path key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            currentBytes -= removed.size();
+        }
+    }
+
+    private static boolean unchanged(Path key, BasicFileAttributes before) throws IOException {
+        BasicFileAttributes after = Files.readAttributes(key, BasicFileAttributes.class);
+        return after.lastModifiedTime().equals(before.lastModifiedTime()) && after.size() == before.size();
+    }
+
+    private synchronized long sizeBytes() {
+        return currentBytes;
+    }
+
+    private synchronized int entryCount() {
+        return entries.size();
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private void watch(Path directory) {
+        if (!watch || directory == null || watchedDirectories.contains(directory)) {
+            return;
+        }
+        synchronized (watchedDirectories) {
+            if (!watchedDirectories.add(directory)) {
+                return;
+            }
+            try {
+                if (watchService == null) {
+                    watchService = FileSystems.getDefault().newWatchService();
+                    Thread.ofPlatform().name("files-hot-cache-watch").daemon(true).start(this::watchLoop);
+                }
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            } catch (IOException e) {
+                // Entries are still validated on every hit; the watch only frees memory sooner
+                log.warn("Could not watch {} for hot-file cache invalidation", directory, e);
+            }
+        }
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        clear();
+                    } else {
+                        invalidate(directory.resolve((Path) event.context()));
+                    }
+                }
+                if (!key.reset()) {
+                    watchedDirectories.remove(directory);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (watchedDirectories) {
+            if (watchService != null) {
+                watchService.close();
+            }
+        }
+    }
+
+    private record Entry(byte[] heap, ByteBuffer direct, int size, FileTime lastModified, Object fileKey) {
+
+        boolean matches(BasicFileAttributes attributes) {
+            return attributes.size() == size
+                    && attributes.lastModifiedTime().equals(lastModified)
+                    && Objects.equals(attributes.fileKey(), fileKey);
+        }
+
+        byte[] content() {
+            if (heap != null) {
+                return heap;
+            }
+            byte[] copy = new byte[size];
+            direct.duplicate().get(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, sixteen to a {@code long}. Each key maps to four counters in
+     * different words; its frequency is the smallest of them. Once the number of increments reaches
+     * ten times the table width all counters are halved, so popularity ages out.
+     */
+    static final class FrequencySketch {
+
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long ONE_MASK = 0x1111111111111111L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int width = Integer.highestOneBit(Math.max(64, expectedEntries) - 1) << 1;
+            this.table = new long[width];
+            this.tableMask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            int frequency = 15;
+            for (int i = 0; i < 4; i++) {
+                long word = table[indexOf(hash, i)];
+                frequency = Math.min(frequency, (int) ((word >>> ((start + i) << 2)) & 0xfL));
+            }
+            return frequency;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(indexOf(hash, i), start + i);
+            }
+            if (added && ++additions == sampleSize) {
+                reset();
+            }
+        }
+
+        private boolean incrementAt(int index, int counter) {
+            int offset = counter << 2;
+            long mask = 0xfL << offset;
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << offset;
+                return true;
+            }
+            return false;
+        }
+
+        private void reset() {
+            int odd = 0;
+            for (int i = 0; i < table.length; i++) {
+                odd += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions = (additions - (odd >>> 2)) >>> 1;
+        }
+
+        private int indexOf(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & tableMask;
+        }
+
+        private static int spread(int hash) {
+            hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+            hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+            return (hash >>> 16) ^ hash;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.muriithi.filesserver.serve;
+
+import com.muriithi.filesserver.config.AppExecutors;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers {@code /public-check} without calling back into this server on the request thread.
+ *
+ * <p>Whether a file is public is resolved in-process: the file must exist and {@code /download} is
+ * served without a token. Whether the server's public base URL is actually reachable is the only
+ * thing an external request can tell us, and that does not depend on the file, so it is probed once
+ * per base URL in the background and cached for {@code file.public-check.ttl-seconds}.
+ *
+ * <p>Only {@code server.public-url} and the bases listed in {@code file.public-check.allowed-base-urls}
+ * are ever probed. Without them the base URL comes from the request's Host header, and probing that
+ * would let any client point the server at an address of its choosing. A file is reported public only
+ * once its base URL has been probed and answered; until then, or when the base is never probed, the
+ * reachability is "unknown" and the file is not reported public.
+ */
+@Component
+@RequiredArgsConstructor
+public class PublicAccessChecker {
+
+    private static final Logger log = LoggerFactory.getLogger(PublicAccessChecker.class);
+
+    private record Probe(boolean reachable, int status, Instant checkedAt) {
+    }
+
+    private final FileService fileService;
+    private final UtilityMethodsService utilityMethodsService;
+    private final AppExecutors appExecutors;
+
+    private final Map<String, Probe> probes = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> inFlight = new ConcurrentHashMap<>();
+
+    private final Set<String> probedBases = new HashSet<>();
+    private HttpClient httpClient;
+
+    @Value("${server.public-url:}")
+    private String publicUrl;
+
+    @Value("${file.public-check.allowed-base-urls:}")
+    private List<String> allowedBaseUrls;
+
+    @Value("${file.public-check.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${file.public-check.probe-timeout-seconds:5}")
+    private long probeTimeoutSeconds;
+
+    @Value("${file.token.expiry.minutes:5}")
+    private int tokenExpiryMinutes;
+
+    @PostConstruct
+    public void start() {
+        if (!publicUrl.isBlank()) {
+            probedBases.add(withoutTrailingSlash(publicUrl));
+        }
+        allowedBaseUrls.stream()
+                .filter(base -> !base.isBlank())
+                .forEach(base -> probedBases.add(withoutTrailingSlash(base.trim())));
+        if (probedBases.isEmpty()) {
+            log.info("Neither server.public-url nor file.public-check.allowed-base-urls is set; "
+                    + "/public-check will not probe reachability");
+            return;
+        }
+
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(probeTimeoutSeconds))
+                .executor(appExecutors.io())
+                .build();
+        appExecutors.scheduler().scheduleWithFixedDelay(this::refreshAll, ttlSeconds, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    public Map<String, Object> check(String type, String filename, HttpServletRequest request) {
+        String baseUrl = utilityMethodsService.getServerBaseUrl(request);
+        String fileUrl = utilityMethodsService.getPublicFileUrl(type, filename, request);
+        boolean exists = fileService.fileExists(type, filename);
+
+        boolean probed = probedBases.contains(withoutTrailingSlash(baseUrl));
+        Probe probe = probed ? probes.get(withoutTrailingSlash(baseUrl)) : null;
+        if (probed && probe == null) {
+            probeAsync(withoutTrailingSlash(baseUrl));
+        }
+        Boolean reachable = probe == null || isStale(probe) ? null : probe.reachable();
+        boolean isPublic = exists && Boolean.TRUE.equals(reachable);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("filename", filename);
+        result.put("isPublic", isPublic);
+        result.put("publicUrl", fileUrl);
+        result.put("fileExists", exists);
+        result.put("serverReachable", reachable == null ? "unknown" : reachable);
+        result.put("reachabilityCheckedAt", probe == null ? null : probe.checkedAt().toString());
+        result.put("tokenExpiryMinutes", tokenExpiryMinutes);
+        result.put("message", !exists ? "File not found"
+                : isPublic ? "File is publicly accessible"
+                : reachable != null ? "Public URL is not reachable"
+                : probed ? "Public URL reachability not yet verified"
+                : "Public URL reachability is not checked for this host; set server.public-url");
+        return result;
+    }
+
+    private boolean isStale(Probe probe) {
+        // Refreshes run every TTL, so anything older than two TTLs means the prober is failing to finish
+        return probe.checkedAt().plusSeconds(ttlSeconds * 2).isBefore(Instant.now());
+    }
+
+    private void refreshAll() {
+        probes.keySet().forEach(this::probeAsync);
+    }
+
+    private void probeAsync(String baseUrl) {
+        if (inFlight.putIfAbsent(baseUrl, Boolean.TRUE) != null) {
+            return;
+        }
+
+        HttpRequest probe = HttpRequest.newBuilder(URI.create(baseUrl + "/api/files/ping"))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(probeTimeoutSeconds))
+                .build();
+        httpClient.sendAsync(probe, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    inFlight.remove(baseUrl);
+                    if (error != null) {
+                        log.warn("Public URL probe failed for {}: {}", baseUrl, error.toString());
+                        probes.put(baseUrl, new Probe(false, -1, Instant.now()));
+                    } else {
+                        probes.put(baseUrl, new Probe(response.statusCode() == 200, response.statusCode(), Instant.now()));
+                    }
+                });
+    }
+
+    private static String withoutTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -6,12 +6,10 @@ public class TokenInfo {
     final String filename;
     final String type;
     final Instant expiry;
-    final String tokenHash;
 
-    TokenInfo(String filename, String type, Instant expiry, String tokenHash) {
+    TokenInfo(String filename, String type, Instant expiry) {
         this.filename = filename;
         this.type = type;
         this.expiry = expiry;
-        this.tokenHash = tokenHash;
     }
 }
@@ -1,42 +1,26 @@
 package com.muriithi.filesserver.serve;
 
-import jakarta.annotation.PreDestroy;
+import com.muriithi.filesserver.observability.FileMetrics;
+import com.muriithi.filesserver.observability.TokenValidationEvent;
+import com.muriithi.filesserver.security.AccessTokenSigner;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
-import java.util.Base64;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 @Component
 @RequiredArgsConstructor
 public class UtilityMethodsService {
 
-    private final Map<String, TokenInfo> activeTokens = new ConcurrentHashMap<>();
+    private final AccessTokenSigner accessTokenSigner;
 
-    private final Map<String, RateLimitInfo> rateLimitMap = new ConcurrentHashMap<>();
-
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-
-    private final SecureRandom secureRandom = new SecureRandom();
-
-    private static final int MAX_TOKENS_PER_MINUTE = 10;
+    private final FileMetrics fileMetrics;
 
     private static final Set<String> OFFICE_EXTENSIONS = Set.of(
             "doc", "docx", "xls", "xlsx", "ppt", "pptx", "rtf"
@@ -48,15 +32,9 @@ public class UtilityMethodsService {
     @Value("${server.public-url:#{null}}")
     private String publicUrl;
 
-    @Value("${file.token.expiry.minutes:5}")
-    private int tokenExpiryMinutes;
-
     @Value("${cors.allowed-origins:*}")
     private String allowedOrigins;
 
-    @Value("${token.secret:default-secret}")
-    private String tokenSecret;
-
 
 
     public String getClientIp(HttpServletRequest request) {
@@ -78,7 +56,7 @@ public class UtilityMethodsService {
         return request.getRemoteAddr();
     }
 
-    private String getServerBaseUrl(HttpServletRequest request) {
+    public String getServerBaseUrl(HttpServletRequest request) {
         if (publicUrl != null && !publicUrl.isEmpty()) {
             return publicUrl;
         }
@@ -109,64 +87,25 @@ public class UtilityMethodsService {
     }
 
     public String generateToken(String filename, String type) {
-        byte[] randomBytes = new byte[32];
-        secureRandom.nextBytes(randomBytes);
-        String plainToken = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
-        String tokenHash = hashToken(plainToken);
-
-        activeTokens.put(tokenHash, new TokenInfo(
-                filename,
-                type,
-                Instant.now().plus(tokenExpiryMinutes, ChronoUnit.MINUTES),
-                tokenHash
-        ));
-        return plainToken;
-    }
-
-    private String hashToken(String token) {
-        try {
-            Mac mac = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(tokenSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            mac.init(secretKeySpec);
-            byte[] hash = mac.doFinal(token.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(hash);
-        } catch (NoSuchAlgorithmException | java.security.InvalidKeyException e) {
-            throw new RuntimeException("Failed to hash token", e);
-        }
+        String token = accessTokenSigner.issue(filename, type);
+        fileMetrics.tokenIssued();
+        return token;
     }
 
     public TokenInfo validateToken(String token, String filename) {
-        String tokenHash = hashToken(token);
-        TokenInfo info = activeTokens.get(tokenHash);
-        if (info == null || Instant.now().isAfter(info.expiry) || !filename.equals(info.filename)) {
+        TokenValidationEvent event = new TokenValidationEvent();
+        event.begin();
+        AccessTokenSigner.AccessToken accessToken = accessTokenSigner.verify(token, filename);
+        event.end();
+        if (event.shouldCommit()) {
+            event.valid = accessToken != null;
+            event.commit();
+        }
+        fileMetrics.tokenVerified(accessToken != null);
+        if (accessToken == null) {
             return null;
         }
-        return info;
-    }
-
-    public boolean isRateLimited(String clientIp) {
-        RateLimitInfo info = rateLimitMap.compute(clientIp, (key, existing) -> {
-            if (existing == null) {
-                return new RateLimitInfo();
-            }
-
-            if (existing.timestamp.plus(1, ChronoUnit.MINUTES).isBefore(Instant.now())) {
-                return new RateLimitInfo();
-            }
-
-            existing.count.incrementAndGet();
-            return existing;
-        });
-
-        return info.count.get() > MAX_TOKENS_PER_MINUTE;
-    }
-
-    public void cleanupExpiredTokens() {
-        Instant now = Instant.now();
-        activeTokens.entrySet().removeIf(entry -> now.isAfter(entry.getValue().expiry));
-        rateLimitMap.entrySet().removeIf(entry ->
-                entry.getValue().timestamp.plus(1, ChronoUnit.HOURS).isBefore(now)
-        );
+        return new TokenInfo(accessToken.filename(), accessToken.type(), accessToken.expiry());
     }
 
     public boolean isValidInput(String type, String filename) {
@@ -204,21 +143,4 @@ public class UtilityMethodsService {
         response.setHeader("Access-Control-Allow-Headers", "Content-Type, Authorization");
         response.setHeader("Access-Control-Max-Age", "3600");
     }
-
-    @PreDestroy
-    public void cleanup() {
-        activeTokens.clear();
-        rateLimitMap.clear();
-        if (scheduler != null && !scheduler.isShutdown()) {
-            scheduler.shutdown();
-            try {
-                if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                    scheduler.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                scheduler.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-        }
-    }
 }
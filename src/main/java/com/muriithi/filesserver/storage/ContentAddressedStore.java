@@ -0,0 +1,230 @@
+package com.muriithi.filesserver.storage;
+
+import com.muriithi.filesserver.config.AppExecutors;
+import com.muriithi.filesserver.security.AccessTokenSigner;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Optional content-addressed blob store under {@code <base-path>/.blobs}. Each distinct content is
+ * kept once, named by its SHA-256, and the type folders hold hard links to it, so the serving code
+ * reads them like any other file. Blobs no longer linked from any folder are collected periodically.
+ *
+ * <p>Publishing by hash needs a content token: an access token whose claim is the hash, handed out
+ * with every upload of that content. Without it, anyone could probe whether the server holds a file
+ * with a given hash.
+ */
+@Component
+@RequiredArgsConstructor
+public class ContentAddressedStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentAddressedStore.class);
+
+    private static final Pattern SHA256_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+    private static final String LINK_PREFIX = ".upload-";
+    private static final String CONTENT_TOKEN_TYPE = "sha256";
+
+    private final AppExecutors appExecutors;
+    private final AccessTokenSigner accessTokenSigner;
+
+    @Value("${file.storage.base-path:./files}")
+    private String basePath;
+
+    @Value("${file.storage.dedup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${file.storage.dedup.gc-interval-minutes:60}")
+    private long gcIntervalMinutes;
+
+    @Value("${file.storage.dedup.content-token-hours:24}")
+    private long contentTokenHours;
+
+    private volatile boolean linksSupported = true;
+
+    @PostConstruct
+    public void scheduleGarbageCollection() {
+        if (enabled) {
+            appExecutors.scheduler().scheduleWithFixedDelay(
+                    () -> appExecutors.io().execute(this::collectGarbage),
+                    gcIntervalMinutes, gcIntervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static boolean isValidHash(String sha256) {
+        return sha256 != null && SHA256_PATTERN.matcher(sha256).matches();
+    }
+
+    public Path blobPath(String sha256) {
+        if (!isValidHash(sha256)) {
+            throw new IllegalArgumentException("Invalid content hash: " + sha256);
+        }
+        return root().resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    /**
+     * Token that lets the holder publish this content again by hash, without uploading it.
+     */
+    public String issueContentToken(String sha256) {
+        return accessTokenSigner.issue(sha256, CONTENT_TOKEN_TYPE, Duration.ofHours(contentTokenHours));
+    }
+
+    public boolean acceptsContentToken(String token, String sha256) {
+        if (token == null || !isValidHash(sha256)) {
+            return false;
+        }
+        AccessTokenSigner.AccessToken accessToken = accessTokenSigner.verify(token, sha256);
+        return accessToken != null && CONTENT_TOKEN_TYPE.equals(accessToken.type());
+    }
+
+    public boolean contains(String sha256) {
+        return isValidHash(sha256) && Files.isRegularFile(blobPath(sha256));
+    }
+
+    /**
+     * Commits a fully written temp file: reuses the existing blob for its hash or moves the temp
+     * file in as the new blob, then atomically points {@code target} at it.
+     *
+     * @return true if the content was already stored
+     */
+    public boolean commit(Path temp, String sha256, Path target) throws IOException {
+        Path blob = blobPath(sha256);
+        if (Files.exists(blob)) {
+            try {
+                linkInto(blob, target);
+                Files.deleteIfExists(temp);
+                return true;
+            } catch (NoSuchFileException e) {
+                // Collected between the check and the link; store this copy instead
+            }
+        }
+
+        Files.createDirectories(blob.getParent());
+        try {
+            Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, blob, StandardCopyOption.REPLACE_EXISTING);
+        }
+        linkInto(blob, target);
+        return false;
+    }
+
+    /**
+     * Points {@code target} at already-stored content without any upload.
+     *
+     * @return the content size, or -1 if no blob exists for the hash
+     */
+    public long linkExisting(String sha256, Path target) throws IOException {
+        Path blob = blobPath(sha256);
+        try {
+            long size = Files.size(blob);
+            linkInto(blob, target);
+            return size;
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+    }
+
+    private void linkInto(Path blob, Path target) throws IOException {
+        Path tempLink = target.resolveSibling(LINK_PREFIX + UUID.randomUUID() + ".link");
+        try {
+            if (linksSupported) {
+                try {
+                    Files.createLink(tempLink, blob);
+                } catch (UnsupportedOperationException e) {
+                    disableLinks(e);
+                } catch (FileSystemException e) {
+                    // Anything else (EMFILE, ENOSPC, ...) may be transient: fail this upload, keep linking
+                    if (!isCrossDevice(e)) {
+                        throw e;
+                    }
+                    disableLinks(e);
+                }
+            }
+            if (!linksSupported) {
+                Files.copy(blob, tempLink);
+            }
+            try {
+                Files.move(tempLink, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempLink, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempLink);
+        }
+    }
+
+    private void disableLinks(Exception cause) {
+        log.warn("Hard links not supported under {}; deduplicated files will be copied", root(), cause);
+        linksSupported = false;
+    }
+
+    private static boolean isCrossDevice(FileSystemException e) {
+        // EXDEV: the blob store and the type folder are on different filesystems
+        return e.getReason() != null && e.getReason().toLowerCase().contains("cross-device");
+    }
+
+    /**
+     * Deletes blobs that no folder links to any more. Recently written blobs are skipped so a
+     * commit between its move and its link is never raced.
+     */
+    public void collectGarbage() {
+        Path root = root();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(1, ChronoUnit.HOURS);
+        AtomicLong removed = new AtomicLong();
+
+        try (Stream<Path> blobs = Files.walk(root)) {
+            blobs.filter(Files::isRegularFile).forEach(blob -> {
+                try {
+                    int links = (Integer) Files.getAttribute(blob, "unix:nlink");
+                    if (links <= 1 && Files.getLastModifiedTime(blob).toInstant().isBefore(cutoff)) {
+                        Files.deleteIfExists(blob);
+                        removed.incrementAndGet();
+                    }
+                } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                    // No link counts on this filesystem; nothing can be collected safely
+                } catch (IOException e) {
+                    log.warn("Failed to inspect blob {}", blob.getFileName(), e);
+                }
+            });
+        } catch (IOException e) {
+            log.error("Blob garbage collection failed", e);
+            return;
+        }
+
+        if (removed.get() > 0) {
+            log.info("Removed {} unreferenced blobs", removed.get());
+        }
+    }
+
+    private Path root() {
+        return Paths.get(basePath, ".blobs");
+    }
+}
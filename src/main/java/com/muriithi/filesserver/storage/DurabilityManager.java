@@ -0,0 +1,260 @@
+package com.muriithi.filesserver.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes written files and directory entries durable according to {@code file.storage.durability.mode}:
+ * <ul>
+ *     <li>{@code none} - rely on the OS to flush eventually (previous behaviour)</li>
+ *     <li>{@code fsync} - fsync every file and directory on the caller's thread</li>
+ *     <li>{@code group-commit} - a background committer collects sync requests for a short window,
+ *     fsyncs each distinct path once, and releases every waiting caller when its batch is durable</li>
+ * </ul>
+ * A batch's fsyncs are issued together on {@code group-commit-threads} sync threads, so the device
+ * sees them at once and can complete them in one flush rather than one after another. The pool is its
+ * own: callers waiting on a commit may be holding every shared I/O thread.
+ * Callers sync a file before publishing it and its directory after, so a crash never exposes a
+ * name pointing at unflushed data.
+ */
+@Component
+public class DurabilityManager {
+
+    private static final Logger log = LoggerFactory.getLogger(DurabilityManager.class);
+
+    public enum Mode { NONE, FSYNC, GROUP_COMMIT }
+
+    // Windows cannot open a directory as a channel, so directory entries cannot be synced there
+    private static final boolean DIRECTORY_SYNC_SUPPORTED =
+            !System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+
+    private record SyncRequest(Path path, boolean directory, CompletableFuture<Void> done) {
+    }
+
+    private final Mode mode;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final int syncThreads;
+    private final BlockingQueue<SyncRequest> queue = new LinkedBlockingQueue<>();
+
+    private volatile boolean running;
+    private Thread committer;
+    private ExecutorService syncers;
+
+    public DurabilityManager(@Value("${file.storage.durability.mode:none}") String mode,
+                             @Value("${file.storage.durability.group-commit-window-ms:5}") long windowMillis,
+                             @Value("${file.storage.durability.group-commit-max-batch:256}") int maxBatch,
+                             @Value("${file.storage.durability.group-commit-threads:8}") int syncThreads) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase().replace('-', '_'));
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatch = maxBatch;
+        this.syncThreads = syncThreads;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (mode == Mode.GROUP_COMMIT) {
+            running = true;
+            if (syncThreads > 1) {
+                syncers = Executors.newFixedThreadPool(syncThreads,
+                        Thread.ofPlatform().name("files-group-sync-", 0).daemon(true).factory());
+            }
+            committer = Thread.ofPlatform().name("files-group-commit").daemon(true).start(this::commitLoop);
+        }
+        log.info("Upload durability mode: {}", mode);
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public void syncFile(Path file) throws IOException {
+        await(List.of(file), false);
+    }
+
+    public void syncDirectories(Path... directories) throws IOException {
+        await(List.of(directories), true);
+    }
+
+    private void await(List<Path> paths, boolean directory) throws IOException {
+        switch (mode) {
+            case NONE -> {
+            }
+            case FSYNC -> {
+                for (Path path : paths) {
+                    force(path, directory);
+                }
+            }
+            case GROUP_COMMIT -> {
+                List<CompletableFuture<Void>> pending = new ArrayList<>(paths.size());
+                for (Path path : paths) {
+                    CompletableFuture<Void> done = new CompletableFuture<>();
+                    queue.add(new SyncRequest(path, directory, done));
+                    pending.add(done);
+                }
+                if (!running) {
+                    // The committer is gone or going; nothing else would ever complete these
+                    failQueued();
+                }
+                for (CompletableFuture<Void> done : pending) {
+                    join(done);
+                }
+            }
+        }
+    }
+
+    private void join(CompletableFuture<Void> done) throws IOException {
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for group commit");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Group commit failed", e.getCause());
+        }
+    }
+
+    private void commitLoop() {
+        List<SyncRequest> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                SyncRequest first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    SyncRequest next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+
+        failQueued();
+    }
+
+    private void failQueued() {
+        SyncRequest leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.done().completeExceptionally(new IOException("Durability manager stopped"));
+        }
+    }
+
+    private void commit(List<SyncRequest> batch) {
+        // File data first, then directory entries; each distinct path is synced once per batch
+        Map<Path, List<SyncRequest>> files = new LinkedHashMap<>();
+        Map<Path, List<SyncRequest>> directories = new LinkedHashMap<>();
+        for (SyncRequest request : batch) {
+            (request.directory() ? directories : files)
+                    .computeIfAbsent(request.path(), k -> new ArrayList<>()).add(request);
+        }
+        commitGroup(files, false);
+        commitGroup(directories, true);
+    }
+
+    private void commitGroup(Map<Path, List<SyncRequest>> requests, boolean directory) {
+        if (syncers == null || requests.size() == 1) {
+            requests.forEach((path, waiting) -> {
+                try {
+                    force(path, directory);
+                    settle(waiting, null);
+                } catch (IOException | RuntimeException e) {
+                    settle(waiting, e);
+                }
+            });
+            return;
+        }
+
+        Map<Path, Future<?>> forces = new LinkedHashMap<>();
+        requests.keySet().forEach(path -> forces.put(path, syncers.submit(() -> {
+            force(path, directory);
+            return null;
+        })));
+        forces.forEach((path, force) -> {
+            try {
+                force.get();
+                settle(requests.get(path), null);
+            } catch (ExecutionException e) {
+                settle(requests.get(path), e.getCause());
+            } catch (InterruptedException e) {
+                // stop() is shutting the committer down; the waiters are failed rather than left hanging
+                Thread.currentThread().interrupt();
+                settle(requests.get(path), new InterruptedIOException("Interrupted during group commit"));
+            }
+        });
+    }
+
+    private static void settle(List<SyncRequest> waiting, Throwable failure) {
+        for (SyncRequest request : waiting) {
+            if (failure == null) {
+                request.done().complete(null);
+            } else {
+                request.done().completeExceptionally(failure);
+            }
+        }
+    }
+
+    private static void force(Path path, boolean directory) throws IOException {
+        if (directory) {
+            if (!DIRECTORY_SYNC_SUPPORTED) {
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                channel.force(true);
+            }
+        } else {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (committer != null) {
+            committer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        if (syncers != null) {
+            syncers.shutdown();
+        }
+        // Covers a committer stuck past the timeout and requests queued while it was exiting
+        failQueued();
+    }
+}
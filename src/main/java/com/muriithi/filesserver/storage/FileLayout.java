@@ -0,0 +1,252 @@
+package com.muriithi.filesserver.storage;
+
+import com.muriithi.filesserver.config.AppExecutors;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Maps a logical (folder, filename) to its place on disk.
+ *
+ * <p>The default flat layout keeps every file of a type directly in {@code <base-path>/<folder>}. With
+ * {@code file.storage.layout.sharded} each file lives {@code depth} directory levels further down,
+ * named by the leading bytes of the SHA-256 of its filename ({@code office/3f/a2/report.docx}), so no
+ * directory grows past a few thousand entries. The location is computed, never searched, so a
+ * lookup stays a couple of stats whatever the folder size; listing a folder goes through an
+ * in-memory name index built on first use, kept current by uploads and rebuilt periodically to pick
+ * up changes made outside the server.
+ *
+ * <p>While a flat folder is being migrated ({@link LayoutMigrator}) a file can be in either place, so
+ * lookups try the sharded location, then the flat one, then the sharded one again: the migrator links
+ * the new name before removing the old, so one of the three always sees it.
+ */
+@Component
+public class FileLayout {
+
+    private static final Logger log = LoggerFactory.getLogger(FileLayout.class);
+
+    private final Path root;
+    private final boolean sharded;
+    private final int depth;
+    private final long indexRebuildMinutes;
+    private final AppExecutors appExecutors;
+
+    private final Map<String, NavigableSet<String>> indexes = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> flatRemaining = new ConcurrentHashMap<>();
+    // Names registered while a folder is being rescanned, replayed into the new index; guarded by itself
+    private final Map<String, List<String>> rebuilding = new HashMap<>();
+
+    public FileLayout(@Value("${file.storage.base-path:./files}") String basePath,
+                      @Value("${file.storage.layout.sharded:false}") boolean sharded,
+                      @Value("${file.storage.layout.depth:2}") int depth,
+                      @Value("${file.storage.layout.index-rebuild-minutes:60}") long indexRebuildMinutes,
+                      AppExecutors appExecutors) {
+        if (depth < 1 || depth > 4) {
+            throw new IllegalArgumentException("file.storage.layout.depth must be between 1 and 4");
+        }
+        this.root = Paths.get(basePath);
+        this.sharded = sharded;
+        this.depth = depth;
+        this.indexRebuildMinutes = indexRebuildMinutes;
+        this.appExecutors = appExecutors;
+    }
+
+    @PostConstruct
+    public void scheduleIndexRebuild() {
+        if (sharded && indexRebuildMinutes > 0) {
+            appExecutors.scheduler().scheduleWithFixedDelay(
+                    () -> appExecutors.io().execute(this::rebuildIndexes),
+                    indexRebuildMinutes, indexRebuildMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public Path folder(String folder) {
+        return root.resolve(folder);
+    }
+
+    /**
+     * Directory a new file with this name is written to.
+     */
+    public Path directoryFor(String folder, String filename) {
+        Path directory = folder(folder);
+        if (!sharded) {
+            return directory;
+        }
+        byte[] hash = sha256(filename);
+        for (int level = 0; level < depth; level++) {
+            directory = directory.resolve(HexFormat.of().toHexDigits(hash[level]));
+        }
+        return directory;
+    }
+
+    /**
+     * Where an existing file is, or its primary location if it does not exist.
+     */
+    public Path resolve(String folder, String filename) {
+        Path primary = directoryFor(folder, filename).resolve(filename);
+        if (!sharded || Files.exists(primary) || !hasFlatFiles(folder)) {
+            return primary;
+        }
+        Path flat = folder(folder).resolve(filename);
+        if (Files.exists(flat)) {
+            return flat;
+        }
+        return primary;
+    }
+
+    /**
+     * Records a file just published under the layout so listings include it without a rescan.
+     */
+    public void register(Path file) {
+        if (!sharded) {
+            return;
+        }
+        String folder = folderOf(file);
+        if (folder == null) {
+            return;
+        }
+        String name = file.getFileName().toString();
+        synchronized (rebuilding) {
+            List<String> journal = rebuilding.get(folder);
+            if (journal != null) {
+                journal.add(name);
+            }
+            NavigableSet<String> index = indexes.get(folder);
+            if (index != null) {
+                index.add(name);
+            }
+        }
+    }
+
+    /**
+     * The folder a file under the layout belongs to, or null if it is not under a folder.
+     */
+    public String folderOf(Path file) {
+        Path relative = root.toAbsolutePath().normalize().relativize(file.toAbsolutePath().normalize());
+        if (relative.getNameCount() < 2 || relative.getName(0).toString().startsWith("..")) {
+            return null;
+        }
+        return relative.getName(0).toString();
+    }
+
+    /**
+     * Sorted names of the visible files in a folder.
+     */
+    public List<String> list(String folder) throws IOException {
+        if (!sharded) {
+            try (Stream<Path> files = Files.list(folder(folder))) {
+                return files.filter(Files::isRegularFile)
+                        .map(path -> path.getFileName().toString())
+                        .filter(name -> !name.startsWith("."))
+                        .sorted()
+                        .toList();
+            }
+        }
+        NavigableSet<String> index = indexes.get(folder);
+        return new ArrayList<>(index != null ? index : firstIndex(folder));
+    }
+
+    void rebuildIndexes() {
+        for (String folder : List.copyOf(indexes.keySet())) {
+            try {
+                rescan(folder);
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Failed to rebuild file index for {}", folder, e);
+            }
+        }
+    }
+
+    private synchronized NavigableSet<String> firstIndex(String folder) throws IOException {
+        NavigableSet<String> index = indexes.get(folder);
+        return index != null ? index : rescan(folder);
+    }
+
+    /*
+     * Synchronized so two scans of a folder (first use and the rebuild) never share a journal. A file
+     * published after the walk passed its directory is journaled by register() and added before the swap.
+     */
+    private synchronized NavigableSet<String> rescan(String folder) throws IOException {
+        synchronized (rebuilding) {
+            rebuilding.put(folder, new ArrayList<>());
+        }
+        NavigableSet<String> names;
+        try {
+            names = scan(folder);
+        } catch (IOException | RuntimeException e) {
+            synchronized (rebuilding) {
+                rebuilding.remove(folder);
+            }
+            throw e;
+        }
+        synchronized (rebuilding) {
+            names.addAll(rebuilding.remove(folder));
+            indexes.put(folder, names);
+        }
+        return names;
+    }
+
+    NavigableSet<String> scan(String folder) throws IOException {
+        NavigableSet<String> names = new ConcurrentSkipListSet<>();
+        Path directory = folder(folder);
+        if (!Files.isDirectory(directory)) {
+            return names;
+        }
+        boolean flat = false;
+        try (Stream<Path> files = Files.walk(directory, depth + 1)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.startsWith(".") && Files.isRegularFile(file)) {
+                    names.add(name);
+                    flat |= file.getParent().equals(directory);
+                }
+            }
+        }
+        flatRemaining.put(folder, flat);
+        return names;
+    }
+
+    boolean hasFlatFiles(String folder) {
+        return flatRemaining.getOrDefault(folder, true);
+    }
+
+    void markMigrated(String folder) {
+        flatRemaining.put(folder, false);
+    }
+
+    private static byte[] sha256(String filename) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(filename.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
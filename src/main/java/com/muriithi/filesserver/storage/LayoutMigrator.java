@@ -0,0 +1,193 @@
+package com.muriithi.filesserver.storage;
+
+import com.muriithi.filesserver.config.AppExecutors;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves files from the flat layout into the sharded one while the server keeps serving. Each file is
+ * hard-linked at its sharded location before the flat name is removed, so it is always reachable
+ * through {@link FileLayout#resolve}; where hard links are not available it is renamed instead. A
+ * sharded file that already exists was uploaded after sharding was switched on and wins, so the flat
+ * copy is just removed. The rate is capped so the migration does not starve request I/O.
+ *
+ * <p>Exposed as the {@code storagelayout} actuator endpoint: {@code GET} reports progress and
+ * {@code POST} starts a run. It can also start on its own with {@code migrate-on-startup}.
+ */
+@Component
+@Endpoint(id = "storagelayout")
+@RequiredArgsConstructor
+public class LayoutMigrator {
+
+    private static final Logger log = LoggerFactory.getLogger(LayoutMigrator.class);
+
+    private final FileLayout fileLayout;
+    private final AppExecutors appExecutors;
+
+    @Value("${file.storage.layout.migrate-on-startup:false}")
+    private boolean migrateOnStartup;
+
+    @Value("${file.storage.layout.migration-files-per-second:200}")
+    private int filesPerSecond;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong moved = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile String currentFolder;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (migrateOnStartup && fileLayout.isSharded()) {
+            start();
+        }
+    }
+
+    @WriteOperation
+    public Map<String, Object> migrate() {
+        if (!fileLayout.isSharded()) {
+            throw new IllegalStateException("Sharded layout is not enabled");
+        }
+        start();
+        return status();
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("sharded", fileLayout.isSharded());
+        status.put("running", running.get());
+        status.put("currentFolder", currentFolder);
+        status.put("moved", moved.get());
+        status.put("superseded", superseded.get());
+        status.put("failed", failed.get());
+        status.put("startedAt", startedAt != null ? startedAt.toString() : null);
+        status.put("finishedAt", finishedAt != null ? finishedAt.toString() : null);
+        return status;
+    }
+
+    private void start() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        moved.set(0);
+        superseded.set(0);
+        failed.set(0);
+        startedAt = Instant.now();
+        finishedAt = null;
+        appExecutors.io().execute(this::run);
+    }
+
+    private void run() {
+        try {
+            for (String folder : folders()) {
+                currentFolder = folder;
+                migrateFolder(folder);
+            }
+            log.info("Layout migration finished: {} moved, {} superseded, {} failed",
+                    moved.get(), superseded.get(), failed.get());
+        } catch (IOException | RuntimeException e) {
+            log.error("Layout migration stopped", e);
+        } finally {
+            currentFolder = null;
+            finishedAt = Instant.now();
+            running.set(false);
+        }
+    }
+
+    private List<String> folders() throws IOException {
+        List<String> folders = new ArrayList<>();
+        if (!Files.isDirectory(fileLayout.root())) {
+            return folders;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(fileLayout.root(), Files::isDirectory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (!name.startsWith(".")) {
+                    folders.add(name);
+                }
+            }
+        }
+        return folders;
+    }
+
+    private void migrateFolder(String folder) throws IOException {
+        long failuresBefore = failed.get();
+        long pauseNanos = filesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / filesPerSecond : 0;
+
+        // Streams the directory instead of listing it, so a huge flat folder is never held in memory
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(fileLayout.folder(folder), Files::isRegularFile)) {
+            for (Path file : entries) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(".")) {
+                    // In-flight uploads and dedup links; they are published under the sharded layout
+                    continue;
+                }
+                migrateFile(folder, file, name);
+                if (pauseNanos > 0) {
+                    LockSupport.parkNanos(pauseNanos);
+                }
+            }
+        }
+
+        if (failed.get() == failuresBefore) {
+            fileLayout.markMigrated(folder);
+        }
+    }
+
+    private void migrateFile(String folder, Path file, String name) {
+        Path target = fileLayout.directoryFor(folder, name).resolve(name);
+        try {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.createLink(target, file);
+            } catch (FileAlreadyExistsException e) {
+                Files.deleteIfExists(file);
+                superseded.incrementAndGet();
+                return;
+            } catch (NoSuchFileException e) {
+                // Removed since the directory was read
+                return;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                fileLayout.register(target);
+                moved.incrementAndGet();
+                return;
+            }
+            Files.deleteIfExists(file);
+            fileLayout.register(target);
+            moved.incrementAndGet();
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            log.warn("Failed to migrate {}/{}", folder, name, e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.muriithi.filesserver.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The files under {@code file.storage.base-path}, laid out by {@link FileLayout}. Uploads are already
+ * written in place, so there is nothing to push.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.backend", havingValue = "local", matchIfMissing = true)
+@RequiredArgsConstructor
+public class LocalStorageBackend implements StorageBackend {
+
+    private final FileLayout fileLayout;
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
+    @Override
+    public Optional<ObjectInfo> stat(String folder, String filename) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(fileLayout.resolve(folder, filename), BasicFileAttributes.class);
+            return attributes.isRegularFile()
+                    ? Optional.of(new ObjectInfo(attributes.size(), attributes.lastModifiedTime().toInstant()))
+                    : Optional.empty();
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void download(String folder, String filename, Path destination) throws IOException {
+        Files.copy(fileLayout.resolve(folder, filename), destination);
+    }
+
+    @Override
+    public void upload(Path source, String folder, String filename) throws IOException {
+        Path target = fileLayout.resolve(folder, filename);
+        if (!Files.exists(target) || !Files.isSameFile(source, target)) {
+            Files.createDirectories(target.getParent());
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public List<String> list(String folder) throws IOException {
+        return fileLayout.list(folder);
+    }
+}
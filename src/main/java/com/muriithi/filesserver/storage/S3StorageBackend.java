@@ -0,0 +1,207 @@
+package com.muriithi.filesserver.storage;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.ChecksumMode;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Objects in an S3-compatible bucket under {@code <prefix><folder>/<filename>}. With
+ * {@code endpoint} and {@code path-style} it talks to a local stand-in such as MinIO, which is how it
+ * is exercised outside AWS.
+ *
+ * <p>Uploads ask S3 to store a SHA-256 checksum with the object, and {@link #stat} returns it, so the
+ * tier can tell whether a local file holds the same bytes. A download cut off part way is resumed with
+ * a ranged GET pinned to the same object version by its ETag.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.backend", havingValue = "s3")
+public class S3StorageBackend implements StorageBackend {
+
+    private static final Logger log = LoggerFactory.getLogger(S3StorageBackend.class);
+
+    private static final int MAX_RESUMES = 3;
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String prefix;
+
+    public S3StorageBackend(@Value("${file.storage.s3.endpoint:}") String endpoint,
+                            @Value("${file.storage.s3.region:us-east-1}") String region,
+                            @Value("${file.storage.s3.bucket}") String bucket,
+                            @Value("${file.storage.s3.prefix:}") String prefix,
+                            @Value("${file.storage.s3.path-style:false}") boolean pathStyle,
+                            @Value("${file.storage.s3.access-key:}") String accessKey,
+                            @Value("${file.storage.s3.secret-key:}") String secretKey) {
+        this(client(endpoint, region, pathStyle, accessKey, secretKey), bucket, prefix);
+    }
+
+    S3StorageBackend(S3Client s3, String bucket, String prefix) {
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.prefix = prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+    }
+
+    private static S3Client client(String endpoint, String region, boolean pathStyle, String accessKey,
+                                   String secretKey) {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .forcePathStyle(pathStyle)
+                .credentialsProvider(accessKey.isBlank()
+                        ? DefaultCredentialsProvider.create()
+                        : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public boolean isLocal() {
+        return false;
+    }
+
+    @Override
+    public Optional<ObjectInfo> stat(String folder, String filename) throws IOException {
+        try {
+            HeadObjectResponse head = s3.headObject(request -> request.bucket(bucket).key(key(folder, filename))
+                    .checksumMode(ChecksumMode.ENABLED));
+            return Optional.of(new ObjectInfo(head.contentLength(), head.lastModified(), sha256(head.checksumSHA256())));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new IOException("Failed to stat " + key(folder, filename), e);
+        } catch (SdkException e) {
+            throw new IOException("Failed to stat " + key(folder, filename), e);
+        }
+    }
+
+    @Override
+    public void download(String folder, String filename, Path destination) throws IOException {
+        String key = key(folder, filename);
+        AtomicReference<String> eTag = new AtomicReference<>();
+        FileChannel channel = FileChannel.open(destination, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try (channel) {
+            OutputStream out = Channels.newOutputStream(channel);
+            for (int resumes = 0; ; resumes++) {
+                long offset = channel.position();
+                try {
+                    s3.getObject(request -> {
+                        request.bucket(bucket).key(key);
+                        if (offset > 0) {
+                            // An object replaced in between fails the If-Match with 412 instead of splicing
+                            request.range("bytes=" + offset + "-").ifMatch(eTag.get());
+                        }
+                    }, (response, in) -> {
+                        // The SDK may retry this same request itself; each attempt rewrites from the offset
+                        channel.truncate(offset).position(offset);
+                        eTag.compareAndSet(null, response.eTag());
+                        return in.transferTo(out);
+                    });
+                    return;
+                } catch (NoSuchKeyException e) {
+                    throw new NoSuchFileException(key);
+                } catch (SdkException e) {
+                    if (resumes == MAX_RESUMES || channel.position() == offset || eTag.get() == null) {
+                        throw new IOException("Failed to download " + key, e);
+                    }
+                    log.debug("Download of {} cut off at {} bytes; resuming", key, channel.position(), e);
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(destination);
+            throw e;
+        }
+    }
+
+    @Override
+    public void upload(Path source, String folder, String filename) throws IOException {
+        try {
+            s3.putObject(request -> request.bucket(bucket).key(key(folder, filename))
+                            .checksumAlgorithm(ChecksumAlgorithm.SHA256),
+                    RequestBody.fromFile(source));
+        } catch (SdkException e) {
+            throw new IOException("Failed to upload " + key(folder, filename), e);
+        }
+    }
+
+    @Override
+    public List<String> list(String folder) throws IOException {
+        String folderPrefix = prefix + folder + "/";
+        List<String> names = new ArrayList<>();
+        try {
+            for (S3Object object : s3.listObjectsV2Paginator(request -> request.bucket(bucket)
+                    .prefix(folderPrefix).delimiter("/")).contents()) {
+                String name = object.key().substring(folderPrefix.length());
+                if (!name.isEmpty() && !name.startsWith(".")) {
+                    names.add(name);
+                }
+            }
+        } catch (SdkException e) {
+            throw new IOException("Failed to list " + folderPrefix, e);
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private String key(String folder, String filename) {
+        return prefix + folder + "/" + filename;
+    }
+
+    /*
+     * S3 returns the checksum base64-encoded. A multipart upload's is a checksum of part checksums,
+     * suffixed with "-<parts>", and says nothing about the whole file, so it counts as none.
+     */
+    private static String sha256(String checksum) {
+        if (checksum == null || checksum.contains("-")) {
+            return null;
+        }
+        try {
+            byte[] digest = Base64.getDecoder().decode(checksum);
+            return digest.length == 32 ? HexFormat.of().formatHex(digest) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        s3.close();
+    }
+}
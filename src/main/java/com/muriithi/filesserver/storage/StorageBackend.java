@@ -0,0 +1,47 @@
+package com.muriithi.filesserver.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Authoritative store for file content, addressed by {@code <folder>/<filename>} keys. Serving always
+ * reads local files; with a remote backend the {@link TieredFileStore} copies objects into the local
+ * tier on demand and uploads are pushed to the backend once written locally.
+ */
+public interface StorageBackend {
+
+    /**
+     * {@code sha256} is the hex SHA-256 of the content when the backend stored one with the object, else null.
+     */
+    record ObjectInfo(long size, Instant lastModified, String sha256) {
+
+        public ObjectInfo(long size, Instant lastModified) {
+            this(size, lastModified, null);
+        }
+    }
+
+    /**
+     * True when the backend's files are the local files under the layout, so no tier is needed.
+     */
+    boolean isLocal();
+
+    Optional<ObjectInfo> stat(String folder, String filename) throws IOException;
+
+    /**
+     * Copies an object to {@code destination}, which must not exist yet.
+     */
+    void download(String folder, String filename, Path destination) throws IOException;
+
+    /**
+     * Stores {@code source} under the key, with its SHA-256 where the backend keeps checksums.
+     */
+    void upload(Path source, String folder, String filename) throws IOException;
+
+    /**
+     * Sorted names of the files directly in a folder.
+     */
+    List<String> list(String folder) throws IOException;
+}
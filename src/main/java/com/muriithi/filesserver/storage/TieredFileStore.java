@@ -0,0 +1,474 @@
+package com.muriithi.filesserver.storage;
+
+import com.muriithi.filesserver.config.AppExecutors;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Local view of the {@link StorageBackend}. Everything that serves or renders a file asks this class
+ * for a local path and reads that.
+ *
+ * <p>With the local backend the path is the stored file itself. With a remote backend,
+ * {@code file.storage.base-path} becomes a read-through tier on local disk. A miss downloads the
+ * object once, even under concurrent requests, and later requests read it at local-disk latency. A
+ * tier copy is re-checked against the backend at most every {@code revalidate-seconds}. The tier is
+ * capped at {@code max-gb} and evicts the least recently used copies. Uploads are written into the
+ * tier and pushed to the backend before they are acknowledged.
+ *
+ * <p>Every tier copy has an empty marker at the same relative path under {@code .tier/}, and only
+ * marked files are ever evicted or replaced. Files already in {@code base-path} when the backend is
+ * switched to a remote one are originals: the startup scan uploads those the backend does not have
+ * and then adopts them into the tier, and until then they are served as they are.
+ *
+ * <p>{@link #prefetch} pulls a file in the background when a request is likely to follow shortly,
+ * for example after a share token is issued.
+ */
+@Component
+public class TieredFileStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TieredFileStore.class);
+
+    private static final String FETCH_PREFIX = ".fetch-";
+    private static final String MARKER_DIRECTORY = ".tier";
+
+    private final StorageBackend backend;
+    private final FileLayout fileLayout;
+    private final AppExecutors appExecutors;
+    private final long maxBytes;
+    private final long revalidateNanos;
+
+    private final Map<String, CompletableFuture<Path>> fetches = new ConcurrentHashMap<>();
+    private final Map<Path, Long> validatedAt = new ConcurrentHashMap<>();
+    private final LinkedHashMap<Path, Long> resident = new LinkedHashMap<>(256, 0.75f, true);
+    private long residentBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter prefetches;
+
+    public TieredFileStore(StorageBackend backend, FileLayout fileLayout, AppExecutors appExecutors,
+                           @Value("${file.storage.tier.max-gb:50}") long maxGb,
+                           @Value("${file.storage.tier.revalidate-seconds:300}") long revalidateSeconds,
+                           MeterRegistry registry) {
+        this(backend, fileLayout, appExecutors, maxGb * 1024 * 1024 * 1024,
+                Duration.ofSeconds(revalidateSeconds), registry);
+    }
+
+    TieredFileStore(StorageBackend backend, FileLayout fileLayout, AppExecutors appExecutors,
+                    long maxBytes, Duration revalidateAfter, MeterRegistry registry) {
+        this.backend = backend;
+        this.fileLayout = fileLayout;
+        this.appExecutors = appExecutors;
+        this.maxBytes = maxBytes;
+        this.revalidateNanos = revalidateAfter.toNanos();
+
+        this.hits = registry.counter("files.tier.requests", "result", "hit");
+        this.misses = registry.counter("files.tier.requests", "result", "miss");
+        this.evictions = registry.counter("files.tier.evictions");
+        this.prefetches = registry.counter("files.tier.prefetches");
+        Gauge.builder("files.tier.size", this, TieredFileStore::residentBytes).baseUnit("bytes").register(registry);
+    }
+
+    @PostConstruct
+    public void loadResident() {
+        if (!backend.isLocal()) {
+            appExecutors.io().execute(this::scanTier);
+        }
+    }
+
+    public boolean isTiered() {
+        return !backend.isLocal();
+    }
+
+    /**
+     * Local path of a stored file, fetched into the tier if needed. The path does not exist if the
+     * file is not stored.
+     */
+    public Path fetch(String folder, String filename) throws IOException {
+        Path local = fileLayout.resolve(folder, filename);
+        if (backend.isLocal()) {
+            return local;
+        }
+
+        if (Files.isRegularFile(local)) {
+            if (!isTierCopy(local)) {
+                // An original the startup scan has not pushed yet; never replaced from the backend
+                hits.increment();
+                return local;
+            }
+            if (isCurrent(local, folder, filename)) {
+                touch(local);
+                hits.increment();
+                return local;
+            }
+        }
+        misses.increment();
+        return load(folder, filename, local);
+    }
+
+    public boolean exists(String folder, String filename) throws IOException {
+        if (backend.isLocal()) {
+            return Files.isRegularFile(fileLayout.resolve(folder, filename));
+        }
+        Path local = fileLayout.resolve(folder, filename);
+        Long validated = validatedAt.get(local);
+        if (validated != null && System.nanoTime() - validated < revalidateNanos && Files.isRegularFile(local)) {
+            return true;
+        }
+        if (Files.isRegularFile(local) && !isTierCopy(local)) {
+            return true;
+        }
+        return backend.stat(folder, filename).isPresent();
+    }
+
+    public List<String> list(String folder) throws IOException {
+        return backend.list(folder);
+    }
+
+    /**
+     * Called once an upload has been published at {@code file}: indexes it and, with a remote backend,
+     * stores it there before returning.
+     */
+    public void publish(Path file) throws IOException {
+        fileLayout.register(file);
+        if (backend.isLocal()) {
+            return;
+        }
+        String folder = fileLayout.folderOf(file);
+        if (folder == null) {
+            throw new IllegalArgumentException("Not under the storage layout: " + file);
+        }
+        String filename = file.getFileName().toString();
+        backend.upload(file, folder, filename);
+        // Take the backend's timestamp, or isCurrent would see the object as newer and fetch it again
+        Optional<StorageBackend.ObjectInfo> info = backend.stat(folder, filename);
+        if (info.isPresent()) {
+            Files.setLastModifiedTime(file, FileTime.from(info.get().lastModified()));
+        }
+        mark(file);
+        validatedAt.put(file, System.nanoTime());
+        account(file, Files.size(file));
+    }
+
+    public void prefetch(String folder, String filename) {
+        if (backend.isLocal()) {
+            return;
+        }
+        appExecutors.io().execute(() -> {
+            try {
+                Path local = fileLayout.resolve(folder, filename);
+                if (!Files.isRegularFile(local)) {
+                    prefetches.increment();
+                    load(folder, filename, local);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Prefetch of {}/{} failed", folder, filename, e);
+            }
+        });
+    }
+
+    private boolean isCurrent(Path local, String folder, String filename) throws IOException {
+        Long validated = validatedAt.get(local);
+        if (validated != null && System.nanoTime() - validated < revalidateNanos) {
+            return true;
+        }
+        Optional<StorageBackend.ObjectInfo> info = backend.stat(folder, filename);
+        if (info.isEmpty()) {
+            evict(local);
+            return false;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(local, BasicFileAttributes.class);
+        boolean current = attributes.size() == info.get().size()
+                && !info.get().lastModified().isAfter(attributes.lastModifiedTime().toInstant());
+        if (current) {
+            validatedAt.put(local, System.nanoTime());
+        }
+        return current;
+    }
+
+    /*
+     * Single flight per key: concurrent misses for the same file wait for one download.
+     */
+    private Path load(String folder, String filename, Path local) throws IOException {
+        String key = folder + "/" + filename;
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> running = fetches.putIfAbsent(key, mine);
+        if (running != null) {
+            return await(running);
+        }
+
+        try {
+            Optional<StorageBackend.ObjectInfo> info = backend.stat(folder, filename);
+            if (info.isEmpty()) {
+                mine.complete(local);
+                return local;
+            }
+            Files.createDirectories(local.getParent());
+            Path temp = local.resolveSibling(FETCH_PREFIX + UUID.randomUUID() + ".tmp");
+            try {
+                backend.download(folder, filename, temp);
+                Files.setLastModifiedTime(temp, FileTime.from(info.get().lastModified()));
+                // Marked first: a crash before the move leaves a stray marker, never an unmarked copy
+                mark(local);
+                try {
+                    Files.move(temp, local, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, local, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            validatedAt.put(local, System.nanoTime());
+            account(local, info.get().size());
+            mine.complete(local);
+            return local;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            fetches.remove(key, mine);
+        }
+    }
+
+    private static Path await(CompletableFuture<Path> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for tier fetch", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Tier fetch failed", e.getCause());
+        }
+    }
+
+    private synchronized void touch(Path local) {
+        resident.get(local);
+    }
+
+    private void account(Path local, long size) {
+        List<Path> victims = new ArrayList<>();
+        synchronized (this) {
+            Long previous = resident.put(local, size);
+            residentBytes += size - (previous != null ? previous : 0);
+
+            Iterator<Map.Entry<Path, Long>> eldest = resident.entrySet().iterator();
+            while (residentBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<Path, Long> victim = eldest.next();
+                if (victim.getKey().equals(local)) {
+                    continue;
+                }
+                residentBytes -= victim.getValue();
+                victims.add(victim.getKey());
+                eldest.remove();
+            }
+        }
+        for (Path victim : victims) {
+            // Open readers keep their handle; the next request fetches it again
+            try {
+                Files.deleteIfExists(victim);
+                unmark(victim);
+                validatedAt.remove(victim);
+                evictions.increment();
+            } catch (IOException e) {
+                log.warn("Failed to evict {} from the local tier", victim, e);
+            }
+        }
+    }
+
+    private void evict(Path local) throws IOException {
+        synchronized (this) {
+            Long size = resident.remove(local);
+            if (size != null) {
+                residentBytes -= size;
+            }
+        }
+        validatedAt.remove(local);
+        Files.deleteIfExists(local);
+        unmark(local);
+    }
+
+    private Path markerOf(Path local) {
+        Path root = fileLayout.root().toAbsolutePath().normalize();
+        return root.resolve(MARKER_DIRECTORY).resolve(root.relativize(local.toAbsolutePath().normalize()));
+    }
+
+    private boolean isTierCopy(Path local) {
+        synchronized (this) {
+            if (resident.containsKey(local)) {
+                return true;
+            }
+        }
+        return Files.exists(markerOf(local));
+    }
+
+    private void mark(Path local) throws IOException {
+        Path marker = markerOf(local);
+        Files.createDirectories(marker.getParent());
+        try {
+            Files.createFile(marker);
+        } catch (FileAlreadyExistsException e) {
+            // already a tier copy
+        }
+    }
+
+    private void unmark(Path local) throws IOException {
+        Files.deleteIfExists(markerOf(local));
+    }
+
+    private synchronized long residentBytes() {
+        return residentBytes;
+    }
+
+    private void scanTier() {
+        Path root = fileLayout.root();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        List<Map.Entry<Path, BasicFileAttributes>> found = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(file -> !root.relativize(file).toString().startsWith("."))
+                    .filter(file -> !file.getFileName().toString().startsWith("."))
+                    .forEach(file -> {
+                        try {
+                            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                            if (attributes.isRegularFile()) {
+                                found.add(Map.entry(file, attributes));
+                            }
+                        } catch (NoSuchFileException e) {
+                            // Evicted or replaced while scanning
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Failed to scan the local tier under {}", root, e);
+            return;
+        }
+
+        // Oldest access first, so the LRU order survives a restart as closely as the filesystem allows
+        found.sort(Map.Entry.comparingByValue((a, b) -> a.lastAccessTime().compareTo(b.lastAccessTime())));
+        int tierCopies = 0;
+        int adopted = 0;
+        for (Map.Entry<Path, BasicFileAttributes> entry : found) {
+            Path file = entry.getKey();
+            if (Files.exists(markerOf(file))) {
+                account(file, entry.getValue().size());
+                tierCopies++;
+            } else if (adopt(file, entry.getValue())) {
+                adopted++;
+            }
+        }
+        removeStrayMarkers(root);
+        log.info("Local tier holds {} files ({} bytes); adopted {} originals", tierCopies + adopted,
+                residentBytes(), adopted);
+    }
+
+    /*
+     * An unmarked file is an original. It becomes a tier copy once the backend holds the same bytes,
+     * uploading it first if the backend has nothing under its name. The bytes are compared by SHA-256,
+     * since equal sizes say nothing about the content. One that differs from the backend's copy, or whose
+     * copy has no checksum to compare, is left alone: it is never evicted, and requests keep reading it.
+     */
+    private boolean adopt(Path file, BasicFileAttributes attributes) {
+        String folder = fileLayout.folderOf(file);
+        if (folder == null) {
+            return false;
+        }
+        String filename = file.getFileName().toString();
+        try {
+            Optional<StorageBackend.ObjectInfo> info = backend.stat(folder, filename);
+            if (info.isEmpty()) {
+                backend.upload(file, folder, filename);
+                info = backend.stat(folder, filename);
+            }
+            if (info.isEmpty() || info.get().size() != attributes.size()
+                    || info.get().sha256() != null && !info.get().sha256().equals(sha256(file))) {
+                log.warn("{} differs from the copy in the storage backend; leaving it out of the local tier", file);
+                return false;
+            }
+            if (info.get().sha256() == null) {
+                log.warn("The storage backend has no checksum for {}; leaving it out of the local tier", file);
+                return false;
+            }
+            Files.setLastModifiedTime(file, FileTime.from(info.get().lastModified()));
+            mark(file);
+            account(file, attributes.size());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not adopt {} into the local tier; it stays an original", file, e);
+            return false;
+        }
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            in.transferTo(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void removeStrayMarkers(Path root) {
+        Path markers = root.resolve(MARKER_DIRECTORY);
+        if (!Files.isDirectory(markers)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(markers)) {
+            files.filter(Files::isRegularFile)
+                    .filter(marker -> !Files.exists(root.resolve(markers.relativize(marker))))
+                    .forEach(marker -> {
+                        try {
+                            Files.deleteIfExists(marker);
+                        } catch (IOException e) {
+                            log.debug("Could not remove stray tier marker {}", marker, e);
+                        }
+                    });
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to clean up tier markers under {}", markers, e);
+        }
+    }
+}
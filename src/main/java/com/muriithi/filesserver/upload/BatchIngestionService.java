@@ -0,0 +1,152 @@
+package com.muriithi.filesserver.upload;
+
+import com.muriithi.filesserver.config.AppExecutors;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Ingests batch uploads in parallel on the shared I/O executor. Two global limits apply across
+ * all concurrent batches: the number of files being written at once and the total bytes of those
+ * files. Permits are taken on the calling thread before a file is submitted, so a large batch
+ * never parks I/O threads, and finished results are handed back while the batch is still running.
+ */
+@Service
+@RequiredArgsConstructor
+public class BatchIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchIngestionService.class);
+
+    private final UploadService uploadService;
+    private final AppExecutors appExecutors;
+
+    @Value("${file.upload.batch.concurrency:4}")
+    private int concurrency;
+
+    @Value("${file.upload.batch.max-in-flight-mb:256}")
+    private int maxInFlightMb;
+
+    private Semaphore slots;
+    private Semaphore inFlightKb;
+
+    @PostConstruct
+    public void init() {
+        slots = new Semaphore(concurrency, true);
+        inFlightKb = new Semaphore(maxInFlightMb * 1024, true);
+    }
+
+    /**
+     * Ingests every file, calling {@code onResult} on the calling thread as each one finishes.
+     *
+     * @return the batch summary
+     */
+    public Map<String, Object> ingest(MultipartFile[] files, String type, Consumer<Map<String, Object>> onResult)
+            throws InterruptedException {
+        BlockingQueue<Map<String, Object>> finished = new LinkedBlockingQueue<>();
+        BatchProgress progress = new BatchProgress(onResult);
+
+        for (MultipartFile file : files) {
+            int kb = permitsFor(file);
+            acquire(slots, 1, finished, progress);
+            int heldKb = 0;
+            boolean submitted = false;
+            try {
+                // Waiting here hands earlier results to onResult, which throws once the client is gone
+                acquire(inFlightKb, kb, finished, progress);
+                heldKb = kb;
+                appExecutors.io().execute(() -> {
+                    try {
+                        finished.add(ingestOne(file, type));
+                    } finally {
+                        inFlightKb.release(kb);
+                        slots.release();
+                    }
+                });
+                submitted = true;
+            } finally {
+                // Until the task owns them, the permits are ours to give back
+                if (!submitted) {
+                    inFlightKb.release(heldKb);
+                    slots.release();
+                }
+            }
+        }
+
+        while (progress.count < files.length) {
+            progress.accept(finished.take());
+        }
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("totalFiles", files.length);
+        summary.put("successCount", progress.successCount);
+        summary.put("failureCount", progress.failureCount);
+        return summary;
+    }
+
+    private Map<String, Object> ingestOne(MultipartFile file, String type) {
+        Map<String, Object> result;
+        try {
+            if (type != null && !type.trim().isEmpty()) {
+                result = uploadService.uploadFile(type, file);
+            } else {
+                result = uploadService.uploadFileAutoDetect(file);
+            }
+        } catch (Exception e) {
+            log.error("Failed to upload file: {}", file.getOriginalFilename(), e);
+            result = new HashMap<>();
+            result.put("success", false);
+            result.put("error", e.getMessage());
+        }
+        result.put("filename", file.getOriginalFilename());
+        return result;
+    }
+
+    private int permitsFor(MultipartFile file) {
+        long kb = Math.max(1, (file.getSize() + 1023) / 1024);
+        return (int) Math.min(kb, (long) maxInFlightMb * 1024);
+    }
+
+    private void acquire(Semaphore semaphore, int permits, BlockingQueue<Map<String, Object>> finished,
+                         BatchProgress progress) throws InterruptedException {
+        while (!semaphore.tryAcquire(permits, 100, TimeUnit.MILLISECONDS)) {
+            Map<String, Object> result;
+            while ((result = finished.poll()) != null) {
+                progress.accept(result);
+            }
+        }
+    }
+
+    private static final class BatchProgress {
+
+        private final Consumer<Map<String, Object>> onResult;
+        private int count;
+        private int successCount;
+        private int failureCount;
+
+        private BatchProgress(Consumer<Map<String, Object>> onResult) {
+            this.onResult = onResult;
+        }
+
+        private void accept(Map<String, Object> result) {
+            count++;
+            if (Boolean.TRUE.equals(result.get("success"))) {
+                successCount++;
+            } else {
+                failureCount++;
+            }
+            onResult.accept(result);
+        }
+    }
+}
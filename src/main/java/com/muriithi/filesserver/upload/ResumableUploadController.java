@@ -0,0 +1,106 @@
+package com.muriithi.filesserver.upload;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resumable upload protocol: create a session, PUT chunks by offset (in parallel, any order),
+ * query which chunks have arrived, then complete. Abandoned sessions expire.
+ */
+@RestController
+@RequestMapping("/api/upload/sessions")
+@RequiredArgsConstructor
+public class ResumableUploadController {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumableUploadController.class);
+
+    private final ResumableUploadService resumableUploadService;
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> createSession(@RequestParam String filename,
+                                                             @RequestParam long size,
+                                                             @RequestParam(required = false) String type,
+                                                             @RequestParam(required = false) Integer chunkSize,
+                                                             @RequestParam(required = false) String sha256) {
+        log.debug("Resumable upload requested for file: {}, type: {}, size: {}", filename, type, size);
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(resumableUploadService.createSession(type, filename, size, chunkSize, sha256));
+        } catch (Exception e) {
+            return errorResponse(e, "create upload session for " + filename);
+        }
+    }
+
+    @PutMapping(value = "/{uploadId}/chunks", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Map<String, Object>> uploadChunk(@PathVariable String uploadId,
+                                                           @RequestParam long offset,
+                                                           HttpServletRequest request) {
+        try (InputStream body = request.getInputStream()) {
+            return ResponseEntity.ok(resumableUploadService.writeChunk(uploadId, offset, body));
+        } catch (Exception e) {
+            return errorResponse(e, "write chunk at offset " + offset + " of upload " + uploadId);
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<Map<String, Object>> getStatus(@PathVariable String uploadId) {
+        try {
+            return ResponseEntity.ok(resumableUploadService.getStatus(uploadId));
+        } catch (Exception e) {
+            return errorResponse(e, "read status of upload " + uploadId);
+        }
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<Map<String, Object>> complete(@PathVariable String uploadId) {
+        try {
+            return ResponseEntity.ok(resumableUploadService.complete(uploadId));
+        } catch (Exception e) {
+            return errorResponse(e, "complete upload " + uploadId);
+        }
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Map<String, Object>> abort(@PathVariable String uploadId) {
+        try {
+            resumableUploadService.abort(uploadId);
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            return errorResponse(e, "abort upload " + uploadId);
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> errorResponse(Exception e, String action) {
+        HttpStatus status;
+        if (e instanceof UploadSessionNotFoundException) {
+            status = HttpStatus.NOT_FOUND;
+        } else if (e instanceof IllegalArgumentException) {
+            status = HttpStatus.BAD_REQUEST;
+        } else if (e instanceof IllegalStateException) {
+            status = HttpStatus.CONFLICT;
+        } else {
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+        }
+
+        if (status == HttpStatus.INTERNAL_SERVER_ERROR) {
+            log.error("Failed to {}", action, e);
+        } else {
+            log.warn("Failed to {}: {}", action, e.getMessage());
+        }
+
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", e.getMessage());
+        return ResponseEntity.status(status).body(errorResponse);
+    }
+}
@@ -0,0 +1,18 @@
+package com.muriithi.filesserver.upload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+public interface ResumableUploadService {
+
+    Map<String, Object> createSession(String type, String filename, long size, Integer chunkSize, String sha256) throws IOException;
+
+    Map<String, Object> writeChunk(String uploadId, long offset, InputStream body) throws IOException;
+
+    Map<String, Object> getStatus(String uploadId);
+
+    Map<String, Object> complete(String uploadId) throws IOException;
+
+    void abort(String uploadId) throws IOException;
+}
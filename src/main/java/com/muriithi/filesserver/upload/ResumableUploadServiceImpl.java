@@ -0,0 +1,276 @@
+package com.muriithi.filesserver.upload;
+
+import com.muriithi.filesserver.config.AppExecutors;
+import com.muriithi.filesserver.memory.BufferPool;
+import com.muriithi.filesserver.observability.FileMetrics;
+import com.muriithi.filesserver.serve.FileService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@RequiredArgsConstructor
+public class ResumableUploadServiceImpl implements ResumableUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumableUploadServiceImpl.class);
+
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private final UploadService uploadService;
+    private final FileService fileService;
+    private final StreamingFileWriter streamingFileWriter;
+    private final BufferPool bufferPool;
+    private final AppExecutors appExecutors;
+    private final FileMetrics fileMetrics;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${file.upload.resumable.chunk-size-mb:8}")
+    private int defaultChunkSizeMb;
+
+    @Value("${file.upload.resumable.max-size-mb:10240}")
+    private long maxSizeMb;
+
+    @Value("${file.upload.resumable.session-ttl-minutes:60}")
+    private long sessionTtlMinutes;
+
+    @Value("${file.upload.resumable.max-sessions:1000}")
+    private int maxSessions;
+
+    @PostConstruct
+    public void scheduleExpiry() {
+        appExecutors.scheduler().scheduleWithFixedDelay(this::expireSessions, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public Map<String, Object> createSession(String type, String filename, long size, Integer chunkSize,
+                                             String sha256) throws IOException {
+        if (type == null || type.trim().isEmpty()) {
+            type = fileService.determineTypeFromFilename(filename);
+        }
+        if (size <= 0 || size > maxSizeMb * 1024 * 1024) {
+            throw new IllegalArgumentException("Invalid upload size: " + size);
+        }
+        int effectiveChunkSize = chunkSize != null ? chunkSize : defaultChunkSizeMb * 1024 * 1024;
+        if (effectiveChunkSize < MIN_CHUNK_SIZE || effectiveChunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Chunk size must be between " + MIN_CHUNK_SIZE + " and " + MAX_CHUNK_SIZE + " bytes");
+        }
+        if (sessions.size() >= maxSessions) {
+            throw new IllegalStateException("Too many active upload sessions");
+        }
+
+        Path target = uploadService.resolveTarget(type, filename);
+        String id = UUID.randomUUID().toString();
+        Path partFile = target.getParent().resolve(StreamingFileWriter.TEMP_PREFIX + id + ".part");
+
+        FileChannel channel = FileChannel.open(partFile,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // Extend to the final length up front so chunks can land at any offset in any order
+            channel.write(ByteBuffer.allocate(1), size - 1);
+        } catch (IOException e) {
+            channel.close();
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+
+        UploadSession session = new UploadSession(id, type, target, partFile, size, effectiveChunkSize, sha256, channel);
+        sessions.put(id, session);
+
+        log.info("Upload session {} created for file: {} ({} bytes in {} chunks)", id, filename, size, session.totalChunks);
+
+        return getStatus(id);
+    }
+
+    @Override
+    public Map<String, Object> writeChunk(String uploadId, long offset, InputStream body) throws IOException {
+        UploadSession session = find(uploadId);
+
+        if (offset < 0 || offset >= session.size || offset % session.chunkSize != 0) {
+            throw new IllegalArgumentException("Invalid chunk offset: " + offset);
+        }
+        int chunkIndex = (int) (offset / session.chunkSize);
+        long expected = session.expectedLength(chunkIndex);
+
+        if (!session.beginWrite()) {
+            throw new IllegalStateException("Upload session is no longer accepting chunks");
+        }
+
+        boolean success = false;
+        long start = System.nanoTime();
+        ReadableByteChannel source = Channels.newChannel(body);
+        ByteBuffer buffer = bufferPool.acquire();
+        try {
+            long written = 0;
+            int read;
+            while ((read = source.read(buffer.clear())) != -1) {
+                if (written + read > expected) {
+                    throw new IllegalArgumentException("Chunk exceeds expected length of " + expected + " bytes");
+                }
+                buffer.flip();
+                long position = offset + written;
+                while (buffer.hasRemaining()) {
+                    position += session.channel.write(buffer, position);
+                }
+                written += read;
+            }
+            if (written != expected) {
+                throw new IllegalArgumentException("Incomplete chunk: received " + written + " of " + expected + " bytes");
+            }
+            success = true;
+            fileMetrics.recordUpload("resumable-chunk", written, System.nanoTime() - start);
+        } finally {
+            bufferPool.release(buffer);
+            session.endWrite(chunkIndex, success);
+        }
+
+        return getStatus(uploadId);
+    }
+
+    @Override
+    public Map<String, Object> getStatus(String uploadId) {
+        UploadSession session = find(uploadId);
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("uploadId", session.id);
+        status.put("filename", session.target.getFileName().toString());
+        status.put("type", session.type);
+        status.put("size", session.size);
+        status.put("chunkSize", session.chunkSize);
+        status.put("totalChunks", session.totalChunks);
+        status.put("receivedChunks", session.receivedCount());
+        status.put("missingChunks", session.missingChunks());
+        status.put("complete", session.isComplete());
+        status.put("expiresAt", session.lastActivity().plus(sessionTtlMinutes, ChronoUnit.MINUTES).toString());
+        return status;
+    }
+
+    @Override
+    public Map<String, Object> complete(String uploadId) throws IOException {
+        UploadSession session = find(uploadId);
+
+        if (!session.isComplete()) {
+            throw new IllegalArgumentException("Upload is missing " + session.missingChunks().size() + " chunk(s)");
+        }
+        if (!session.transition(UploadSession.State.COMPLETING)) {
+            throw new IllegalStateException("Chunks are still being written to this upload");
+        }
+
+        boolean settled = false;
+        try {
+            session.closeChannel();
+            String sha256 = streamingFileWriter.sha256(session.partFile);
+            if (session.expectedSha256 != null && !session.expectedSha256.equalsIgnoreCase(sha256)) {
+                settled = true;
+                discard(session);
+                throw new IllegalArgumentException("Checksum mismatch: expected " + session.expectedSha256 + " but was " + sha256);
+            }
+
+            streamingFileWriter.commit(session.partFile, session.target, sha256);
+            sessions.remove(uploadId);
+            settled = true;
+            uploadService.recordUpload(session.target, session.size, sha256);
+
+            log.info("Upload session {} completed: {}", uploadId, session.target.getFileName());
+
+            return uploadService.buildUploadResponse(session.type, session.target, session.size, sha256);
+        } catch (IOException e) {
+            settled = true;
+            discard(session);
+            throw e;
+        } finally {
+            if (!settled) {
+                // An unchecked failure must not leave the session stuck in COMPLETING
+                reopen(session);
+            }
+        }
+    }
+
+    @Override
+    public void abort(String uploadId) throws IOException {
+        UploadSession session = find(uploadId);
+        if (!session.transition(UploadSession.State.CLOSED)) {
+            throw new IllegalStateException("Chunks are still being written to this upload");
+        }
+        discard(session);
+        log.info("Upload session {} aborted", uploadId);
+    }
+
+    public void expireSessions() {
+        Instant cutoff = Instant.now().minus(sessionTtlMinutes, ChronoUnit.MINUTES);
+        for (UploadSession session : sessions.values()) {
+            if (session.lastActivity().isBefore(cutoff) && session.transition(UploadSession.State.CLOSED)) {
+                try {
+                    discard(session);
+                    log.info("Upload session {} expired after {} minutes of inactivity", session.id, sessionTtlMinutes);
+                } catch (IOException e) {
+                    log.warn("Failed to clean up expired upload session {}", session.id, e);
+                }
+            }
+        }
+    }
+
+    private UploadSession find(String uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null) {
+            throw new UploadSessionNotFoundException(uploadId);
+        }
+        return session;
+    }
+
+    private void reopen(UploadSession session) {
+        try {
+            session.reopen();
+            log.warn("Upload session {} failed to complete; it is open again for a retry", session.id);
+        } catch (IOException e) {
+            log.warn("Upload session {} failed to complete and could not be reopened; discarding it", session.id, e);
+            try {
+                discard(session);
+            } catch (IOException ex) {
+                log.debug("Could not discard upload session {}", session.id, ex);
+            }
+        }
+    }
+
+    private void discard(UploadSession session) throws IOException {
+        sessions.remove(session.id);
+        try {
+            session.closeChannel();
+        } finally {
+            Files.deleteIfExists(session.partFile);
+        }
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        for (UploadSession session : sessions.values()) {
+            try {
+                discard(session);
+            } catch (IOException e) {
+                log.warn("Failed to clean up upload session {}", session.id, e);
+            }
+        }
+    }
+}
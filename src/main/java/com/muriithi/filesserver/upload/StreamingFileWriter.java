@@ -0,0 +1,129 @@
+package com.muriithi.filesserver.upload;
+
+import com.muriithi.filesserver.memory.BufferPool;
+import com.muriithi.filesserver.observability.FileMetrics;
+import com.muriithi.filesserver.storage.ContentAddressedStore;
+import com.muriithi.filesserver.storage.DurabilityManager;
+import com.muriithi.filesserver.storage.TieredFileStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Streams an upload into a hidden temp file next to its target, hashing and counting in the same
+ * pass, then moves it into place atomically. Memory use is one pooled buffer whatever the file size.
+ * When deduplication is enabled the file is committed through the {@link ContentAddressedStore}
+ * instead, so identical content is kept once.
+ */
+@Component
+@RequiredArgsConstructor
+public class StreamingFileWriter {
+
+    static final String TEMP_PREFIX = ".upload-";
+
+    private final BufferPool bufferPool;
+    private final ContentAddressedStore contentAddressedStore;
+    private final DurabilityManager durabilityManager;
+    private final FileMetrics fileMetrics;
+    private final TieredFileStore tieredFileStore;
+
+    public record WrittenFile(Path path, long size, String sha256) {
+    }
+
+    public WrittenFile write(InputStream in, Path target) throws IOException {
+        long start = System.nanoTime();
+        // Not Files.createTempFile: that makes the file 0600 and the move keeps it, whereas published
+        // files should get the umask default (usually 0644) like the direct write they replace
+        Path temp = target.resolveSibling(TEMP_PREFIX + UUID.randomUUID() + ".tmp");
+        Files.createFile(temp);
+        try {
+            WrittenFile written = copy(in, temp);
+            commit(temp, target, written.sha256());
+            fileMetrics.recordUpload("stream", written.size(), System.nanoTime() - start);
+            return new WrittenFile(target, written.size(), written.sha256());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private WrittenFile copy(InputStream in, Path temp) throws IOException {
+        MessageDigest digest = sha256();
+        ReadableByteChannel source = Channels.newChannel(in);
+        ByteBuffer buffer = bufferPool.acquire();
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int read;
+            while ((read = source.read(buffer.clear())) != -1) {
+                buffer.flip();
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                size += read;
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+        return new WrittenFile(temp, size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    public String sha256(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = bufferPool.acquire();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer.clear()) != -1) {
+                digest.update(buffer.flip());
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Publishes a complete temp file at {@code target}, deduplicating by content when enabled. Returns
+     * once the file and its directory entry are durable under the configured durability mode.
+     */
+    public void commit(Path temp, Path target, String sha256) throws IOException {
+        durabilityManager.syncFile(temp);
+        if (contentAddressedStore.isEnabled()) {
+            contentAddressedStore.commit(temp, sha256, target);
+            durabilityManager.syncDirectories(target.getParent(), contentAddressedStore.blobPath(sha256).getParent());
+        } else {
+            moveIntoPlace(temp, target);
+            durabilityManager.syncDirectories(target.getParent());
+        }
+        tieredFileStore.publish(target);
+    }
+
+    private void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package com.muriithi.filesserver.upload;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.muriithi.filesserver.storage.ContentAddressedStore;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,12 +27,18 @@ public class UploadController {
 
     private final UploadService uploadService;
 
+    private final BatchIngestionService batchIngestionService;
+
+    private final ObjectMapper objectMapper;
+
+    private final ContentAddressedStore contentAddressedStore;
+
     @PostMapping
     public ResponseEntity<Map<String, Object>> uploadFile(
             @RequestParam("file") MultipartFile file,
             @RequestParam(required = false) String type) {
 
-        log.info("Upload request received for file: {}, type: {}",
+        log.debug("Upload request received for file: {}, type: {}",
                 file.getOriginalFilename(), type);
 
         try {
@@ -54,46 +68,109 @@ public class UploadController {
         }
     }
 
+    /**
+     * Publishes a file whose content the server already holds, without sending the bytes. Needs the
+     * {@code contentToken} from an earlier upload of that content; returns 404 when the content is no
+     * longer stored, in which case the client uploads normally.
+     */
+    @PostMapping("/by-hash")
+    public ResponseEntity<Map<String, Object>> uploadByHash(
+            @RequestParam String filename,
+            @RequestParam String sha256,
+            @RequestParam(required = false) String type,
+            @RequestParam String token) {
+
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+
+        // Checked before anything else so the answer says nothing about which hashes are stored
+        if (!contentAddressedStore.acceptsContentToken(token, sha256)) {
+            errorResponse.put("error", "Invalid or expired content token");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse);
+        }
+
+        try {
+            Map<String, Object> response = uploadService.uploadByHash(type, filename, sha256);
+            if (response == null) {
+                errorResponse.put("error", "Unknown content");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+            }
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid upload request: {}", e.getMessage());
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+
+        } catch (IllegalStateException e) {
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+
+        } catch (Exception e) {
+            log.error("Upload by hash failed for file: {}", filename, e);
+            errorResponse.put("error", "Upload failed: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
     @PostMapping("/batch")
     public ResponseEntity<Map<String, Object>> uploadMultipleFiles(
             @RequestParam("files") MultipartFile[] files,
             @RequestParam(required = false) String type) {
 
-        log.info("Batch upload request received for {} files, type: {}", files.length, type);
+        log.debug("Batch upload request received for {} files, type: {}", files.length, type);
 
-        Map<String, Object> response = new HashMap<>();
         Map<String, Object> results = new HashMap<>();
-        int successCount = 0;
-        int failureCount = 0;
+        try {
+            Map<String, Object> response = batchIngestionService.ingest(files, type,
+                    result -> results.put((String) result.get("filename"), result));
+            response.put("results", results);
+            return ResponseEntity.ok(response);
 
-        for (MultipartFile file : files) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", "Batch upload interrupted");
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Same batch ingestion, streamed as one JSON line per file as it finishes, then a summary line.
+     * Selected with {@code Accept: application/x-ndjson}.
+     */
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> uploadMultipleFilesStreaming(
+            @RequestParam("files") MultipartFile[] files,
+            @RequestParam(required = false) String type) {
+
+        log.debug("Streaming batch upload request received for {} files, type: {}", files.length, type);
+
+        StreamingResponseBody body = out -> {
             try {
-                Map<String, Object> fileResult;
-
-                if (type != null && !type.trim().isEmpty()) {
-                    fileResult = uploadService.uploadFile(type, file);
-                } else {
-                    fileResult = uploadService.uploadFileAutoDetect(file);
-                }
-
-                results.put(file.getOriginalFilename(), fileResult);
-                successCount++;
-
-            } catch (Exception e) {
-                log.error("Failed to upload file: {}", file.getOriginalFilename(), e);
-                Map<String, Object> errorResult = new HashMap<>();
-                errorResult.put("success", false);
-                errorResult.put("error", e.getMessage());
-                results.put(file.getOriginalFilename(), errorResult);
-                failureCount++;
+                Map<String, Object> summary = batchIngestionService.ingest(files, type, result -> writeLine(out, result));
+                summary.put("done", true);
+                writeLine(out, summary);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
             }
-        }
+        };
 
-        response.put("totalFiles", files.length);
-        response.put("successCount", successCount);
-        response.put("failureCount", failureCount);
-        response.put("results", results);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 
-        return ResponseEntity.ok(response);
+    private void writeLine(OutputStream out, Map<String, Object> line) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
\ No newline at end of file
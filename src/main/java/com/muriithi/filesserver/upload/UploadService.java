@@ -3,6 +3,7 @@ package com.muriithi.filesserver.upload;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
 
 public interface UploadService {
@@ -10,4 +11,12 @@ public interface UploadService {
     Map<String, Object> uploadFile(String type, MultipartFile file) throws IOException;
 
     Map<String, Object> uploadFileAutoDetect(MultipartFile file) throws IOException;
+
+    Map<String, Object> uploadByHash(String type, String filename, String sha256) throws IOException;
+
+    Path resolveTarget(String type, String filename) throws IOException;
+
+    void recordUpload(Path filePath, long size, String sha256);
+
+    Map<String, Object> buildUploadResponse(String type, Path filePath, long size, String sha256);
 }
@@ -1,17 +1,23 @@
 package com.muriithi.filesserver.upload;
 
+import com.muriithi.filesserver.catalog.MetadataCatalog;
+import com.muriithi.filesserver.observability.UploadIngestEvent;
+import com.muriithi.filesserver.search.FilenameSearchService;
+import com.muriithi.filesserver.search.SearchService;
 import com.muriithi.filesserver.serve.FileService;
+import com.muriithi.filesserver.storage.ContentAddressedStore;
+import com.muriithi.filesserver.storage.FileLayout;
+import com.muriithi.filesserver.storage.TieredFileStore;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -21,11 +27,22 @@ public class UploadServiceImpl implements UploadService {
 
     private static final Logger log = LoggerFactory.getLogger(UploadServiceImpl.class);
 
-    @Value("${file.storage.base-path:./files}")
-    private String basePath;
-
     private final FileService fileService;
 
+    private final StreamingFileWriter streamingFileWriter;
+
+    private final ContentAddressedStore contentAddressedStore;
+
+    private final FileLayout fileLayout;
+
+    private final TieredFileStore tieredFileStore;
+
+    private final MetadataCatalog metadataCatalog;
+
+    private final SearchService searchService;
+
+    private final FilenameSearchService filenameSearchService;
+
     private final Map<String, String> typeToFolder = Map.of(
             "documents", "documents",
             "images", "images",
@@ -38,37 +55,110 @@ public class UploadServiceImpl implements UploadService {
     @Override
     public Map<String, Object> uploadFile(String type, MultipartFile file) throws IOException {
 
-        if (!typeToFolder.containsKey(type)) {
-            throw new IllegalArgumentException("Invalid file type: " + type);
-        }
-
         if (file.isEmpty()) {
             throw new IllegalArgumentException("File is empty");
         }
 
         String filename = file.getOriginalFilename();
+        Path filePath = resolveTarget(type, filename);
+
+        UploadIngestEvent event = new UploadIngestEvent();
+        event.begin();
+        StreamingFileWriter.WrittenFile written = null;
+        try (InputStream in = file.getInputStream()) {
+            written = streamingFileWriter.write(in, filePath);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.type = type;
+                event.filename = filename;
+                event.bytes = written != null ? written.size() : file.getSize();
+                event.succeeded = written != null;
+                event.commit();
+            }
+        }
+
+        recordUpload(filePath, written.size(), written.sha256());
+
+        log.debug("File uploaded successfully: {} to {}", filename, typeToFolder.get(type));
+
+        return buildUploadResponse(type, filePath, written.size(), written.sha256());
+    }
+
+    @Override
+    public Map<String, Object> uploadByHash(String type, String filename, String sha256) throws IOException {
+
+        if (!contentAddressedStore.isEnabled()) {
+            throw new IllegalStateException("Content deduplication is not enabled");
+        }
+
+        if (!ContentAddressedStore.isValidHash(sha256)) {
+            throw new IllegalArgumentException("Invalid sha256: " + sha256);
+        }
+
+        if (type == null || type.trim().isEmpty()) {
+            type = fileService.determineTypeFromFilename(filename);
+        }
+
+        Path filePath = resolveTarget(type, filename);
+        long size = contentAddressedStore.linkExisting(sha256, filePath);
+        if (size < 0) {
+            return null;
+        }
+        tieredFileStore.publish(filePath);
+        recordUpload(filePath, size, sha256);
+
+        log.debug("File linked to existing content: {} to {}", filename, typeToFolder.get(type));
+
+        return buildUploadResponse(type, filePath, size, sha256);
+    }
+
+    @Override
+    public Path resolveTarget(String type, String filename) throws IOException {
+
+        if (!typeToFolder.containsKey(type)) {
+            throw new IllegalArgumentException("Invalid file type: " + type);
+        }
+
         if (filename == null || filename.trim().isEmpty()) {
             throw new IllegalArgumentException("Invalid filename");
         }
 
-        String folder = typeToFolder.get(type);
-        Path uploadPath = Paths.get(basePath, folder);
+        Path uploadPath = fileLayout.directoryFor(typeToFolder.get(type), filename);
 
         Files.createDirectories(uploadPath);
 
-        Path filePath = uploadPath.resolve(filename);
-        Files.write(filePath, file.getBytes());
+        Path filePath = uploadPath.resolve(filename).normalize();
+        if (!uploadPath.normalize().equals(filePath.getParent())) {
+            throw new IllegalArgumentException("Invalid filename");
+        }
 
-        log.info("File uploaded successfully: {} to {}", filename, folder);
+        return filePath;
+    }
+
+    @Override
+    public void recordUpload(Path filePath, long size, String sha256) {
+        metadataCatalog.recordUpload(filePath, size, sha256);
+        searchService.submit(filePath);
+        filenameSearchService.add(filePath);
+    }
+
+    @Override
+    public Map<String, Object> buildUploadResponse(String type, Path filePath, long size, String sha256) {
+        String filename = filePath.getFileName().toString();
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
         response.put("filename", filename);
         response.put("type", type);
-        response.put("folder", folder);
-        response.put("size", file.getSize());
+        response.put("folder", typeToFolder.get(type));
+        response.put("size", size);
+        response.put("sha256", sha256);
         response.put("contentType", fileService.getContentType(filename));
         response.put("path", filePath.toString());
+        if (contentAddressedStore.isEnabled() && sha256 != null) {
+            response.put("contentToken", contentAddressedStore.issueContentToken(sha256));
+        }
 
         return response;
     }
@@ -79,7 +169,7 @@ public class UploadServiceImpl implements UploadService {
         String filename = file.getOriginalFilename();
         String detectedType = fileService.determineTypeFromFilename(filename);
 
-        log.info("Auto-detected type '{}' for file: {}", detectedType, filename);
+        log.debug("Auto-detected type '{}' for file: {}", detectedType, filename);
 
         return uploadFile(detectedType, file);
     }
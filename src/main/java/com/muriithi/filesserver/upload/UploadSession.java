@@ -0,0 +1,135 @@
+package com.muriithi.filesserver.upload;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * State of one resumable upload: a preallocated part file, the chunk bitmap and its lifecycle.
+ * Chunk writes are positional, so any number of them can run concurrently on the shared channel.
+ */
+public class UploadSession {
+
+    enum State { OPEN, COMPLETING, CLOSED }
+
+    final String id;
+    final String type;
+    final Path target;
+    final Path partFile;
+    final long size;
+    final int chunkSize;
+    final int totalChunks;
+    final String expectedSha256;
+    volatile FileChannel channel;
+
+    private final BitSet received;
+    private final AtomicReference<State> state = new AtomicReference<>(State.OPEN);
+    private final AtomicInteger activeWrites = new AtomicInteger();
+    private volatile Instant lastActivity = Instant.now();
+
+    UploadSession(String id, String type, Path target, Path partFile, long size, int chunkSize,
+                  String expectedSha256, FileChannel channel) {
+        this.id = id;
+        this.type = type;
+        this.target = target;
+        this.partFile = partFile;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.totalChunks = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+        this.expectedSha256 = expectedSha256;
+        this.channel = channel;
+        this.received = new BitSet(totalChunks);
+    }
+
+    long expectedLength(int chunkIndex) {
+        long start = (long) chunkIndex * chunkSize;
+        return Math.min(chunkSize, size - start);
+    }
+
+    /**
+     * Registers an in-flight chunk write; fails if the session is completing or closed.
+     */
+    boolean beginWrite() {
+        activeWrites.incrementAndGet();
+        if (state.get() != State.OPEN) {
+            activeWrites.decrementAndGet();
+            return false;
+        }
+        lastActivity = Instant.now();
+        return true;
+    }
+
+    void endWrite(int chunkIndex, boolean success) {
+        if (success) {
+            synchronized (received) {
+                received.set(chunkIndex);
+            }
+        }
+        lastActivity = Instant.now();
+        activeWrites.decrementAndGet();
+    }
+
+    /**
+     * Moves the session out of OPEN once no chunk writes are in flight.
+     */
+    boolean transition(State next) {
+        if (!state.compareAndSet(State.OPEN, next)) {
+            return false;
+        }
+        if (activeWrites.get() > 0) {
+            state.set(State.OPEN);
+            return false;
+        }
+        return true;
+    }
+
+    State state() {
+        return state.get();
+    }
+
+    Instant lastActivity() {
+        return lastActivity;
+    }
+
+    int receivedCount() {
+        synchronized (received) {
+            return received.cardinality();
+        }
+    }
+
+    boolean isComplete() {
+        return receivedCount() == totalChunks;
+    }
+
+    List<Integer> missingChunks() {
+        List<Integer> missing = new ArrayList<>();
+        synchronized (received) {
+            for (int i = received.nextClearBit(0); i < totalChunks; i = received.nextClearBit(i + 1)) {
+                missing.add(i);
+            }
+        }
+        return missing;
+    }
+
+    void closeChannel() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Puts a session whose completion failed part-way back into OPEN, reopening the part file, so it
+     * can be completed again, receive chunks or be aborted.
+     */
+    void reopen() throws IOException {
+        if (!channel.isOpen()) {
+            channel = FileChannel.open(partFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        state.compareAndSet(State.COMPLETING, State.OPEN);
+    }
+}
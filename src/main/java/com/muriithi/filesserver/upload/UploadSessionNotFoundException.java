@@ -0,0 +1,8 @@
+package com.muriithi.filesserver.upload;
+
+public class UploadSessionNotFoundException extends RuntimeException {
+
+    public UploadSessionNotFoundException(String uploadId) {
+        super("Upload session not found: " + uploadId);
+    }
+}
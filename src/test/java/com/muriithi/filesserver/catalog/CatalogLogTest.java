@@ -0,0 +1,171 @@
+package com.muriithi.filesserver.catalog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CatalogLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void putsAndRemovesReplayAfterReopen() throws IOException {
+        try (CatalogLog log = open(new HashMap<>())) {
+            log.put(record("a.pdf", "aaa"));
+            log.put(record("b.pdf", null));
+            log.put(record("a.pdf", "a2"));
+            log.remove("pdfs/b.pdf");
+        }
+
+        Map<String, FileRecord> records = new HashMap<>();
+        try (CatalogLog log = open(records)) {
+            assertEquals(Set.of("pdfs/a.pdf"), records.keySet());
+            assertEquals("a2", records.get("pdfs/a.pdf").sha256());
+            assertEquals(4, log.entries());
+        }
+    }
+
+    @Test
+    void tornTailIsCutBackAndLaterAppendsReplay() throws IOException {
+        try (CatalogLog log = open(new HashMap<>())) {
+            log.put(record("a.pdf", "aaa"));
+            log.put(record("b.pdf", "bbb"));
+        }
+        // Half of a frame header, as a crash mid-append leaves it
+        Files.write(directory.resolve("log"), new byte[]{0, 0, 0}, StandardOpenOption.APPEND);
+
+        try (CatalogLog log = open(new HashMap<>())) {
+            log.put(record("c.pdf", "ccc"));
+        }
+
+        Map<String, FileRecord> records = new HashMap<>();
+        open(records).close();
+        assertEquals(Set.of("pdfs/a.pdf", "pdfs/b.pdf", "pdfs/c.pdf"), records.keySet());
+    }
+
+    @Test
+    void replayStopsAtACorruptFrame() throws IOException {
+        long firstFrame;
+        try (CatalogLog log = open(new HashMap<>())) {
+            log.put(record("a.pdf", "aaa"));
+            firstFrame = Files.size(directory.resolve("log"));
+            log.put(record("b.pdf", "bbb"));
+        }
+        byte[] bytes = Files.readAllBytes(directory.resolve("log"));
+        bytes[(int) firstFrame + 12] ^= 0x7f;
+        Files.write(directory.resolve("log"), bytes);
+
+        Map<String, FileRecord> records = new HashMap<>();
+        try (CatalogLog log = open(records)) {
+            assertEquals(Set.of("pdfs/a.pdf"), records.keySet());
+            assertEquals(firstFrame, Files.size(directory.resolve("log")));
+        }
+    }
+
+    @Test
+    void compactionKeepsEveryRecordAndResetsTheCount() throws IOException {
+        Map<String, FileRecord> live = new HashMap<>();
+        try (CatalogLog log = open(live)) {
+            for (String name : List.of("a.pdf", "b.pdf", "c.pdf")) {
+                log.put(record(name, name));
+                live.put("pdfs/" + name, record(name, name));
+            }
+            log.rotate();
+            assertEquals(0, log.entries());
+            // Written between the rotation and the snapshot, so only the new log has it
+            log.put(record("d.pdf", "ddd"));
+            log.writeSnapshot(List.copyOf(live.values()));
+            assertFalse(Files.exists(directory.resolve("log.prev")));
+        }
+
+        Map<String, FileRecord> records = new HashMap<>();
+        try (CatalogLog log = open(records)) {
+            assertEquals(Set.of("pdfs/a.pdf", "pdfs/b.pdf", "pdfs/c.pdf", "pdfs/d.pdf"), records.keySet());
+            assertEquals(1, log.entries());
+        }
+    }
+
+    @Test
+    void recoversFromACrashBetweenRotationAndSnapshot() throws IOException {
+        try (CatalogLog log = open(new HashMap<>())) {
+            log.put(record("a.pdf", "aaa"));
+            log.put(record("b.pdf", "bbb"));
+            log.rotate();
+            log.put(record("c.pdf", "ccc"));
+            log.remove("pdfs/a.pdf");
+        }
+
+        Map<String, FileRecord> records = new HashMap<>();
+        try (CatalogLog log = open(records)) {
+            assertEquals(Set.of("pdfs/b.pdf", "pdfs/c.pdf"), records.keySet());
+            assertEquals(4, log.entries());
+        }
+    }
+
+    @Test
+    void rotatingOverALeftoverPreviousLogKeepsBothAndResetsTheCount() throws IOException {
+        try (CatalogLog log = open(new HashMap<>())) {
+            log.put(record("a.pdf", "aaa"));
+            log.rotate();
+            log.put(record("b.pdf", "bbb"));
+            log.remove("pdfs/a.pdf");
+            log.rotate();
+            assertEquals(0, log.entries());
+            log.put(record("c.pdf", "ccc"));
+        }
+
+        Map<String, FileRecord> records = new HashMap<>();
+        try (CatalogLog log = open(records)) {
+            assertEquals(Set.of("pdfs/b.pdf", "pdfs/c.pdf"), records.keySet());
+            log.rotate();
+            log.writeSnapshot(List.copyOf(records.values()));
+        }
+
+        Map<String, FileRecord> compacted = new HashMap<>();
+        try (CatalogLog log = open(compacted)) {
+            assertEquals(records, compacted);
+            assertEquals(0, log.entries());
+        }
+    }
+
+    @Test
+    void tornPreviousLogIsCutBackBeforeItIsAppendedTo() throws IOException {
+        try (CatalogLog log = open(new HashMap<>())) {
+            log.put(record("a.pdf", "aaa"));
+            log.rotate();
+            log.put(record("b.pdf", "bbb"));
+        }
+        Files.write(directory.resolve("log.prev"), new byte[]{0, 0, 1}, StandardOpenOption.APPEND);
+
+        try (CatalogLog log = open(new HashMap<>())) {
+            log.rotate();
+            log.put(record("c.pdf", "ccc"));
+        }
+
+        Map<String, FileRecord> records = new HashMap<>();
+        open(records).close();
+        assertEquals(Set.of("pdfs/a.pdf", "pdfs/b.pdf", "pdfs/c.pdf"), records.keySet());
+    }
+
+    private CatalogLog open(Map<String, FileRecord> records) throws IOException {
+        CatalogLog log = new CatalogLog(directory);
+        log.open(records);
+        return log;
+    }
+
+    private static FileRecord record(String filename, String sha256) {
+        return new FileRecord("pdfs", filename, 10, 1_000, sha256, "application/pdf", RenderStatus.NOT_RENDERABLE);
+    }
+}
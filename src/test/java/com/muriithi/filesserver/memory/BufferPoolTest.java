@@ -0,0 +1,100 @@
+package com.muriithi.filesserver.memory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BufferPoolTest {
+
+    private static final int KB = 1024;
+
+    // 64 KB streaming buffers in 4 KB..1 MB classes, 1 MB of direct memory in total
+    private final BufferPool pool = new BufferPool(64, 4, 1024, 1, new SimpleMeterRegistry());
+
+    @Test
+    void reusesReleasedBuffers() {
+        ByteBuffer first = pool.acquire();
+        first.put((byte) 1);
+        pool.release(first);
+
+        ByteBuffer second = pool.acquire();
+        assertSame(first, second);
+        assertEquals(0, second.position());
+        assertEquals(64 * KB, second.remaining());
+    }
+
+    @Test
+    void aSecondReleaseIsIgnored() {
+        ByteBuffer buffer = pool.acquire();
+        pool.release(buffer);
+        pool.release(buffer);
+
+        assertEquals(0, inUseBytes().get());
+        ByteBuffer first = pool.acquire();
+        ByteBuffer second = pool.acquire();
+        assertSame(buffer, first);
+        assertNotSame(first, second);
+        assertEquals(128 * KB, inUseBytes().get());
+    }
+
+    @Test
+    void roundsUpToTheSizeClass() {
+        assertEquals(8 * KB, pool.acquire(5000).capacity());
+        assertEquals(4 * KB, pool.acquire(1).capacity());
+        assertEquals(1024 * KB, pool.acquire(4096 * KB).capacity());
+    }
+
+    @Test
+    void fallsBackToHeapBuffersPastTheCap() {
+        List<ByteBuffer> held = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            held.add(pool.acquire());
+        }
+        assertTrue(held.stream().allMatch(ByteBuffer::isDirect));
+
+        ByteBuffer overflow = pool.acquire();
+        assertFalse(overflow.isDirect());
+        pool.release(overflow);
+        assertEquals(1024 * KB, allocatedBytes().get());
+
+        held.forEach(pool::release);
+        assertTrue(pool.acquire().isDirect());
+    }
+
+    @Test
+    void buffersThatAreNeverReleasedComeOffTheCap() throws Exception {
+        for (int i = 0; i < 16; i++) {
+            pool.acquire();
+        }
+        assertEquals(1024 * KB, allocatedBytes().get());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (allocatedBytes().get() > 0 && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(0, allocatedBytes().get());
+        assertEquals(0, inUseBytes().get());
+        assertTrue(pool.acquire().isDirect());
+    }
+
+    private AtomicLong allocatedBytes() {
+        return (AtomicLong) ReflectionTestUtils.getField(pool, "allocatedBytes");
+    }
+
+    private AtomicLong inUseBytes() {
+        return (AtomicLong) ReflectionTestUtils.getField(pool, "inUseBytes");
+    }
+}
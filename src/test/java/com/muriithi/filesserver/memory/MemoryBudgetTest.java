@@ -0,0 +1,76 @@
+package com.muriithi.filesserver.memory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MemoryBudgetTest {
+
+    private static final long KB = 1024;
+
+    private final MemoryBudget budget = new MemoryBudget(1, 5_000, 3, new SimpleMeterRegistry());
+    private final ExecutorService waiters = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        waiters.shutdownNow();
+    }
+
+    @Test
+    void smallReservationsQueueBehindALargeOne() throws Exception {
+        MemoryBudget.Reservation first = budget.reserve(600 * KB);
+        Future<MemoryBudget.Reservation> large = waiters.submit(() -> budget.reserve(800 * KB));
+        Thread.sleep(100);
+        // 100 KB would fit next to the first reservation, but the 800 KB request is ahead of it
+        Future<MemoryBudget.Reservation> small = waiters.submit(() -> budget.reserve(100 * KB));
+        assertThrows(TimeoutException.class, () -> small.get(200, TimeUnit.MILLISECONDS));
+        assertFalse(large.isDone());
+
+        first.close();
+        MemoryBudget.Reservation second = large.get(1, TimeUnit.SECONDS);
+        small.get(1, TimeUnit.SECONDS).close();
+        second.close();
+    }
+
+    @Test
+    void failsOnceTheWaitRunsOut() {
+        MemoryBudget shortWait = new MemoryBudget(1, 50, 3, new SimpleMeterRegistry());
+        MemoryBudget.Reservation held = shortWait.reserve(1024 * KB);
+
+        assertThrows(MemoryBudgetExceededException.class, () -> shortWait.reserve(1));
+        held.close();
+        shortWait.reserve(1).close();
+    }
+
+    @Test
+    void capsReservationsLargerThanTheBudget() throws Exception {
+        MemoryBudget.Reservation huge = budget.reserve(10 * 1024 * KB);
+        Future<MemoryBudget.Reservation> next = waiters.submit(() -> budget.reserve(KB));
+        assertThrows(TimeoutException.class, () -> next.get(100, TimeUnit.MILLISECONDS));
+
+        huge.close();
+        next.get(1, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void closingTwiceReleasesOnce() throws Exception {
+        MemoryBudget.Reservation reservation = budget.reserve(1024 * KB);
+        reservation.close();
+        reservation.close();
+
+        MemoryBudget.Reservation full = budget.reserve(1024 * KB);
+        Future<MemoryBudget.Reservation> next = waiters.submit(() -> budget.reserve(KB));
+        assertThrows(TimeoutException.class, () -> next.get(100, TimeUnit.MILLISECONDS));
+        full.close();
+        next.get(1, TimeUnit.SECONDS).close();
+    }
+}
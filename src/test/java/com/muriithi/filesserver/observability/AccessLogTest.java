@@ -0,0 +1,72 @@
+package com.muriithi.filesserver.observability;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogTest {
+
+    private final AccessLog accessLog = new AccessLog(true, 1.0, true, 4, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        accessLog.stop();
+    }
+
+    @Test
+    void wakesTheParkedAppenderOnAppend() throws Exception {
+        accessLog.start();
+        // Long enough for the appender to find the ring empty and park
+        Thread.sleep(100);
+
+        for (int round = 0; round < 100; round++) {
+            assertTrue(accessLog.append(entry(200)));
+            awaitDrained();
+        }
+    }
+
+    @Test
+    void refusesEntriesWhenNotStarted() {
+        assertFalse(accessLog.append(entry(200)));
+        assertEquals(0, accessLog.pending());
+    }
+
+    @Test
+    void drainsWhatIsLeftOnStop() throws Exception {
+        accessLog.start();
+        for (int i = 0; i < 4; i++) {
+            accessLog.append(entry(500));
+        }
+        accessLog.stop();
+
+        assertEquals(0, accessLog.pending());
+    }
+
+    @Test
+    void formatsEntriesAsJson() {
+        long[] phases = new long[TracePhase.values().length];
+        String json = AccessLog.toJson(new AccessLog.Entry("GET", "/api/files/serve", "pd\"fs", "pdf", 10, 200,
+                TimeUnit.MILLISECONDS.toNanos(3), phases));
+
+        assertTrue(json.startsWith("{\"method\":\"GET\",\"route\":\"/api/files/serve\",\"type\":\"pd\\\"fs\""), json);
+        assertTrue(json.endsWith(",\"phasesMs\":{}}"), json);
+    }
+
+    private void awaitDrained() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (accessLog.pending() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, accessLog.pending());
+    }
+
+    private static AccessLog.Entry entry(int status) {
+        return new AccessLog.Entry("GET", "/api/files/serve", "pdfs", "pdf", 10, status, 1_000, null);
+    }
+}
@@ -0,0 +1,87 @@
+package com.muriithi.filesserver.renderviaweb;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RenderCacheTest {
+
+    private static final byte[] CSV = "region,total\nnorth,10\nsouth,20\n".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    private final RenderCache cache = new RenderCache(1, new SimpleMeterRegistry());
+    private final CsvDocumentRenderer csvRenderer = new CsvDocumentRenderer();
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @Test
+    void identicalFilesNeverShowEachOthersNames() throws Exception {
+        Path first = write("alice-salaries.csv", CSV);
+        Path second = write("bob-bonuses.csv", CSV);
+
+        String firstHtml = render(first);
+        String secondHtml = render(second);
+        String firstAgain = render(first);
+
+        assertTrue(firstHtml.contains("alice-salaries"));
+        assertFalse(firstHtml.contains("bob-bonuses") || firstHtml.contains("Bob Bonuses"));
+        assertTrue(secondHtml.contains("bob-bonuses"));
+        assertFalse(secondHtml.contains("alice-salaries") || secondHtml.contains("Alice Salaries"));
+        assertEquals(firstHtml, firstAgain);
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    void aChangedFileIsRenderedAgain() throws Exception {
+        Path file = write("totals.csv", CSV);
+        render(file);
+
+        byte[] changed = "region,total\neast,30\n".getBytes(StandardCharsets.UTF_8);
+        Files.write(file, changed);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(5)));
+        String html = render(file);
+
+        assertTrue(html.contains("east"));
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    void contentThatNoLongerMatchesTheFileIsNotCached() throws Exception {
+        Path file = write("totals.csv", CSV);
+        byte[] stale = "region,total\n".getBytes(StandardCharsets.UTF_8);
+
+        render(file, stale);
+        render(file, stale);
+
+        assertEquals(2, renders.get());
+    }
+
+    private String render(Path file) throws Exception {
+        return render(file, Files.readAllBytes(file));
+    }
+
+    private String render(Path file, byte[] content) throws Exception {
+        String fileName = file.getFileName().toString();
+        RenderCache.Rendered rendered = cache.getOrRender(file, content, () -> {
+            renders.incrementAndGet();
+            return new RenderCache.Rendered(csvRenderer.renderCsvDocument(content, fileName), "text/html");
+        });
+        return new String(rendered.content(), StandardCharsets.UTF_8);
+    }
+
+    private Path write(String name, byte[] content) throws Exception {
+        return Files.write(directory.resolve(name), content);
+    }
+}
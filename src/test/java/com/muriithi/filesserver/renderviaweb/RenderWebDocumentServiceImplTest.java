@@ -0,0 +1,107 @@
+package com.muriithi.filesserver.renderviaweb;
+
+import com.muriithi.filesserver.catalog.MetadataCatalog;
+import com.muriithi.filesserver.observability.FileMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Each kind of document gets exactly one body. Before the branches returned, a rendered CSV, Office
+ * document or message fell through to the regular-file branch and had the raw bytes appended.
+ */
+class RenderWebDocumentServiceImplTest {
+
+    private static final byte[] CSV = "region,total\nnorth,10\n".getBytes(StandardCharsets.UTF_8);
+
+    private final RenderWebDocumentServiceImpl service = new RenderWebDocumentServiceImpl();
+    private final CsvDocumentRenderer csvDocumentRenderer = new CsvDocumentRenderer();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(service, "csvDocumentRenderer", csvDocumentRenderer);
+        ReflectionTestUtils.setField(service, "renderCache", new RenderCache(0, registry));
+        ReflectionTestUtils.setField(service, "fileMetrics", new FileMetrics(registry));
+        ReflectionTestUtils.setField(service, "metadataCatalog", mock(MetadataCatalog.class));
+    }
+
+    @Test
+    void csvIsWrittenOnceAsHtml() throws Exception {
+        service.renderThumbNailLocally(CSV, null, "totals.csv", "text/csv", response);
+
+        assertArrayEquals(csvDocumentRenderer.renderCsvDocument(CSV, "totals.csv"), response.getContentAsByteArray());
+    }
+
+    @Test
+    void spreadsheetIsWrittenOnceAsHtml() throws Exception {
+        service.renderThumbNailLocally(spreadsheet(), null, "totals.xlsx", "application/octet-stream", response);
+
+        String body = response.getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(response.getContentType().startsWith("text/html"));
+        assertEquals(response.getContentLength(), response.getContentAsByteArray().length);
+        assertEquals(1, body.split("<!DOCTYPE html>", -1).length - 1);
+    }
+
+    @Test
+    void officeDocumentThatCannotBeRenderedIsWrittenOnceAsIs() throws Exception {
+        byte[] content = "not a workbook".getBytes(StandardCharsets.UTF_8);
+
+        service.renderThumbNailLocally(content, null, "broken.xlsx", "application/octet-stream", response);
+
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void emlIsWrittenOnce() throws Exception {
+        byte[] content = "Subject: hello\r\n\r\nbody\r\n".getBytes(StandardCharsets.UTF_8);
+
+        service.renderThumbNailLocally(content, null, "hello.eml", "message/rfc822", response);
+
+        assertEquals("message/rfc822", response.getContentType());
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void unparseableMsgFallsBackToOneDownload() throws Exception {
+        byte[] content = "not an outlook message".getBytes(StandardCharsets.UTF_8);
+
+        service.renderThumbNailLocally(content, null, "hello.msg", "application/vnd.ms-outlook", response);
+
+        assertTrue(response.getHeader("Content-Disposition").startsWith("attachment"));
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void regularFileIsWrittenOnce() throws Exception {
+        byte[] content = "%PDF-1.4 not really".getBytes(StandardCharsets.UTF_8);
+
+        service.renderThumbNailLocally(content, null, "report.pdf", "application/pdf", response);
+
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    private static byte[] spreadsheet() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            var sheet = workbook.createSheet("Totals");
+            sheet.createRow(0).createCell(0).setCellValue("region");
+            sheet.createRow(1).createCell(0).setCellValue("north");
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            workbook.write(bytes);
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.muriithi.filesserver.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilenameIndexTest {
+
+    private static final List<String> NAMES = List.of(
+            "myreportcard.txt", "Q3_report.pdf", "reports-2024.xlsx", "annual-report.docx", "report.pdf", "report",
+            "notes.txt");
+
+    @Test
+    void ranksExactThenPrefixThenWordThenSubstring() {
+        FilenameIndex index = FilenameIndex.of(NAMES);
+
+        assertEquals(List.of(
+                new FilenameIndex.Match("report", FilenameIndex.MatchKind.EXACT),
+                new FilenameIndex.Match("report.pdf", FilenameIndex.MatchKind.PREFIX),
+                new FilenameIndex.Match("reports-2024.xlsx", FilenameIndex.MatchKind.PREFIX),
+                new FilenameIndex.Match("annual-report.docx", FilenameIndex.MatchKind.WORD),
+                new FilenameIndex.Match("Q3_report.pdf", FilenameIndex.MatchKind.WORD),
+                new FilenameIndex.Match("myreportcard.txt", FilenameIndex.MatchKind.SUBSTRING)
+        ), index.find("report", 10));
+    }
+
+    @Test
+    void namesAddedOneByOneRankLikeABuiltIndex() {
+        FilenameIndex built = FilenameIndex.of(NAMES);
+        FilenameIndex added = FilenameIndex.of(List.of());
+        NAMES.forEach(added::add);
+
+        for (String query : List.of("report", "rep", "2024", "q3", "notes", "card", "x")) {
+            assertEquals(built.find(query, 10), added.find(query, 10), query);
+        }
+    }
+
+    @Test
+    void matchesIgnoreCaseAndFindCamelCaseWords() {
+        FilenameIndex index = FilenameIndex.of(List.of("QuarterlyReport.pdf", "INVOICE-7.PDF"));
+
+        assertEquals(List.of(new FilenameIndex.Match("QuarterlyReport.pdf", FilenameIndex.MatchKind.WORD)),
+                index.find("REP", 10));
+        assertEquals(List.of(new FilenameIndex.Match("INVOICE-7.PDF", FilenameIndex.MatchKind.PREFIX)),
+                index.find("invoice", 10));
+        assertEquals(List.of(new FilenameIndex.Match("INVOICE-7.PDF", FilenameIndex.MatchKind.WORD)),
+                index.find("7", 10));
+    }
+
+    @Test
+    void substringsNeedThreeCharacters() {
+        FilenameIndex index = FilenameIndex.of(List.of("myreportcard.txt"));
+
+        assertTrue(index.find("po", 10).isEmpty());
+        assertEquals(List.of(new FilenameIndex.Match("myreportcard.txt", FilenameIndex.MatchKind.SUBSTRING)),
+                index.find("por", 10));
+        assertTrue(index.find("xyz", 10).isEmpty());
+    }
+
+    @Test
+    void stopsAtTheLimit() {
+        FilenameIndex index = FilenameIndex.of(NAMES);
+
+        assertEquals(2, index.find("report", 2).size());
+        assertTrue(index.find("report", 0).isEmpty());
+        assertTrue(index.find("", 10).isEmpty());
+    }
+
+    @Test
+    void removedNamesStopMatchingAndCanBeAddedBack() {
+        FilenameIndex index = FilenameIndex.of(NAMES);
+
+        index.remove("report.pdf");
+        index.remove("myreportcard.txt");
+        index.remove("not-there.pdf");
+
+        assertEquals(NAMES.size() - 2, index.size());
+        List<String> found = filenames(index.find("report", 10));
+        assertEquals(List.of("report", "reports-2024.xlsx", "annual-report.docx", "Q3_report.pdf"), found);
+
+        index.add("report.pdf");
+        index.add("myreportcard.txt");
+        index.add("report.pdf");
+
+        assertEquals(NAMES.size(), index.size());
+        assertEquals(FilenameIndex.of(NAMES).find("report", 10), index.find("report", 10));
+    }
+
+    @Test
+    void compactsOnceRemovedNamesOutnumberLiveOnes() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            names.add(String.format("file-%04d.txt", i));
+        }
+        FilenameIndex index = FilenameIndex.of(names);
+
+        for (int i = 0; i < 2000; i++) {
+            index.remove(names.get(i));
+        }
+
+        // Rebuilt at the 1501st removal, leaving 1499 names; the last 499 removals are marked dead again
+        assertEquals(1499, ((List<?>) ReflectionTestUtils.getField(index, "names")).size());
+        assertEquals(499, ReflectionTestUtils.getField(index, "removed"));
+        assertEquals(1000, index.size());
+        List<String> found = filenames(index.find("file-", 5000));
+        assertEquals(names.subList(2000, 3000), found);
+        assertEquals(List.of(new FilenameIndex.Match("file-2500.txt", FilenameIndex.MatchKind.EXACT)),
+                index.find("file-2500.txt", 10));
+        assertTrue(index.find("file-1999", 10).isEmpty());
+    }
+
+    private static List<String> filenames(List<FilenameIndex.Match> matches) {
+        return matches.stream().map(FilenameIndex.Match::filename).toList();
+    }
+}
@@ -0,0 +1,98 @@
+package com.muriithi.filesserver.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PostingListTest {
+
+    // Deltas and frequencies either side of each varint byte boundary
+    private static final int[][] POSTINGS = {
+            {0, 1}, {1, 127}, {128, 128}, {256, 16_383}, {16_640, 16_384},
+            {2_113_791, 2_097_151}, {2_113_792, 2_097_152}, {270_549_119, 1}, {Integer.MAX_VALUE, Integer.MAX_VALUE}
+    };
+
+    @Test
+    void decodesWhatWasAddedAcrossVarintBoundaries() {
+        PostingList postings = build();
+
+        assertEquals(POSTINGS.length, postings.count());
+        assertEquals(expected(POSTINGS), decode(postings));
+    }
+
+    @Test
+    void smallDeltasTakeOneByteEach() {
+        PostingList postings = new PostingList();
+        for (int doc = 0; doc < 100; doc++) {
+            postings.add(doc, 3);
+        }
+
+        assertEquals(200, postings.sizeBytes());
+    }
+
+    @Test
+    void survivesWriteAndRead() throws IOException {
+        PostingList postings = build();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        postings.write(new DataOutputStream(bytes));
+
+        PostingList read = PostingList.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(postings.count(), read.count());
+        assertEquals(postings.sizeBytes(), read.sizeBytes());
+        assertEquals(decode(postings), decode(read));
+    }
+
+    @Test
+    void appendsAfterReadContinueTheDeltas() throws IOException {
+        PostingList postings = new PostingList();
+        postings.add(5, 1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        postings.write(new DataOutputStream(bytes));
+
+        PostingList read = PostingList.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        read.add(300, 2);
+
+        assertEquals(List.of(List.of(5, 1), List.of(300, 2)), decode(read));
+    }
+
+    @Test
+    void rejectsIdsOutOfOrder() {
+        PostingList postings = new PostingList();
+        postings.add(10, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> postings.add(10, 1));
+        assertThrows(IllegalArgumentException.class, () -> postings.add(3, 1));
+    }
+
+    private static PostingList build() {
+        PostingList postings = new PostingList();
+        for (int[] posting : POSTINGS) {
+            postings.add(posting[0], posting[1]);
+        }
+        return postings;
+    }
+
+    private static List<List<Integer>> decode(PostingList postings) {
+        List<List<Integer>> decoded = new ArrayList<>();
+        postings.forEach((doc, frequency) -> decoded.add(List.of(doc, frequency)));
+        return decoded;
+    }
+
+    private static List<List<Integer>> expected(int[][] postings) {
+        List<List<Integer>> expected = new ArrayList<>();
+        for (int[] posting : postings) {
+            expected.add(List.of(posting[0], posting[1]));
+        }
+        return expected;
+    }
+}
@@ -0,0 +1,133 @@
+package com.muriithi.filesserver.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchIndexTest {
+
+    private final SearchIndex index = new SearchIndex();
+
+    @Test
+    void scoresASingleTermWithBm25() {
+        add("a.txt", 10, Map.of("invoice", 2));
+        add("b.txt", 30, Map.of("receipt", 1));
+
+        SearchIndex.Result result = index.search(List.of("invoice"), false, null, 0, 10);
+
+        // idf = ln(1 + (2 - 1 + 0.5) / (1 + 0.5)); average length 20
+        double idf = Math.log(1 + 1.5 / 1.5);
+        double norm = 1.2 * (1 - 0.75 + 0.75 * 10 / 20.0);
+        double expected = idf * 2 * 2.2 / (2 + norm);
+        assertEquals(1, result.total());
+        assertEquals(expected, result.hits().get(0).score(), 1e-5);
+    }
+
+    @Test
+    void moreOccurrencesRankHigher() {
+        add("once.txt", 20, Map.of("invoice", 1));
+        add("thrice.txt", 20, Map.of("invoice", 3));
+        add("other.txt", 20, Map.of("receipt", 1));
+
+        assertEquals(List.of("thrice.txt", "once.txt"), filenames(index.search(List.of("invoice"), false, null, 0, 10)));
+    }
+
+    @Test
+    void shorterDocumentsRankHigherForTheSameCount() {
+        add("long.txt", 200, Map.of("invoice", 2));
+        add("short.txt", 20, Map.of("invoice", 2));
+        add("other.txt", 50, Map.of("receipt", 1));
+
+        assertEquals(List.of("short.txt", "long.txt"), filenames(index.search(List.of("invoice"), false, null, 0, 10)));
+    }
+
+    @Test
+    void rarerTermsWeighMore() {
+        add("common.txt", 20, Map.of("report", 1));
+        add("rare.txt", 20, Map.of("quarterly", 1));
+        add("c.txt", 20, Map.of("report", 1));
+        add("d.txt", 20, Map.of("report", 1));
+
+        List<String> ranked = filenames(index.search(List.of("report", "quarterly"), false, null, 0, 10));
+
+        assertEquals("rare.txt", ranked.get(0));
+        assertEquals(4, ranked.size());
+    }
+
+    @Test
+    void matchAllNeedsEveryTerm() {
+        add("both.txt", 20, Map.of("annual", 1, "report", 1));
+        add("one.txt", 20, Map.of("report", 5));
+
+        SearchIndex.Result all = index.search(List.of("annual", "report"), true, null, 0, 10);
+        SearchIndex.Result any = index.search(List.of("annual", "report"), false, null, 0, 10);
+
+        assertEquals(List.of("both.txt"), filenames(all));
+        assertEquals(2, any.total());
+        assertEquals(0, index.search(List.of("annual", "missing"), true, null, 0, 10).total());
+    }
+
+    @Test
+    void pagesThroughTheRankingAndFiltersByFolder() {
+        for (int i = 1; i <= 5; i++) {
+            add("f" + i + ".txt", 20, Map.of("invoice", i));
+        }
+        index.add(new SearchIndex.Document("pdfs", "p.pdf", 1, 1, 20), Map.of("invoice", 9));
+
+        SearchIndex.Result page = index.search(List.of("invoice"), false, "text", 2, 2);
+
+        assertEquals(5, page.total());
+        assertEquals(List.of("f3.txt", "f2.txt"), filenames(page));
+    }
+
+    @Test
+    void replacedAndRemovedDocumentsDropOutBeforeAndAfterMerge() {
+        add("a.txt", 20, Map.of("invoice", 1));
+        add("b.txt", 20, Map.of("invoice", 2));
+        add("a.txt", 20, Map.of("receipt", 1));
+        index.remove("text/b.txt");
+
+        assertEquals(0, index.search(List.of("invoice"), false, null, 0, 10).total());
+        assertEquals(2, index.deletedCount());
+
+        index.merge();
+
+        assertEquals(0, index.deletedCount());
+        assertEquals(List.of("a.txt"), filenames(index.search(List.of("receipt"), false, null, 0, 10)));
+        assertEquals(0, index.search(List.of("invoice"), false, null, 0, 10).total());
+    }
+
+    @Test
+    void rankingSurvivesWriteAndRead() throws IOException {
+        add("a.txt", 40, Map.of("invoice", 1, "total", 2));
+        add("b.txt", 10, Map.of("invoice", 3));
+        add("c.txt", 25, Map.of("total", 1));
+        index.remove("text/c.txt");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.write(new DataOutputStream(bytes));
+        SearchIndex read = SearchIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        List<String> query = List.of("invoice", "total");
+        assertEquals(index.search(query, false, null, 0, 10), read.search(query, false, null, 0, 10));
+        assertTrue(read.isCurrent("text/a.txt", 1, 1));
+        assertEquals(index.postingBytes(), read.postingBytes());
+    }
+
+    private void add(String filename, int length, Map<String, Integer> frequencies) {
+        index.add(new SearchIndex.Document("text", filename, 1, 1, length), frequencies);
+    }
+
+    private static List<String> filenames(SearchIndex.Result result) {
+        return result.hits().stream().map(hit -> hit.document().filename()).toList();
+    }
+}
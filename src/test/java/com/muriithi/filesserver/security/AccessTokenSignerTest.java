@@ -0,0 +1,90 @@
+package com.muriithi.filesserver.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessTokenSignerTest {
+
+    private static final String SECRET = "test-secret-that-is-32-bytes-long";
+
+    private final AccessTokenSigner signer = new AccessTokenSigner(SECRET, 5);
+
+    @Test
+    void verifiesItsOwnTokens() {
+        String token = signer.issue("report \u00fc.pdf", "pdfs");
+
+        AccessTokenSigner.AccessToken claims = signer.verify(token, "report \u00fc.pdf");
+
+        assertNotNull(claims);
+        assertEquals("report \u00fc.pdf", claims.filename());
+        assertEquals("pdfs", claims.type());
+        assertTrue(claims.expiry().isAfter(Instant.now().plus(Duration.ofMinutes(4))));
+    }
+
+    @Test
+    void acceptsTokensFromAnotherNodeWithTheSameSecret() {
+        String token = new AccessTokenSigner(SECRET, 5).issue("a.pdf", "pdfs");
+
+        assertNotNull(signer.verify(token, "a.pdf"));
+    }
+
+    @Test
+    void rejectsTokensIssuedForAnotherFile() {
+        assertNull(signer.verify(signer.issue("a.pdf", "pdfs"), "b.pdf"));
+    }
+
+    @Test
+    void rejectsTokensSignedWithAnotherSecret() {
+        String token = new AccessTokenSigner("another-secret-that-is-32-bytes-long", 5).issue("a.pdf", "pdfs");
+
+        assertNull(signer.verify(token, "a.pdf"));
+    }
+
+    @Test
+    void refusesShortSecrets() {
+        assertThrows(IllegalArgumentException.class, () -> new AccessTokenSigner("default-secret", 5));
+        assertThrows(IllegalArgumentException.class, () -> new AccessTokenSigner("x".repeat(31), 5));
+    }
+
+    @Test
+    void withoutASecretEachInstanceHasItsOwnRandomKey() {
+        AccessTokenSigner first = new AccessTokenSigner("", 5);
+        AccessTokenSigner second = new AccessTokenSigner(null, 5);
+        String token = first.issue("a.pdf", "pdfs");
+
+        assertNotNull(first.verify(token, "a.pdf"));
+        assertNull(second.verify(token, "a.pdf"));
+        assertNull(signer.verify(token, "a.pdf"));
+    }
+
+    @Test
+    void rejectsExpiredTokens() {
+        assertNull(signer.verify(signer.issue("a.pdf", "pdfs", Duration.ofSeconds(-1)), "a.pdf"));
+    }
+
+    @Test
+    void rejectsTamperedPayloads() {
+        String token = signer.issue("a.pdf", "pdfs");
+        String forged = signer.issue("b.pdf", "pdfs");
+        String spliced = forged.substring(0, forged.indexOf('.')) + token.substring(token.indexOf('.'));
+
+        assertNull(signer.verify(spliced, "b.pdf"));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertNull(signer.verify("", "a.pdf"));
+        assertNull(signer.verify("no-dot", "a.pdf"));
+        assertNull(signer.verify(".sig", "a.pdf"));
+        assertNull(signer.verify("a.b.c", "a.pdf"));
+        assertNull(signer.verify("!!!.???", "a.pdf"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.muriithi.filesserver.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketRateLimiterTest {
+
+    private static final Duration INTERVAL = Duration.ofSeconds(6);
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void admitsTheBurstThenAsksToWaitOneInterval() {
+        TokenBucketRateLimiter limiter = limiter(3, 1024);
+
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(INTERVAL.toNanos(), limiter.tryAcquire("10.0.0.1"));
+
+        advance(INTERVAL.dividedBy(2));
+        assertEquals(INTERVAL.dividedBy(2).toNanos(), limiter.tryAcquire("10.0.0.1"));
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        TokenBucketRateLimiter limiter = limiter(2, 1024);
+        limiter.tryAcquire("10.0.0.1");
+        limiter.tryAcquire("10.0.0.1");
+
+        advance(INTERVAL);
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(INTERVAL.toNanos(), limiter.tryAcquire("10.0.0.1"));
+    }
+
+    @Test
+    void rejectedRequestsDoNotUseUpTokens() {
+        TokenBucketRateLimiter limiter = limiter(1, 1024);
+        limiter.tryAcquire("10.0.0.1");
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire("10.0.0.1") > 0);
+        }
+
+        advance(INTERVAL);
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+    }
+
+    @Test
+    void idleBucketsRefillOnlyUpToCapacity() {
+        TokenBucketRateLimiter limiter = limiter(3, 1024);
+        limiter.tryAcquire("10.0.0.1");
+
+        advance(INTERVAL.multipliedBy(100));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        }
+        assertEquals(INTERVAL.toNanos(), limiter.tryAcquire("10.0.0.1"));
+    }
+
+    @Test
+    void countsBucketsBelowCapacity() {
+        TokenBucketRateLimiter limiter = limiter(5, 1);
+        assertEquals(0, limiter.activeBuckets());
+
+        limiter.tryAcquire("10.0.0.1");
+        assertEquals(1, limiter.activeBuckets());
+
+        advance(INTERVAL);
+        assertEquals(0, limiter.activeBuckets());
+    }
+
+    @Test
+    void keysInOneSlotShareABucket() {
+        TokenBucketRateLimiter limiter = limiter(2, 1);
+
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(0, limiter.tryAcquire("10.0.0.2"));
+        assertTrue(limiter.tryAcquire("10.0.0.3") > 0);
+    }
+
+    @Test
+    void rejectsNonPositiveSettings() {
+        assertThrows(IllegalArgumentException.class, () -> limiter(0, 16));
+        assertThrows(IllegalArgumentException.class, () -> limiter(1, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TokenBucketRateLimiter(1, Duration.ZERO, 16));
+    }
+
+    @Test
+    void sipHashMatchesTheReferenceVector() {
+        // Key 00..0f and message 00..0e, from the SipHash paper
+        long k0 = 0x0706050403020100L;
+        long k1 = 0x0f0e0d0c0b0a0908L;
+        byte[] message = new byte[15];
+        for (int i = 0; i < message.length; i++) {
+            message[i] = (byte) i;
+        }
+
+        assertEquals(0xa129ca6149be45e5L, TokenBucketRateLimiter.sipHash24(k0, k1, message));
+        assertEquals(0x726fdb47dd0e0e31L, TokenBucketRateLimiter.sipHash24(k0, k1, new byte[0]));
+    }
+
+    @Test
+    void routeSettingsAreValidatedWithThePropertyName() {
+        Map<String, RateLimitProperties.Route> routes = Map.of(
+                "generate-token", new RateLimitProperties.Route("/api/files/generate-token", 10, 0));
+
+        IllegalArgumentException failure = assertThrows(IllegalArgumentException.class,
+                () -> new RateLimitProperties(true, null, routes));
+        assertEquals("file.rate-limit.routes.generate-token.refill-per-minute must be at least 1, got 0",
+                failure.getMessage());
+    }
+
+    private TokenBucketRateLimiter limiter(int capacity, int slots) {
+        return new TokenBucketRateLimiter(capacity, INTERVAL, slots, clock::get);
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+}
@@ -0,0 +1,94 @@
+package com.muriithi.filesserver.storage;
+
+import com.muriithi.filesserver.config.AppExecutors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.NavigableSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileLayoutTest {
+
+    @TempDir
+    Path base;
+
+    private final AppExecutors appExecutors = new AppExecutors(false, 2);
+
+    @AfterEach
+    void tearDown() {
+        appExecutors.shutdown();
+    }
+
+    @Test
+    void listsFilesAcrossShards() throws IOException {
+        FileLayout layout = new FileLayout(base.toString(), true, 2, 0, appExecutors);
+        publish(layout, "b.pdf");
+        publish(layout, "a.pdf");
+
+        assertEquals(List.of("a.pdf", "b.pdf"), layout.list("pdfs"));
+
+        publish(layout, "c.pdf");
+        assertEquals(List.of("a.pdf", "b.pdf", "c.pdf"), layout.list("pdfs"));
+    }
+
+    @Test
+    void aFileRegisteredDuringARebuildIsKept() throws IOException {
+        FileLayout layout = new FileLayout(base.toString(), true, 2, 0, appExecutors) {
+            private boolean uploading;
+
+            @Override
+            NavigableSet<String> scan(String folder) throws IOException {
+                NavigableSet<String> names = super.scan(folder);
+                if (uploading) {
+                    // Published after the walk passed its directory, before the new index replaces the old
+                    uploading = false;
+                    publish(this, "late.pdf");
+                }
+                return names;
+            }
+
+            @Override
+            void rebuildIndexes() {
+                uploading = true;
+                super.rebuildIndexes();
+            }
+        };
+        publish(layout, "early.pdf");
+        assertEquals(List.of("early.pdf"), layout.list("pdfs"));
+
+        layout.rebuildIndexes();
+
+        assertEquals(List.of("early.pdf", "late.pdf"), layout.list("pdfs"));
+    }
+
+    @Test
+    void aFileRegisteredDuringTheFirstScanIsKept() throws IOException {
+        FileLayout layout = new FileLayout(base.toString(), true, 2, 0, appExecutors) {
+            private boolean first = true;
+
+            @Override
+            NavigableSet<String> scan(String folder) throws IOException {
+                NavigableSet<String> names = super.scan(folder);
+                if (first) {
+                    first = false;
+                    publish(this, "late.pdf");
+                }
+                return names;
+            }
+        };
+        publish(layout, "early.pdf");
+
+        assertEquals(List.of("early.pdf", "late.pdf"), layout.list("pdfs"));
+    }
+
+    private static void publish(FileLayout layout, String filename) throws IOException {
+        Path directory = Files.createDirectories(layout.directoryFor("pdfs", filename));
+        layout.register(Files.writeString(directory.resolve(filename), filename));
+    }
+}
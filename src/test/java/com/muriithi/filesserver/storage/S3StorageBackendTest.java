@@ -0,0 +1,254 @@
+package com.muriithi.filesserver.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.ChecksumMode;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class S3StorageBackendTest {
+
+    private static final String ETAG = "\"5d41402abc4b2a76b9719d911017c592\"";
+
+    @TempDir
+    Path temp;
+
+    private final RecordingS3 s3 = new RecordingS3();
+    private final S3StorageBackend backend = new S3StorageBackend(s3, "files", "prod");
+
+    @Test
+    void uploadsUnderThePrefixWithASha256Checksum() throws Exception {
+        Path source = Files.writeString(temp.resolve("report.pdf"), "report");
+
+        backend.upload(source, "pdfs", "report.pdf");
+
+        PutObjectRequest put = s3.puts.get(0);
+        assertEquals("files", put.bucket());
+        assertEquals("prod/pdfs/report.pdf", put.key());
+        assertEquals(ChecksumAlgorithm.SHA256, put.checksumAlgorithm());
+    }
+
+    @Test
+    void statAsksForTheChecksumAndReturnsItAsHex() throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest("report".getBytes(StandardCharsets.UTF_8));
+        s3.head = HeadObjectResponse.builder().contentLength(6L).lastModified(Instant.EPOCH)
+                .checksumSHA256(Base64.getEncoder().encodeToString(digest)).build();
+
+        StorageBackend.ObjectInfo info = backend.stat("pdfs", "report.pdf").orElseThrow();
+
+        HeadObjectRequest head = s3.heads.get(0);
+        assertEquals("prod/pdfs/report.pdf", head.key());
+        assertEquals(ChecksumMode.ENABLED, head.checksumMode());
+        assertEquals(6, info.size());
+        assertEquals(HexFormat.of().formatHex(digest), info.sha256());
+    }
+
+    @Test
+    void multipartAndMissingChecksumsCountAsNone() throws Exception {
+        s3.head = HeadObjectResponse.builder().contentLength(6L).lastModified(Instant.EPOCH)
+                .checksumSHA256("Qmx1ZWJlcnJpZXM=-3").build();
+        assertNull(backend.stat("pdfs", "report.pdf").orElseThrow().sha256());
+
+        s3.head = HeadObjectResponse.builder().contentLength(6L).lastModified(Instant.EPOCH).build();
+        assertNull(backend.stat("pdfs", "report.pdf").orElseThrow().sha256());
+
+        s3.head = null;
+        assertTrue(backend.stat("pdfs", "report.pdf").isEmpty());
+    }
+
+    @Test
+    void listsEveryPageOfDirectChildren() throws Exception {
+        s3.pages = List.of(
+                ListObjectsV2Response.builder().isTruncated(true).nextContinuationToken("page-2")
+                        .contents(object("prod/pdfs/b.pdf"), object("prod/pdfs/.upload-1.tmp")).build(),
+                ListObjectsV2Response.builder().isTruncated(false)
+                        .contents(object("prod/pdfs/a.pdf")).build());
+
+        assertEquals(List.of("a.pdf", "b.pdf"), backend.list("pdfs"));
+
+        assertEquals(2, s3.lists.size());
+        for (ListObjectsV2Request request : s3.lists) {
+            assertEquals("files", request.bucket());
+            assertEquals("prod/pdfs/", request.prefix());
+            assertEquals("/", request.delimiter());
+        }
+        assertNull(s3.lists.get(0).continuationToken());
+        assertEquals("page-2", s3.lists.get(1).continuationToken());
+    }
+
+    @Test
+    void resumesACutOffDownloadWithARangedGetOfTheSameVersion() throws Exception {
+        s3.object = new byte[100_000];
+        Arrays.fill(s3.object, 50_000, 100_000, (byte) 7);
+        s3.cutOffAfter = 40_000;
+        Path destination = temp.resolve("report.pdf.tmp");
+
+        backend.download("pdfs", "report.pdf", destination);
+
+        assertArrayEquals(s3.object, Files.readAllBytes(destination));
+        assertEquals(2, s3.gets.size());
+        GetObjectRequest first = s3.gets.get(0);
+        assertEquals("prod/pdfs/report.pdf", first.key());
+        assertNull(first.range());
+        GetObjectRequest resumed = s3.gets.get(1);
+        assertEquals("bytes=40000-", resumed.range());
+        assertEquals(ETAG, resumed.ifMatch());
+    }
+
+    @Test
+    void aDownloadThatMakesNoProgressFailsAndLeavesNothing() {
+        s3.object = new byte[10];
+        s3.cutOffAfter = 0;
+        Path destination = temp.resolve("report.pdf.tmp");
+
+        assertThrows(IOException.class, () -> backend.download("pdfs", "report.pdf", destination));
+        assertEquals(1, s3.gets.size());
+        assertFalse(Files.exists(destination));
+    }
+
+    @Test
+    void aMissingObjectIsAMissingFile() {
+        Path destination = temp.resolve("report.pdf.tmp");
+
+        assertThrows(NoSuchFileException.class, () -> backend.download("pdfs", "report.pdf", destination));
+        assertFalse(Files.exists(destination));
+    }
+
+    private static S3Object object(String key) {
+        return S3Object.builder().key(key).size(1L).build();
+    }
+
+    /**
+     * Records every request and answers from fields. The first GET can be cut off part way, the way a
+     * dropped connection ends a transfer.
+     */
+    private static final class RecordingS3 implements S3Client {
+
+        final List<PutObjectRequest> puts = new ArrayList<>();
+        final List<HeadObjectRequest> heads = new ArrayList<>();
+        final List<GetObjectRequest> gets = new ArrayList<>();
+        final List<ListObjectsV2Request> lists = new ArrayList<>();
+
+        HeadObjectResponse head;
+        byte[] object;
+        int cutOffAfter = -1;
+        List<ListObjectsV2Response> pages = List.of();
+
+        @Override
+        public PutObjectResponse putObject(PutObjectRequest request, RequestBody body) {
+            puts.add(request);
+            return PutObjectResponse.builder().eTag(ETAG).build();
+        }
+
+        @Override
+        public HeadObjectResponse headObject(HeadObjectRequest request) {
+            heads.add(request);
+            if (head == null) {
+                throw NoSuchKeyException.builder().message("No such key").build();
+            }
+            return head;
+        }
+
+        @Override
+        public <ReturnT> ReturnT getObject(GetObjectRequest request,
+                                           ResponseTransformer<GetObjectResponse, ReturnT> transformer) {
+            gets.add(request);
+            if (object == null) {
+                throw NoSuchKeyException.builder().message("No such key").build();
+            }
+            int from = request.range() == null ? 0
+                    : Integer.parseInt(request.range().substring("bytes=".length(), request.range().length() - 1));
+            InputStream in = new ByteArrayInputStream(object, from, object.length - from);
+            if (gets.size() == 1 && cutOffAfter >= 0) {
+                in = new CutOff(in, cutOffAfter);
+            }
+            GetObjectResponse response = GetObjectResponse.builder().eTag(ETAG)
+                    .contentLength((long) (object.length - from)).build();
+            try {
+                return transformer.transform(response, AbortableInputStream.create(in));
+            } catch (Exception e) {
+                throw SdkClientException.create("Transfer failed", e);
+            }
+        }
+
+        @Override
+        public ListObjectsV2Response listObjectsV2(ListObjectsV2Request request) {
+            lists.add(request);
+            return pages.get(lists.size() - 1);
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class CutOff extends FilterInputStream {
+
+        private int remaining;
+
+        CutOff(InputStream in, int remaining) {
+            super(in);
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining == 0) {
+                throw new IOException("Connection reset");
+            }
+            int read = super.read(buffer, offset, Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}
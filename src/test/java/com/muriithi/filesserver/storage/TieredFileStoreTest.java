@@ -0,0 +1,271 @@
+package com.muriithi.filesserver.storage;
+
+import com.muriithi.filesserver.config.AppExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TieredFileStoreTest {
+
+    @TempDir
+    Path temp;
+
+    private final AppExecutors appExecutors = new AppExecutors(false, 2);
+    private Path base;
+    private ObjectStore objects;
+    private TieredFileStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        base = Files.createDirectories(temp.resolve("files"));
+        objects = new ObjectStore(Files.createDirectories(temp.resolve("bucket")));
+        store = newStore(Long.MAX_VALUE, Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        appExecutors.shutdown();
+    }
+
+    @Test
+    void startupPushesOriginalsTheBackendDoesNotHave() throws Exception {
+        Path original = write(base.resolve("pdfs/report.pdf"), "original");
+
+        store.loadResident();
+        await(() -> objects.has("pdfs/report.pdf"));
+
+        assertEquals("original", Files.readString(original));
+        assertEquals(original, store.fetch("pdfs", "report.pdf"));
+        assertEquals(0, objects.downloads.get());
+    }
+
+    @Test
+    void originalsAreServedAndNeverDeletedBeforeTheScan() throws Exception {
+        Path original = write(base.resolve("pdfs/report.pdf"), "original");
+        store = newStore(Long.MAX_VALUE, Duration.ZERO);
+
+        assertEquals(original, store.fetch("pdfs", "report.pdf"));
+        assertTrue(store.exists("pdfs", "report.pdf"));
+        assertEquals("original", Files.readString(original));
+    }
+
+    @Test
+    void originalsThatDifferFromTheBackendAreLeftAlone() throws Exception {
+        objects.put("pdfs/report.pdf", "the backend's version");
+        Path original = write(base.resolve("pdfs/report.pdf"), "local");
+        store = newStore(1, Duration.ZERO);
+
+        store.loadResident();
+        Thread.sleep(200);
+        objects.put("pdfs/other.pdf", "evicts every tier copy but itself");
+        store.fetch("pdfs", "other.pdf");
+
+        assertEquals("local", Files.readString(original));
+        assertEquals(original, store.fetch("pdfs", "report.pdf"));
+    }
+
+    @Test
+    void originalsOfTheSameSizeButOtherBytesAreLeftAlone() throws Exception {
+        objects.put("pdfs/report.pdf", "remote");
+        Path original = write(base.resolve("pdfs/report.pdf"), "local!");
+        store = newStore(1, Duration.ZERO);
+
+        store.loadResident();
+        Thread.sleep(200);
+        objects.put("pdfs/other.pdf", "evicts every tier copy but itself");
+        store.fetch("pdfs", "other.pdf");
+
+        assertEquals("local!", Files.readString(original));
+        assertFalse(Files.exists(base.resolve(".tier/pdfs/report.pdf")));
+        assertEquals(original, store.fetch("pdfs", "report.pdf"));
+    }
+
+    @Test
+    void originalsAreAdoptedWhenTheBackendChecksumMatches() throws Exception {
+        objects.put("pdfs/report.pdf", "same bytes");
+        write(base.resolve("pdfs/report.pdf"), "same bytes");
+
+        store.loadResident();
+
+        await(() -> Files.exists(base.resolve(".tier/pdfs/report.pdf")));
+    }
+
+    @Test
+    void originalsAreLeftAloneWhenTheBackendHasNoChecksum() throws Exception {
+        objects.putWithoutChecksum("pdfs/report.pdf", "same bytes");
+        Path original = write(base.resolve("pdfs/report.pdf"), "same bytes");
+
+        store.loadResident();
+        Thread.sleep(200);
+
+        assertFalse(Files.exists(base.resolve(".tier/pdfs/report.pdf")));
+        assertEquals(original, store.fetch("pdfs", "report.pdf"));
+    }
+
+    @Test
+    void publishTakesTheBackendTimestamp() throws Exception {
+        Path uploaded = write(base.resolve("pdfs/new.pdf"), "uploaded");
+        store = newStore(Long.MAX_VALUE, Duration.ZERO);
+
+        store.publish(uploaded);
+
+        assertEquals(objects.stat("pdfs", "new.pdf").orElseThrow().lastModified(),
+                Files.getLastModifiedTime(uploaded).toInstant());
+        // Revalidated on every request, and still current: no download
+        store.fetch("pdfs", "new.pdf");
+        store.fetch("pdfs", "new.pdf");
+        assertEquals(0, objects.downloads.get());
+    }
+
+    @Test
+    void fetchesMissesOnceAndEvictsLeastRecentlyUsedTierCopies() throws Exception {
+        objects.put("pdfs/a.pdf", "aaaa");
+        objects.put("pdfs/b.pdf", "bbbb");
+        store = newStore(6, Duration.ofMinutes(5));
+
+        Path a = store.fetch("pdfs", "a.pdf");
+        assertEquals("aaaa", Files.readString(a));
+        store.fetch("pdfs", "a.pdf");
+        assertEquals(1, objects.downloads.get());
+
+        Path b = store.fetch("pdfs", "b.pdf");
+        assertFalse(Files.exists(a));
+        assertTrue(Files.exists(b));
+        assertFalse(Files.exists(base.resolve(".tier/pdfs/a.pdf")));
+    }
+
+    @Test
+    void tierCopiesOfDeletedObjectsAreDropped() throws Exception {
+        objects.put("pdfs/a.pdf", "aaaa");
+        store = newStore(Long.MAX_VALUE, Duration.ZERO);
+        Path a = store.fetch("pdfs", "a.pdf");
+
+        objects.delete("pdfs/a.pdf");
+
+        assertFalse(Files.exists(store.fetch("pdfs", "a.pdf")));
+        assertFalse(Files.exists(a));
+    }
+
+    private TieredFileStore newStore(long maxBytes, Duration revalidateAfter) {
+        FileLayout layout = new FileLayout(base.toString(), false, 2, 0, appExecutors);
+        return new TieredFileStore(objects, layout, appExecutors, maxBytes, revalidateAfter, new SimpleMeterRegistry());
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * Stands in for S3: objects live in a separate directory, and like S3 the store stamps each object
+     * with its own second-resolution time, which is later than the local file's. Objects carry a SHA-256
+     * unless put without one, as objects written by other tools may be.
+     */
+    private static final class ObjectStore implements StorageBackend {
+
+        private final Path bucket;
+        private final Map<String, Instant> stamped = new ConcurrentHashMap<>();
+        private final Set<String> unchecksummed = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger downloads = new AtomicInteger();
+
+        private ObjectStore(Path bucket) {
+            this.bucket = bucket;
+        }
+
+        void put(String key, String content) throws IOException {
+            write(bucket.resolve(key), content);
+            stamped.put(key, Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1));
+            unchecksummed.remove(key);
+        }
+
+        void putWithoutChecksum(String key, String content) throws IOException {
+            put(key, content);
+            unchecksummed.add(key);
+        }
+
+        boolean has(String key) {
+            return stamped.containsKey(key);
+        }
+
+        void delete(String key) throws IOException {
+            stamped.remove(key);
+            Files.deleteIfExists(bucket.resolve(key));
+        }
+
+        @Override
+        public boolean isLocal() {
+            return false;
+        }
+
+        @Override
+        public Optional<ObjectInfo> stat(String folder, String filename) throws IOException {
+            String key = folder + "/" + filename;
+            Instant lastModified = stamped.get(key);
+            if (lastModified == null) {
+                return Optional.empty();
+            }
+            byte[] content = Files.readAllBytes(bucket.resolve(key));
+            return Optional.of(new ObjectInfo(content.length, lastModified,
+                    unchecksummed.contains(key) ? null : sha256(content)));
+        }
+
+        @Override
+        public void download(String folder, String filename, Path destination) throws IOException {
+            downloads.incrementAndGet();
+            Files.copy(bucket.resolve(folder + "/" + filename), destination);
+        }
+
+        @Override
+        public void upload(Path source, String folder, String filename) throws IOException {
+            put(folder + "/" + filename, Files.readString(source));
+        }
+
+        @Override
+        public List<String> list(String folder) throws IOException {
+            try (Stream<Path> files = Files.list(bucket.resolve(folder))) {
+                return files.map(file -> file.getFileName().toString()).sorted().toList();
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.muriithi.filesserver.upload;
+
+import com.muriithi.filesserver.config.AppExecutors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchIngestionServiceTest {
+
+    private static final int CONCURRENCY = 2;
+    private static final int MAX_IN_FLIGHT_MB = 1;
+
+    private final UploadService uploadService = mock(UploadService.class);
+    private final ExecutorService caller = Executors.newSingleThreadExecutor();
+    private AppExecutors appExecutors;
+    private BatchIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        appExecutors = new AppExecutors(false, 4);
+        service = new BatchIngestionService(uploadService, appExecutors);
+        ReflectionTestUtils.setField(service, "concurrency", CONCURRENCY);
+        ReflectionTestUtils.setField(service, "maxInFlightMb", MAX_IN_FLIGHT_MB);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        caller.shutdownNow();
+        appExecutors.shutdown();
+    }
+
+    @Test
+    void permitsComeBackWhenTheClientDisconnectsMidStream() throws Exception {
+        // 600 KB each against a 1 MB budget: only one file fits at a time, so the caller waits on
+        // the byte budget while holding a slot when the first result reaches the broken stream
+        MultipartFile[] files = {file("a.pdf"), file("b.pdf"), file("c.pdf")};
+        CountDownLatch firstDone = new CountDownLatch(1);
+        CountDownLatch restDone = new CountDownLatch(1);
+        when(uploadService.uploadFile(anyString(), any())).thenAnswer(invocation -> {
+            MultipartFile file = invocation.getArgument(1);
+            (file.getOriginalFilename().equals("a.pdf") ? firstDone : restDone).await();
+            return success();
+        });
+
+        Future<Map<String, Object>> batch = caller.submit(() -> service.ingest(files, "pdfs", result -> {
+            throw new UncheckedIOException(new IOException("Broken pipe"));
+        }));
+
+        awaitPermits(slots(), 0);
+        firstDone.countDown();
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> batch.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(UncheckedIOException.class, failure.getCause());
+
+        restDone.countDown();
+        awaitPermits(slots(), CONCURRENCY);
+        awaitPermits(inFlightKb(), MAX_IN_FLIGHT_MB * 1024);
+    }
+
+    @Test
+    void permitsComeBackWhenTheExecutorRejectsTheFile() throws Exception {
+        when(uploadService.uploadFile(anyString(), any())).thenReturn(success());
+        appExecutors.io().shutdown();
+
+        assertThrows(RejectedExecutionException.class,
+                () -> service.ingest(new MultipartFile[]{file("a.pdf")}, "pdfs", result -> {
+                }));
+
+        assertEquals(CONCURRENCY, slots().availablePermits());
+        assertEquals(MAX_IN_FLIGHT_MB * 1024, inFlightKb().availablePermits());
+    }
+
+    @Test
+    void reportsEveryFileInTheSummary() throws Exception {
+        when(uploadService.uploadFile(anyString(), any())).thenAnswer(invocation -> success());
+        MultipartFile[] files = {file("a.pdf"), file("b.pdf"), file("c.pdf"), file("d.pdf")};
+        Map<String, Map<String, Object>> results = new HashMap<>();
+
+        Map<String, Object> summary = service.ingest(files, "pdfs",
+                result -> results.put((String) result.get("filename"), result));
+
+        assertEquals(4, summary.get("totalFiles"));
+        assertEquals(4, summary.get("successCount"));
+        assertEquals(4, results.size());
+        awaitPermits(slots(), CONCURRENCY);
+    }
+
+    private Semaphore slots() {
+        return (Semaphore) ReflectionTestUtils.getField(service, "slots");
+    }
+
+    private Semaphore inFlightKb() {
+        return (Semaphore) ReflectionTestUtils.getField(service, "inFlightKb");
+    }
+
+    private static void awaitPermits(Semaphore semaphore, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (semaphore.availablePermits() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, semaphore.availablePermits());
+    }
+
+    private static MockMultipartFile file(String name) {
+        return new MockMultipartFile("files", name, "application/pdf", new byte[600 * 1024]);
+    }
+
+    private static Map<String, Object> success() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        return result;
+    }
+}